@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.apt;
+
+import java.util.List;
+
+/**
+ * Renders the source of one generated adapter class.
+ */
+final class AdapterSourceWriter
+{
+
+    private static final String SUPPORT = "GeneratedAdapterSupport";
+
+    private final String pkg;
+
+    private final String simpleName;
+
+    private final String modelType;
+
+    private final List<BoundProperty> properties;
+
+    private final StringBuilder sb = new StringBuilder();
+
+    private int indent;
+
+    AdapterSourceWriter( final String pkg, final String simpleName, final String modelType,
+                         final List<BoundProperty> properties )
+    {
+        this.pkg = pkg;
+        this.simpleName = simpleName;
+        this.modelType = modelType;
+        this.properties = properties;
+    }
+
+    String write()
+    {
+        line( "// Generated by " + JsonAdapterProcessor.class.getName() + " from " + modelType + ". Do not edit." );
+        if ( pkg.length() > 0 )
+        {
+            line( "package " + pkg + ";" );
+        }
+        line( "" );
+        line( "import java.io.IOException;" );
+        line( "" );
+        line( "import org.commonjava.web.json.ser.GeneratedAdapterSupport;" );
+        line( "import org.commonjava.web.json.ser.WebSerializationAdapter;" );
+        line( "" );
+        line( "import com.google.gson.Gson;" );
+        line( "import com.google.gson.GsonBuilder;" );
+        line( "import com.google.gson.TypeAdapter;" );
+        line( "import com.google.gson.TypeAdapterFactory;" );
+        line( "import com.google.gson.reflect.TypeToken;" );
+        line( "import com.google.gson.stream.JsonReader;" );
+        line( "import com.google.gson.stream.JsonToken;" );
+        line( "import com.google.gson.stream.JsonWriter;" );
+        line( "" );
+        line( "public final class " + simpleName );
+        line( "    implements WebSerializationAdapter, TypeAdapterFactory" );
+        open();
+
+        line( "@Override" );
+        line( "public void register( final GsonBuilder gsonBuilder )" );
+        open();
+        line( "gsonBuilder.registerTypeAdapterFactory( this );" );
+        close();
+        line( "" );
+
+        line( "@Override" );
+        line( "@SuppressWarnings( \"unchecked\" )" );
+        line( "public <T> TypeAdapter<T> create( final Gson gson, final TypeToken<T> type )" );
+        open();
+        line( "if ( type.getRawType() != " + modelType + ".class )" );
+        open();
+        line( "return null;" );
+        close();
+        line( "" );
+        line( "return (TypeAdapter<T>) new Adapter( gson );" );
+        close();
+        line( "" );
+
+        writeAdapter();
+
+        close();
+        return sb.toString();
+    }
+
+    private void writeAdapter()
+    {
+        line( "private static final class Adapter" );
+        line( "    extends TypeAdapter<" + modelType + ">" );
+        open();
+
+        line( "private final Gson gson;" );
+        for ( int i = 0; i < properties.size(); i++ )
+        {
+            final BoundProperty prop = properties.get( i );
+            if ( prop.getKind() == BoundProperty.Kind.DELEGATE )
+            {
+                line( "" );
+                line( "private final TypeAdapter<" + prop.getTypeName() + "> adapter" + i + ";" );
+            }
+        }
+        line( "" );
+
+        line( "Adapter( final Gson gson )" );
+        open();
+        line( "this.gson = gson;" );
+        for ( int i = 0; i < properties.size(); i++ )
+        {
+            final BoundProperty prop = properties.get( i );
+            if ( prop.getKind() == BoundProperty.Kind.DELEGATE )
+            {
+                if ( prop.getTypeName()
+                         .equals( prop.getErasedTypeName() ) )
+                {
+                    line( "this.adapter" + i + " = gson.getAdapter( " + prop.getTypeName() + ".class );" );
+                }
+                else
+                {
+                    line( "this.adapter" + i + " = gson.getAdapter( new TypeToken<" + prop.getTypeName() + ">()" );
+                    line( "{" );
+                    line( "} );" );
+                }
+            }
+        }
+        close();
+        line( "" );
+
+        writeWrite();
+        line( "" );
+        writeRead();
+
+        close();
+    }
+
+    private void writeWrite()
+    {
+        line( "@Override" );
+        line( "@SuppressWarnings( \"unchecked\" )" );
+        line( "public void write( final JsonWriter out, final " + modelType + " value )" );
+        line( "    throws IOException" );
+        open();
+        line( "if ( value == null )" );
+        open();
+        line( "out.nullValue();" );
+        line( "return;" );
+        close();
+        line( "" );
+        line( "out.beginObject();" );
+
+        for ( int i = 0; i < properties.size(); i++ )
+        {
+            final BoundProperty prop = properties.get( i );
+            final String get = prop.read( "value" );
+
+            line( "" );
+            line( "out.name( \"" + escape( prop.getJsonName() ) + "\" );" );
+            switch ( prop.getKind() )
+            {
+                case BOOLEAN:
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                case DOUBLE:
+                case STRING:
+                    line( "out.value( " + get + " );" );
+                    break;
+                case FLOAT:
+                    // match Gson's float formatting (Float.toString), not the widened double.
+                    line( "out.value( Float.valueOf( " + get + " ) );" );
+                    break;
+                case CHAR:
+                    line( "out.value( String.valueOf( " + get + " ) );" );
+                    break;
+                default:
+                    writeNullable( i, prop, get );
+            }
+        }
+
+        line( "" );
+        line( "out.endObject();" );
+        close();
+    }
+
+    private void writeNullable( final int i, final BoundProperty prop, final String get )
+    {
+        open();
+        line( "final " + prop.getTypeName() + " v = " + get + ";" );
+        line( "if ( v == null )" );
+        open();
+        line( "out.nullValue();" );
+        close();
+        line( "else" );
+        open();
+        switch ( prop.getKind() )
+        {
+            case BOXED_BOOLEAN:
+                line( "out.value( v.booleanValue() );" );
+                break;
+            case BOXED_BYTE:
+            case BOXED_SHORT:
+            case BOXED_INT:
+            case BOXED_LONG:
+                line( "out.value( v.longValue() );" );
+                break;
+            case BOXED_DOUBLE:
+            case BOXED_FLOAT:
+                line( "out.value( v );" );
+                break;
+            case BOXED_CHAR:
+                line( "out.value( String.valueOf( v.charValue() ) );" );
+                break;
+            case OBJECT:
+                line( "( (TypeAdapter<Object>) gson.getAdapter( v.getClass() ) ).write( out, v );" );
+                break;
+            default:
+                if ( prop.getTypeName()
+                         .equals( prop.getErasedTypeName() ) )
+                {
+                    // Gson looks for a more specific adapter only when the declared type is a plain class.
+                    line( SUPPORT + ".writeRuntimeType( gson, adapter" + i + ", " + prop.getErasedTypeName()
+                        + ".class, out, v );" );
+                }
+                else
+                {
+                    line( "adapter" + i + ".write( out, v );" );
+                }
+        }
+        close();
+        close();
+    }
+
+    private void writeRead()
+    {
+        line( "@Override" );
+        line( "public " + modelType + " read( final JsonReader in )" );
+        line( "    throws IOException" );
+        open();
+        line( "if ( in.peek() == JsonToken.NULL )" );
+        open();
+        line( "in.nextNull();" );
+        line( "return null;" );
+        close();
+        line( "" );
+        line( "final " + modelType + " value = new " + modelType + "();" );
+        line( "in.beginObject();" );
+        line( "while ( in.hasNext() )" );
+        open();
+        line( "final String name = in.nextName();" );
+
+        for ( int i = 0; i < properties.size(); i++ )
+        {
+            final BoundProperty prop = properties.get( i );
+            line( ( i == 0 ? "if" : "else if" ) + " ( \"" + escape( prop.getJsonName() ) + "\".equals( name ) )" );
+            open();
+            writeReadProperty( i, prop );
+            close();
+        }
+
+        if ( properties.isEmpty() )
+        {
+            line( "in.skipValue();" );
+        }
+        else
+        {
+            line( "else" );
+            open();
+            line( "in.skipValue();" );
+            close();
+        }
+
+        close();
+        line( "in.endObject();" );
+        line( "" );
+        line( "return value;" );
+        close();
+    }
+
+    private void writeReadProperty( final int i, final BoundProperty prop )
+    {
+        final String primitive = readPrimitive( prop.getKind() );
+        if ( primitive != null )
+        {
+            // JSON null leaves primitives at their default, as Gson does.
+            line( "if ( in.peek() == JsonToken.NULL )" );
+            open();
+            line( "in.nextNull();" );
+            close();
+            line( "else" );
+            open();
+            line( prop.assign( "value", primitive ) );
+            close();
+            return;
+        }
+
+        final String boxed = readBoxed( prop.getKind() );
+        if ( boxed != null )
+        {
+            line( "if ( in.peek() == JsonToken.NULL )" );
+            open();
+            line( "in.nextNull();" );
+            line( prop.assign( "value", "null" ) );
+            close();
+            line( "else" );
+            open();
+            line( prop.assign( "value", boxed ) );
+            close();
+            return;
+        }
+
+        switch ( prop.getKind() )
+        {
+            case STRING:
+                line( prop.assign( "value", SUPPORT + ".readString( in )" ) );
+                break;
+            case OBJECT:
+                line( prop.assign( "value", "gson.getAdapter( Object.class ).read( in )" ) );
+                break;
+            default:
+                line( prop.assign( "value", "adapter" + i + ".read( in )" ) );
+        }
+    }
+
+    private String readPrimitive( final BoundProperty.Kind kind )
+    {
+        switch ( kind )
+        {
+            case BOOLEAN:
+                return SUPPORT + ".nextBoolean( in )";
+            case BYTE:
+                return "(byte) " + SUPPORT + ".nextInt( in )";
+            case SHORT:
+                return "(short) " + SUPPORT + ".nextInt( in )";
+            case INT:
+                return SUPPORT + ".nextInt( in )";
+            case LONG:
+                return SUPPORT + ".nextLong( in )";
+            case FLOAT:
+                return "(float) " + SUPPORT + ".nextDouble( in )";
+            case DOUBLE:
+                return SUPPORT + ".nextDouble( in )";
+            case CHAR:
+                return SUPPORT + ".nextChar( in )";
+            default:
+                return null;
+        }
+    }
+
+    private String readBoxed( final BoundProperty.Kind kind )
+    {
+        switch ( kind )
+        {
+            case BOXED_BOOLEAN:
+                return "Boolean.valueOf( " + readPrimitive( BoundProperty.Kind.BOOLEAN ) + " )";
+            case BOXED_BYTE:
+                return "Byte.valueOf( " + readPrimitive( BoundProperty.Kind.BYTE ) + " )";
+            case BOXED_SHORT:
+                return "Short.valueOf( " + readPrimitive( BoundProperty.Kind.SHORT ) + " )";
+            case BOXED_INT:
+                return "Integer.valueOf( " + readPrimitive( BoundProperty.Kind.INT ) + " )";
+            case BOXED_LONG:
+                return "Long.valueOf( " + readPrimitive( BoundProperty.Kind.LONG ) + " )";
+            case BOXED_FLOAT:
+                return "Float.valueOf( " + readPrimitive( BoundProperty.Kind.FLOAT ) + " )";
+            case BOXED_DOUBLE:
+                return "Double.valueOf( " + readPrimitive( BoundProperty.Kind.DOUBLE ) + " )";
+            case BOXED_CHAR:
+                return "Character.valueOf( " + readPrimitive( BoundProperty.Kind.CHAR ) + " )";
+            default:
+                return null;
+        }
+    }
+
+    private static String escape( final String value )
+    {
+        return value.replace( "\\", "\\\\" )
+                    .replace( "\"", "\\\"" );
+    }
+
+    private void open()
+    {
+        line( "{" );
+        indent++;
+    }
+
+    private void close()
+    {
+        indent--;
+        line( "}" );
+    }
+
+    private void line( final String line )
+    {
+        if ( line.length() > 0 )
+        {
+            for ( int i = 0; i < indent; i++ )
+            {
+                sb.append( "    " );
+            }
+            sb.append( line );
+        }
+        sb.append( '\n' );
+    }
+
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.apt;
+
+/**
+ * One serialized property of a model class: its JSON name, how to read and assign it in generated code, and how its
+ * type is handled.
+ */
+final class BoundProperty
+{
+
+    enum Kind
+    {
+        BOOLEAN, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE, CHAR, BOXED_BOOLEAN, BOXED_BYTE, BOXED_SHORT, BOXED_INT,
+        BOXED_LONG, BOXED_FLOAT, BOXED_DOUBLE, BOXED_CHAR, STRING, OBJECT, DELEGATE;
+    }
+
+    private final String jsonName;
+
+    private final String getter;
+
+    private final String setter;
+
+    private final boolean directField;
+
+    private final Kind kind;
+
+    private final String typeName;
+
+    private final String erasedTypeName;
+
+    BoundProperty( final String jsonName, final String getter, final String setter, final boolean directField,
+                   final Kind kind, final String typeName, final String erasedTypeName )
+    {
+        this.jsonName = jsonName;
+        this.getter = getter;
+        this.setter = setter;
+        this.directField = directField;
+        this.kind = kind;
+        this.typeName = typeName;
+        this.erasedTypeName = erasedTypeName;
+    }
+
+    String getJsonName()
+    {
+        return jsonName;
+    }
+
+    Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Full source-level type name, including type arguments.
+     */
+    String getTypeName()
+    {
+        return typeName;
+    }
+
+    String getErasedTypeName()
+    {
+        return erasedTypeName;
+    }
+
+    /**
+     * @return expression reading the property from the variable named <code>var</code>
+     */
+    String read( final String var )
+    {
+        return directField ? var + "." + getter : var + "." + getter + "()";
+    }
+
+    /**
+     * @return statement assigning <code>expr</code> to the property of the variable named <code>var</code>
+     */
+    String assign( final String var, final String expr )
+    {
+        return directField ? var + "." + setter + " = " + expr + ";" : var + "." + setter + "( " + expr + " );";
+    }
+
+}
@@ -0,0 +1,547 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.apt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.commonjava.web.json.apt.BoundProperty.Kind;
+
+/**
+ * Generates a <code>&lt;Name&gt;JsonAdapter</code> for each class annotated with
+ * <code>org.commonjava.web.json.ser.GenerateJsonAdapter</code>, and lists the generated adapters in
+ * <code>META-INF/services/org.commonjava.web.json.ser.WebSerializationAdapter</code> so JsonSerializer registers
+ * them automatically.
+ * <p>
+ * Generated adapters read and write fields (or getters/setters) directly and handle primitives, their wrappers and
+ * strings without boxing or reflection. All other field types go to the Gson adapter for their declared type.
+ * <p>
+ * Property names and the set of properties are fixed at compile time, as Gson's defaults would have them: field
+ * names, or <code>@SerializedName</code>, with static and transient fields left out. A FieldNamingPolicy or
+ * ExclusionStrategy set on the GsonBuilder is not applied to generated adapters. Fields carrying <code>@Expose</code>,
+ * <code>@Since</code> or <code>@Until</code>, which only mean something under such builder settings, are rejected.
+ */
+@SupportedAnnotationTypes( JsonAdapterProcessor.ANNOTATION )
+public class JsonAdapterProcessor
+    extends AbstractProcessor
+{
+
+    static final String ANNOTATION = "org.commonjava.web.json.ser.GenerateJsonAdapter";
+
+    static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+
+    static final String[] UNSUPPORTED_ANNOTATIONS = { "com.google.gson.annotations.Expose",
+        "com.google.gson.annotations.Since", "com.google.gson.annotations.Until" };
+
+    static final String SERVICE_FILE = "META-INF/services/org.commonjava.web.json.ser.WebSerializationAdapter";
+
+    static final String ADAPTER_SUFFIX = "JsonAdapter";
+
+    private final Set<String> generated = new TreeSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process( final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv )
+    {
+        if ( roundEnv.processingOver() )
+        {
+            writeServiceFile();
+            return false;
+        }
+
+        final TypeElement annotation = processingEnv.getElementUtils()
+                                                    .getTypeElement( ANNOTATION );
+        if ( annotation == null )
+        {
+            return false;
+        }
+
+        for ( final Element element : roundEnv.getElementsAnnotatedWith( annotation ) )
+        {
+            if ( element.getKind() != ElementKind.CLASS )
+            {
+                error( element, "@GenerateJsonAdapter is only supported on classes." );
+                continue;
+            }
+
+            final TypeElement type = (TypeElement) element;
+            if ( !checkType( type ) )
+            {
+                continue;
+            }
+
+            final List<BoundProperty> properties = bindProperties( type );
+            if ( properties == null )
+            {
+                continue;
+            }
+
+            try
+            {
+                generate( type, properties );
+            }
+            catch ( final IOException e )
+            {
+                error( type, "Failed to write JSON adapter: " + e.getMessage() );
+            }
+        }
+
+        return true;
+    }
+
+    private boolean checkType( final TypeElement type )
+    {
+        final Set<Modifier> mods = type.getModifiers();
+        if ( mods.contains( Modifier.ABSTRACT ) || mods.contains( Modifier.PRIVATE ) )
+        {
+            error( type, "@GenerateJsonAdapter classes must be concrete and non-private." );
+            return false;
+        }
+
+        if ( type.getNestingKind() == NestingKind.MEMBER && !mods.contains( Modifier.STATIC ) )
+        {
+            error( type, "@GenerateJsonAdapter inner classes must be static." );
+            return false;
+        }
+
+        if ( type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS )
+        {
+            error( type, "@GenerateJsonAdapter is not supported on local or anonymous classes." );
+            return false;
+        }
+
+        if ( !type.getTypeParameters()
+                  .isEmpty() )
+        {
+            error( type, "@GenerateJsonAdapter is not supported on generic classes." );
+            return false;
+        }
+
+        final PackageElement pkg = processingEnv.getElementUtils()
+                                                .getPackageOf( type );
+
+        boolean hasConstructor = false;
+        for ( final ExecutableElement ctor : ElementFilter.constructorsIn( type.getEnclosedElements() ) )
+        {
+            if ( ctor.getParameters()
+                     .isEmpty() && isAccessible( ctor, pkg ) )
+            {
+                hasConstructor = true;
+                break;
+            }
+        }
+
+        if ( !hasConstructor )
+        {
+            error( type, "@GenerateJsonAdapter classes need a non-private no-arg constructor." );
+        }
+
+        return hasConstructor;
+    }
+
+    /**
+     * Collect the serialized properties in the same order Gson's reflective adapter uses: declared fields of the
+     * class, then those of each superclass.
+     *
+     * @return null if any field can't be bound (errors have been reported).
+     */
+    private List<BoundProperty> bindProperties( final TypeElement type )
+    {
+        final Elements elements = processingEnv.getElementUtils();
+        final Types types = processingEnv.getTypeUtils();
+
+        final DeclaredType declared = (DeclaredType) type.asType();
+        final PackageElement pkg = elements.getPackageOf( type );
+        final List<ExecutableElement> methods = ElementFilter.methodsIn( elements.getAllMembers( type ) );
+
+        final List<BoundProperty> properties = new ArrayList<BoundProperty>();
+        final Set<String> names = new HashSet<String>();
+        boolean ok = true;
+
+        TypeElement current = type;
+        while ( current != null && !current.getQualifiedName()
+                                           .toString()
+                                           .startsWith( "java." ) )
+        {
+            for ( final VariableElement field : ElementFilter.fieldsIn( current.getEnclosedElements() ) )
+            {
+                final Set<Modifier> mods = field.getModifiers();
+                if ( mods.contains( Modifier.STATIC ) || mods.contains( Modifier.TRANSIENT ) )
+                {
+                    continue;
+                }
+
+                final String fieldName = field.getSimpleName()
+                                              .toString();
+
+                final String unsupported = getUnsupportedAnnotation( field );
+                if ( unsupported != null )
+                {
+                    error( field, "@" + unsupported + " on field '" + fieldName
+                        + "' is not supported by generated JSON adapters. Remove it, or remove @GenerateJsonAdapter to use Gson's reflective adapter." );
+                    ok = false;
+                    continue;
+                }
+
+                String jsonName = getSerializedName( field );
+                if ( jsonName == null )
+                {
+                    jsonName = fieldName;
+                }
+
+                if ( !names.add( jsonName ) )
+                {
+                    error( field, type.getQualifiedName() + " declares multiple JSON fields named " + jsonName );
+                    ok = false;
+                    continue;
+                }
+
+                TypeMirror fieldType = types.asMemberOf( declared, field );
+                if ( fieldType.getKind() == TypeKind.TYPEVAR )
+                {
+                    fieldType = types.erasure( fieldType );
+                }
+
+                final Kind kind = getKind( fieldType );
+                final String typeName = fieldType.toString();
+                final String erasedTypeName = types.erasure( fieldType )
+                                                   .toString();
+
+                if ( !mods.contains( Modifier.FINAL ) && isAccessible( field, pkg ) )
+                {
+                    properties.add( new BoundProperty( jsonName, fieldName, fieldName, true, kind, typeName,
+                                                       erasedTypeName ) );
+                    continue;
+                }
+
+                final String cap = Character.toUpperCase( fieldName.charAt( 0 ) ) + fieldName.substring( 1 );
+                String getter = findMethod( methods, pkg, "get" + cap, 0 );
+                if ( getter == null && ( kind == Kind.BOOLEAN || kind == Kind.BOXED_BOOLEAN ) )
+                {
+                    getter = findMethod( methods, pkg, "is" + cap, 0 );
+                }
+                final String setter = findMethod( methods, pkg, "set" + cap, 1 );
+
+                if ( getter == null || setter == null )
+                {
+                    error( field, "Field '" + fieldName
+                        + "' is not accessible to the generated JSON adapter. Make it non-private and non-final, or add getter and setter methods." );
+                    ok = false;
+                    continue;
+                }
+
+                properties.add( new BoundProperty( jsonName, getter, setter, false, kind, typeName, erasedTypeName ) );
+            }
+
+            final TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement( superclass ) : null;
+        }
+
+        return ok ? properties : null;
+    }
+
+    private Kind getKind( final TypeMirror type )
+    {
+        switch ( type.getKind() )
+        {
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case BYTE:
+                return Kind.BYTE;
+            case SHORT:
+                return Kind.SHORT;
+            case INT:
+                return Kind.INT;
+            case LONG:
+                return Kind.LONG;
+            case FLOAT:
+                return Kind.FLOAT;
+            case DOUBLE:
+                return Kind.DOUBLE;
+            case CHAR:
+                return Kind.CHAR;
+            case DECLARED:
+            {
+                final String name = ( (TypeElement) processingEnv.getTypeUtils()
+                                                                 .asElement( type ) ).getQualifiedName()
+                                                                                     .toString();
+                if ( "java.lang.String".equals( name ) )
+                {
+                    return Kind.STRING;
+                }
+                else if ( "java.lang.Object".equals( name ) )
+                {
+                    return Kind.OBJECT;
+                }
+                else if ( "java.lang.Boolean".equals( name ) )
+                {
+                    return Kind.BOXED_BOOLEAN;
+                }
+                else if ( "java.lang.Byte".equals( name ) )
+                {
+                    return Kind.BOXED_BYTE;
+                }
+                else if ( "java.lang.Short".equals( name ) )
+                {
+                    return Kind.BOXED_SHORT;
+                }
+                else if ( "java.lang.Integer".equals( name ) )
+                {
+                    return Kind.BOXED_INT;
+                }
+                else if ( "java.lang.Long".equals( name ) )
+                {
+                    return Kind.BOXED_LONG;
+                }
+                else if ( "java.lang.Float".equals( name ) )
+                {
+                    return Kind.BOXED_FLOAT;
+                }
+                else if ( "java.lang.Double".equals( name ) )
+                {
+                    return Kind.BOXED_DOUBLE;
+                }
+                else if ( "java.lang.Character".equals( name ) )
+                {
+                    return Kind.BOXED_CHAR;
+                }
+
+                return Kind.DELEGATE;
+            }
+            default:
+                return Kind.DELEGATE;
+        }
+    }
+
+    private String findMethod( final List<ExecutableElement> methods, final PackageElement pkg, final String name,
+                               final int params )
+    {
+        for ( final ExecutableElement method : methods )
+        {
+            if ( method.getSimpleName()
+                       .contentEquals( name ) && method.getParameters()
+                                                       .size() == params
+                && !method.getModifiers()
+                          .contains( Modifier.STATIC ) && isAccessible( method, pkg ) )
+            {
+                return name;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isAccessible( final Element element, final PackageElement pkg )
+    {
+        final Set<Modifier> mods = element.getModifiers();
+        if ( mods.contains( Modifier.PUBLIC ) )
+        {
+            return true;
+        }
+
+        return !mods.contains( Modifier.PRIVATE ) && processingEnv.getElementUtils()
+                                                                  .getPackageOf( element )
+                                                                  .equals( pkg );
+    }
+
+    /**
+     * @return the simple name of the first Gson annotation on the field that generated adapters can't honour, or null
+     */
+    private String getUnsupportedAnnotation( final VariableElement field )
+    {
+        for ( final AnnotationMirror mirror : field.getAnnotationMirrors() )
+        {
+            final TypeElement annoType = (TypeElement) mirror.getAnnotationType()
+                                                             .asElement();
+            for ( final String unsupported : UNSUPPORTED_ANNOTATIONS )
+            {
+                if ( annoType.getQualifiedName()
+                             .contentEquals( unsupported ) )
+                {
+                    return annoType.getSimpleName()
+                                   .toString();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private String getSerializedName( final VariableElement field )
+    {
+        for ( final AnnotationMirror mirror : field.getAnnotationMirrors() )
+        {
+            final TypeElement annoType = (TypeElement) mirror.getAnnotationType()
+                                                             .asElement();
+            if ( annoType.getQualifiedName()
+                         .contentEquals( SERIALIZED_NAME ) )
+            {
+                for ( final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues()
+                                                                                                            .entrySet() )
+                {
+                    if ( entry.getKey()
+                              .getSimpleName()
+                              .contentEquals( "value" ) )
+                    {
+                        return (String) entry.getValue()
+                                             .getValue();
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private void generate( final TypeElement type, final List<BoundProperty> properties )
+        throws IOException
+    {
+        final Elements elements = processingEnv.getElementUtils();
+        final String pkg = elements.getPackageOf( type )
+                                   .getQualifiedName()
+                                   .toString();
+
+        final String binaryName = elements.getBinaryName( type )
+                                          .toString();
+        final String simpleName =
+            ( pkg.length() > 0 ? binaryName.substring( pkg.length() + 1 ) : binaryName ).replace( '$', '_' )
+                + ADAPTER_SUFFIX;
+        final String adapterName = pkg.length() > 0 ? pkg + "." + simpleName : simpleName;
+
+        final String source =
+            new AdapterSourceWriter( pkg, simpleName, type.getQualifiedName()
+                                                          .toString(), properties ).write();
+
+        final JavaFileObject file = processingEnv.getFiler()
+                                                 .createSourceFile( adapterName, type );
+        final Writer writer = file.openWriter();
+        try
+        {
+            writer.write( source );
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        generated.add( adapterName );
+    }
+
+    /**
+     * Write the service file listing all adapters generated in this compilation, merged with any entries left in
+     * the output directory by a previous (incremental) compilation.
+     */
+    private void writeServiceFile()
+    {
+        if ( generated.isEmpty() )
+        {
+            return;
+        }
+
+        final Set<String> entries = new TreeSet<String>( generated );
+        try
+        {
+            final FileObject existing = processingEnv.getFiler()
+                                                     .getResource( StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE );
+            final Reader reader = existing.openReader( true );
+            try
+            {
+                final BufferedReader br = new BufferedReader( reader );
+                String line;
+                while ( ( line = br.readLine() ) != null )
+                {
+                    line = line.trim();
+                    if ( line.length() > 0 && !line.startsWith( "#" ) )
+                    {
+                        entries.add( line );
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch ( final IOException e )
+        {
+            // no previous service file.
+        }
+
+        try
+        {
+            final FileObject file = processingEnv.getFiler()
+                                                 .createResource( StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE );
+            final Writer writer = file.openWriter();
+            try
+            {
+                for ( final String entry : entries )
+                {
+                    writer.write( entry );
+                    writer.write( "\n" );
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch ( final IOException e )
+        {
+            processingEnv.getMessager()
+                         .printMessage( Diagnostic.Kind.ERROR, "Failed to write " + SERVICE_FILE + ": " + e.getMessage() );
+        }
+    }
+
+    private void error( final Element element, final String message )
+    {
+        processingEnv.getMessager()
+                     .printMessage( Diagnostic.Kind.ERROR, message, element );
+    }
+
+}
@@ -0,0 +1,393 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.apt;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.web.json.ser.GenerateJsonAdapter;
+import org.commonjava.web.json.ser.JsonSerializer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+/**
+ * Compiles the fixtures under <code>src/test/resources/.../apt/fixture</code> with the processor, then checks that
+ * the generated adapters read and write exactly what Gson's reflective adapter does.
+ */
+public class JsonAdapterProcessorTest
+{
+
+    private static final String FIXTURE_PACKAGE = "org.commonjava.web.json.apt.fixture";
+
+    private static File outputDir;
+
+    private static FixtureClassLoader loader;
+
+    @BeforeClass
+    public static void compileFixtures()
+        throws Exception
+    {
+        outputDir = createTempDir();
+
+        final Compilation compilation =
+            compile( outputDir, "Scalars", "Containers", "Base", "Child", "Money", "Priced", "Animal", "Dog", "Pen" );
+        assertThat( compilation.getMessages(), compilation.isSuccess(), equalTo( true ) );
+
+        loader = new FixtureClassLoader( outputDir );
+    }
+
+    @AfterClass
+    public static void cleanup()
+        throws IOException
+    {
+        if ( outputDir != null )
+        {
+            FileUtils.deleteDirectory( outputDir );
+        }
+    }
+
+    @Test
+    public void scalarsMatchGson()
+        throws Exception
+    {
+        assertMatchesGson( "Scalars",
+                           "{\"flag\":true,\"b\":1,\"s\":2,\"i\":3,\"l\":4000000000,\"f\":1.5,\"d\":2.25,\"c\":\"x\","
+                               + "\"boxedFlag\":false,\"boxedByte\":5,\"boxedShort\":6,\"boxedInt\":7,\"boxedLong\":8,"
+                               + "\"boxedFloat\":0.1,\"boxedDouble\":0.2,\"boxedChar\":\"y\",\"name\":\"n\","
+                               + "\"any\":{\"k\":[1,\"two\",null]},\"renamed\":\"r\",\"hidden\":\"h\",\"unknown\":[1,2]}" );
+    }
+
+    @Test
+    public void nullsMatchGson()
+        throws Exception
+    {
+        assertMatchesGson( "Scalars",
+                           "{\"flag\":null,\"i\":null,\"c\":null,\"boxedInt\":null,\"boxedChar\":null,\"name\":null,"
+                               + "\"any\":null,\"renamed\":null,\"hidden\":null}" );
+        assertMatchesGson( "Scalars", "{}" );
+        assertMatchesGson( "Containers", "{\"single\":null,\"list\":[null],\"map\":{\"a\":null},\"array\":null}" );
+    }
+
+    @Test
+    public void nestedAndGenericFieldsMatchGson()
+        throws Exception
+    {
+        assertMatchesGson( "Containers",
+                           "{\"single\":{\"i\":1,\"name\":\"one\"},\"list\":[{\"i\":2},null,{\"name\":\"three\"}],"
+                               + "\"map\":{\"a\":[1,2],\"b\":[]},\"ints\":[1,2,3],\"array\":[{\"l\":4}],"
+                               + "\"child\":{\"baseName\":\"bn\",\"value\":\"v\",\"values\":[\"a\",\"b\"],\"childName\":\"cn\"}}" );
+    }
+
+    @Test
+    public void inheritedFieldsMatchGson()
+        throws Exception
+    {
+        assertMatchesGson( "Child",
+                           "{\"childName\":\"cn\",\"baseName\":\"bn\",\"value\":\"v\",\"values\":[\"a\",null]}" );
+    }
+
+    @Test
+    public void transientAndStaticFieldsAreSkippedLikeGson()
+        throws Exception
+    {
+        final String json = "{\"childName\":\"cn\",\"skipped\":\"in\",\"baseSkipped\":\"in\",\"shared\":\"in\"}";
+        final Class<?> type = loader.loadClass( FIXTURE_PACKAGE + ".Child" );
+
+        final Object child = fromJson( json, type, true );
+        assertThat( get( child, "skipped" ), equalTo( null ) );
+        assertThat( get( child, "baseSkipped" ), equalTo( null ) );
+        assertThat( get( null, type, "shared" ), equalTo( (Object) "static" ) );
+
+        set( child, type, "skipped", "out" );
+        set( child, type.getSuperclass(), "baseSkipped", "out" );
+        assertThat( toJson( child, true ), equalTo( toJson( child, false ) ) );
+        assertThat( toJson( child, true ), equalTo( "{\"childName\":\"cn\"}" ) );
+    }
+
+    @Test
+    public void jsonAdaptersBoundFieldsMatchGson()
+        throws Exception
+    {
+        assertMatchesGson( "Priced",
+                           "{\"item\":\"book\",\"price\":\"12.50 EUR\",\"history\":[\"10.00 EUR\",null,\"11.00 EUR\"]}" );
+    }
+
+    @Test
+    public void subclassValuesAreWrittenWithTheirRuntimeTypeLikeGson()
+        throws Exception
+    {
+        final Class<?> type = loader.loadClass( FIXTURE_PACKAGE + ".Pen" );
+        final Class<?> animalType = loader.loadClass( FIXTURE_PACKAGE + ".Animal" );
+        final Class<?> dogType = loader.loadClass( FIXTURE_PACKAGE + ".Dog" );
+
+        final Object dog = dogType.newInstance();
+        set( dog, animalType, "name", "rex" );
+        set( dog, dogType, "breed", "collie" );
+
+        final Object animal = animalType.newInstance();
+        set( animal, animalType, "name", "generic" );
+
+        final Object pen = type.newInstance();
+        set( pen, type, "animal", dog );
+        set( pen, type, "other", animal );
+
+        final String expected = toJson( pen, false );
+        assertThat( expected, equalTo( "{\"animal\":{\"breed\":\"collie\",\"name\":\"rex\"},"
+            + "\"other\":{\"name\":\"generic\"}}" ) );
+        assertThat( toJson( pen, true ), equalTo( expected ) );
+
+        final String adapter = type.getName() + JsonAdapterProcessor.ADAPTER_SUFFIX + "$Adapter";
+        assertThat( adapter + " was used", loader.isLoaded( adapter ), equalTo( true ) );
+    }
+
+    @Test
+    public void rejectGsonAnnotationsThatNeedBuilderSettings()
+        throws Exception
+    {
+        final File dir = createTempDir();
+        try
+        {
+            final Compilation compilation = compile( dir, "Exposed" );
+            assertThat( compilation.isSuccess(), equalTo( false ) );
+            assertThat( compilation.getMessages(), compilation.getMessages()
+                                                              .contains( "@Expose on field 'visible'" ), equalTo( true ) );
+            assertThat( compilation.getMessages(), compilation.getMessages()
+                                                              .contains( "@Since on field 'added'" ), equalTo( true ) );
+        }
+        finally
+        {
+            FileUtils.deleteDirectory( dir );
+        }
+    }
+
+    /**
+     * Read the JSON with both Gson's reflective adapter and the generated one, and check both results serialize the
+     * same way through each.
+     */
+    private void assertMatchesGson( final String fixture, final String json )
+        throws Exception
+    {
+        final Class<?> type = loader.loadClass( FIXTURE_PACKAGE + "." + fixture );
+
+        final Object reflective = fromJson( json, type, false );
+        final String expected = toJson( reflective, false );
+
+        assertThat( "write", toJson( reflective, true ), equalTo( expected ) );
+        assertThat( "read", toJson( fromJson( json, type, true ), false ), equalTo( expected ) );
+
+        final String adapter = type.getName() + JsonAdapterProcessor.ADAPTER_SUFFIX + "$Adapter";
+        assertThat( adapter + " was used", loader.isLoaded( adapter ), equalTo( true ) );
+    }
+
+    private static String toJson( final Object value, final boolean generated )
+    {
+        final ClassLoader previous = useAdapters( generated );
+        try
+        {
+            return new JsonSerializer().toString( value );
+        }
+        finally
+        {
+            Thread.currentThread()
+                  .setContextClassLoader( previous );
+        }
+    }
+
+    private static Object fromJson( final String json, final Class<?> type, final boolean generated )
+    {
+        final ClassLoader previous = useAdapters( generated );
+        try
+        {
+            return new JsonSerializer().fromString( json, type );
+        }
+        finally
+        {
+            Thread.currentThread()
+                  .setContextClassLoader( previous );
+        }
+    }
+
+    /**
+     * JsonSerializer finds generated adapters through <code>META-INF/services</code> on the context class loader, so
+     * only the fixture loader sees them.
+     *
+     * @return the previous context class loader
+     */
+    private static ClassLoader useAdapters( final boolean generated )
+    {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader( generated ? loader : JsonAdapterProcessorTest.class.getClassLoader() );
+
+        return previous;
+    }
+
+    private static Object get( final Object target, final String name )
+        throws Exception
+    {
+        final Class<?> type = target.getClass();
+        try
+        {
+            return get( target, type, name );
+        }
+        catch ( final NoSuchFieldException e )
+        {
+            return get( target, type.getSuperclass(), name );
+        }
+    }
+
+    private static Object get( final Object target, final Class<?> type, final String name )
+        throws Exception
+    {
+        final Field field = type.getDeclaredField( name );
+        field.setAccessible( true );
+        return field.get( target );
+    }
+
+    private static void set( final Object target, final Class<?> type, final String name, final Object value )
+        throws Exception
+    {
+        final Field field = type.getDeclaredField( name );
+        field.setAccessible( true );
+        field.set( target, value );
+    }
+
+    private static Compilation compile( final File outputDir, final String... fixtures )
+        throws Exception
+    {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        final StandardJavaFileManager files =
+            compiler.getStandardFileManager( diagnostics, null, Charset.forName( "UTF-8" ) );
+        try
+        {
+            files.setLocation( StandardLocation.CLASS_OUTPUT, Collections.singleton( outputDir ) );
+            files.setLocation( StandardLocation.SOURCE_OUTPUT, Collections.singleton( outputDir ) );
+            files.setLocation( StandardLocation.CLASS_PATH,
+                               Arrays.asList( locationOf( Gson.class ), locationOf( GenerateJsonAdapter.class ) ) );
+
+            final List<File> sources = new ArrayList<File>();
+            for ( final String fixture : fixtures )
+            {
+                sources.add( new File( JsonAdapterProcessorTest.class.getResource( "fixture/" + fixture + ".java" )
+                                                                      .toURI() ) );
+            }
+
+            final CompilationTask task =
+                compiler.getTask( null, files, diagnostics, null, null, files.getJavaFileObjectsFromFiles( sources ) );
+            task.setProcessors( Collections.singleton( new JsonAdapterProcessor() ) );
+
+            return new Compilation( task.call(), diagnostics.getDiagnostics() );
+        }
+        finally
+        {
+            files.close();
+        }
+    }
+
+    private static File locationOf( final Class<?> cls )
+        throws Exception
+    {
+        return new File( cls.getProtectionDomain()
+                            .getCodeSource()
+                            .getLocation()
+                            .toURI() );
+    }
+
+    private static File createTempDir()
+        throws IOException
+    {
+        final File dir = File.createTempFile( "json-apt-", ".d" );
+        if ( !dir.delete() || !dir.mkdirs() )
+        {
+            throw new IOException( "Cannot create temp directory: " + dir );
+        }
+
+        return dir;
+    }
+
+    private static final class Compilation
+    {
+        private final boolean success;
+
+        private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+        Compilation( final boolean success, final List<Diagnostic<? extends JavaFileObject>> diagnostics )
+        {
+            this.success = success;
+            this.diagnostics = diagnostics;
+        }
+
+        boolean isSuccess()
+        {
+            return success;
+        }
+
+        String getMessages()
+        {
+            final StringBuilder sb = new StringBuilder();
+            for ( final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics )
+            {
+                sb.append( diagnostic.getKind() )
+                  .append( ": " )
+                  .append( diagnostic.getMessage( null ) )
+                  .append( '\n' );
+            }
+
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Loads the compiled fixtures and their generated adapters, and tells whether an adapter class was ever loaded.
+     */
+    private static final class FixtureClassLoader
+        extends URLClassLoader
+    {
+        FixtureClassLoader( final File dir )
+            throws MalformedURLException
+        {
+            super( new URL[] { dir.toURI()
+                                  .toURL() }, JsonAdapterProcessorTest.class.getClassLoader() );
+        }
+
+        boolean isLoaded( final String name )
+        {
+            return findLoadedClass( name ) != null;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.apt.fixture;
+
+import java.util.List;
+import java.util.Map;
+
+import org.commonjava.web.json.ser.GenerateJsonAdapter;
+
+@GenerateJsonAdapter
+public class Containers
+{
+
+    Scalars single;
+
+    List<Scalars> list;
+
+    Map<String, List<Integer>> map;
+
+    int[] ints;
+
+    Scalars[] array;
+
+    Child child;
+
+}
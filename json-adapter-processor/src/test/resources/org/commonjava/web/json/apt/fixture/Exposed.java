@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.apt.fixture;
+
+import org.commonjava.web.json.ser.GenerateJsonAdapter;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.Since;
+
+@GenerateJsonAdapter
+public class Exposed
+{
+
+    @Expose
+    String visible;
+
+    @Since( 1.1 )
+    String added;
+
+    String plain;
+
+}
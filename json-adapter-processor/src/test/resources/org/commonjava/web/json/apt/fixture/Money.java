@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.apt.fixture;
+
+import java.lang.reflect.Type;
+
+import org.commonjava.web.json.ser.JsonAdapters;
+import org.commonjava.web.json.ser.WebSerializationAdapter;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+
+/**
+ * Written as "&lt;amount&gt; &lt;currency&gt;" by its {@link JsonAdapters} adapter, rather than as an object.
+ */
+@JsonAdapters( Money.Ser.class )
+public class Money
+{
+
+    String amount;
+
+    String currency;
+
+    public static final class Ser
+        implements WebSerializationAdapter, JsonSerializer<Money>, JsonDeserializer<Money>
+    {
+
+        @Override
+        public JsonElement serialize( final Money src, final Type typeOfSrc, final JsonSerializationContext context )
+        {
+            return new JsonPrimitive( src.amount + " " + src.currency );
+        }
+
+        @Override
+        public Money deserialize( final JsonElement json, final Type typeOfT, final JsonDeserializationContext context )
+            throws JsonParseException
+        {
+            final String[] parts = json.getAsString()
+                                       .split( " " );
+
+            final Money money = new Money();
+            money.amount = parts[0];
+            money.currency = parts[1];
+            return money;
+        }
+
+        @Override
+        public void register( final GsonBuilder gsonBuilder )
+        {
+            gsonBuilder.registerTypeAdapter( Money.class, this );
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.apt.fixture;
+
+import org.commonjava.web.json.ser.GenerateJsonAdapter;
+
+import com.google.gson.annotations.SerializedName;
+
+@GenerateJsonAdapter
+public class Scalars
+{
+
+    boolean flag;
+
+    byte b;
+
+    short s;
+
+    int i;
+
+    long l;
+
+    float f;
+
+    double d;
+
+    char c;
+
+    Boolean boxedFlag;
+
+    Byte boxedByte;
+
+    Short boxedShort;
+
+    Integer boxedInt;
+
+    Long boxedLong;
+
+    Float boxedFloat;
+
+    Double boxedDouble;
+
+    Character boxedChar;
+
+    String name;
+
+    Object any;
+
+    @SerializedName( "renamed" )
+    String original;
+
+    private String hidden;
+
+    public String getHidden()
+    {
+        return hidden;
+    }
+
+    public void setHidden( final String hidden )
+    {
+        this.hidden = hidden;
+    }
+
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmarks jar. Accepts the standard JMH command-line options, and always adds the GC profiler
+ * so allocation rate is reported next to throughput.
+ */
+public final class BenchmarkMain
+{
+
+    private BenchmarkMain()
+    {
+    }
+
+    public static void main( final String[] args )
+        throws Exception
+    {
+        final CommandLineOptions cmdOptions = new CommandLineOptions( args );
+        if ( cmdOptions.shouldHelp() || cmdOptions.shouldList() || cmdOptions.shouldListProfilers() )
+        {
+            org.openjdk.jmh.Main.main( args );
+            return;
+        }
+
+        final Options options = new OptionsBuilder().parent( cmdOptions )
+                                                    .addProfiler( GCProfiler.class )
+                                                    .build();
+
+        new Runner( options ).run();
+    }
+
+}
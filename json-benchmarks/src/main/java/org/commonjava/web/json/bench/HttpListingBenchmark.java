@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.commonjava.web.json.bench.fixture.BenchData;
+import org.commonjava.web.json.model.Listing;
+import org.commonjava.web.json.test.JsonStubServer;
+import org.commonjava.web.json.test.StubResponse;
+import org.commonjava.web.json.test.WebFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * End-to-end {@link Listing} reads through {@link WebFixture} over HTTP, against an in-process
+ * {@link JsonStubServer}. <code>delivery</code> picks a fixed-length, chunked or gzipped response.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class HttpListingBenchmark
+{
+
+    private static final TypeToken<Listing<BenchData>> LISTING_TOKEN = new TypeToken<Listing<BenchData>>()
+    {
+    };
+
+    private static final String PATH = "/listing";
+
+    @Param( { "10", "1000", "100000" } )
+    public int listingLength;
+
+    @Param( { "64" } )
+    public int payloadSize;
+
+    @Param( { "plain", "chunked", "gzip" } )
+    public String delivery;
+
+    @Param( { "0" } )
+    public long latencyMillis;
+
+    private JsonStubServer server;
+
+    private WebFixture fixture;
+
+    private String url;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        final List<BenchData> items = new ArrayList<BenchData>( listingLength );
+        for ( int i = 0; i < listingLength; i++ )
+        {
+            items.add( new BenchData( i, payloadSize ) );
+        }
+
+        server = new JsonStubServer();
+        server.setLatencyMillis( latencyMillis );
+        // measure the client and serializer, not delayed-ACK stalls on small responses.
+        server.setNoDelay( true );
+
+        final StubResponse response = server.stubListing( PATH, items, LISTING_TOKEN );
+        response.setChunked( "chunked".equals( delivery ) );
+        response.setCompressed( "gzip".equals( delivery ) );
+
+        server.start();
+
+        fixture = new WebFixture();
+        server.configure( fixture );
+        fixture.start();
+
+        url = server.url( PATH );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        fixture.stop();
+        server.stop();
+    }
+
+    @Benchmark
+    public Listing<BenchData> getListing()
+        throws Exception
+    {
+        return fixture.getListing( url, LISTING_TOKEN );
+    }
+
+    @Benchmark
+    public int countListing()
+        throws Exception
+    {
+        return fixture.countListing( url, LISTING_TOKEN );
+    }
+
+    @Benchmark
+    public List<BenchData> getListingHead()
+        throws Exception
+    {
+        return fixture.getListingHead( url, LISTING_TOKEN, 10 );
+    }
+
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.commonjava.web.json.bench.fixture.BenchData;
+import org.commonjava.web.json.model.Listing;
+import org.commonjava.web.json.ser.JsonSerializer;
+import org.commonjava.web.json.ser.ListingIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * {@link Listing} (de)serialization, parameterized by the number of items in the listing. The <code>*Binary*</code>
+ * benchmarks compare the binary wire format against the JSON text ones; encoded sizes of both are printed at setup.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ListingBenchmark
+{
+
+    private static final TypeToken<Listing<BenchData>> LISTING_TOKEN = new TypeToken<Listing<BenchData>>()
+    {
+    };
+
+    private static final Type LISTING_TYPE = LISTING_TOKEN.getType();
+
+    @Param( { "10", "1000", "100000" } )
+    public int listingLength;
+
+    @Param( { "64" } )
+    public int payloadSize;
+
+    private JsonSerializer serializer;
+
+    private Listing<BenchData> listing;
+
+    private String json;
+
+    private byte[] jsonBytes;
+
+    private byte[] binaryBytes;
+
+    private ByteArrayOutputStream out;
+
+    private int parallelism;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        serializer = new JsonSerializer();
+
+        final List<BenchData> items = new ArrayList<BenchData>( listingLength );
+        for ( int i = 0; i < listingLength; i++ )
+        {
+            items.add( new BenchData( i, payloadSize ) );
+        }
+
+        listing = new Listing<BenchData>( items );
+        json = serializer.toString( listing, LISTING_TYPE );
+        jsonBytes = json.getBytes( "UTF-8" );
+
+        out = new ByteArrayOutputStream( jsonBytes.length );
+        serializer.toBinaryStream( listing, LISTING_TYPE, out );
+        binaryBytes = out.toByteArray();
+        System.out.printf( "%nListing of %d: JSON %d bytes, binary %d bytes (%.1f%%)%n", listingLength,
+                           jsonBytes.length, binaryBytes.length, 100.0 * binaryBytes.length / jsonBytes.length );
+
+        parallelism = Runtime.getRuntime()
+                             .availableProcessors();
+        executor = Executors.newFixedThreadPool( parallelism );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public String listingToString()
+    {
+        return serializer.toString( listing, LISTING_TYPE );
+    }
+
+    @Benchmark
+    public int listingToStream()
+    {
+        out.reset();
+        serializer.toStream( listing, LISTING_TYPE, out, null );
+        return out.size();
+    }
+
+    @Benchmark
+    public int listingToBinaryStream()
+    {
+        out.reset();
+        serializer.toBinaryStream( listing, LISTING_TYPE, out );
+        return out.size();
+    }
+
+    @Benchmark
+    public Listing<BenchData> listingFromString()
+    {
+        return serializer.listingFromString( json, LISTING_TOKEN );
+    }
+
+    @Benchmark
+    public Listing<BenchData> parallelListingFromString()
+    {
+        return serializer.parallelListingFromString( json, LISTING_TOKEN, executor, parallelism );
+    }
+
+    @Benchmark
+    public Listing<BenchData> listingFromStream()
+    {
+        return serializer.listingFromStream( new ByteArrayInputStream( jsonBytes ), "UTF-8", LISTING_TOKEN );
+    }
+
+    @Benchmark
+    public Listing<BenchData> listingFromBinaryStream()
+    {
+        return serializer.listingFromBinaryStream( new ByteArrayInputStream( binaryBytes ), LISTING_TOKEN );
+    }
+
+    @Benchmark
+    public void listingIterator( final Blackhole hole )
+        throws Exception
+    {
+        final ListingIterator<BenchData> it =
+            serializer.listingIterator( new ByteArrayInputStream( jsonBytes ), "UTF-8", LISTING_TOKEN );
+        try
+        {
+            while ( it.hasNext() )
+            {
+                hole.consume( it.next() );
+            }
+        }
+        finally
+        {
+            it.close();
+        }
+    }
+
+}
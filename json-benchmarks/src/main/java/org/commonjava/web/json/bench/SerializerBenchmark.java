@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.bench;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.commonjava.web.json.bench.fixture.AnnotatedBenchData;
+import org.commonjava.web.json.bench.fixture.BenchData;
+import org.commonjava.web.json.bench.fixture.GeneratedBenchData;
+import org.commonjava.web.json.ser.JsonSerializer;
+import org.commonjava.web.json.ser.LazyJsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-object (de)serialization, parameterized by the size of the largest string field in the payload.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SerializerBenchmark
+{
+
+    @Param( { "16", "1024", "65536" } )
+    public int payloadSize;
+
+    private JsonSerializer serializer;
+
+    private JsonSerializer decoderSerializer;
+
+    private BenchData data;
+
+    private String json;
+
+    private byte[] jsonBytes;
+
+    private GeneratedBenchData generated;
+
+    private AnnotatedBenchData annotated;
+
+    private String annotatedJson;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        serializer = new JsonSerializer();
+
+        decoderSerializer = new JsonSerializer();
+        decoderSerializer.setUtf8FastPath( false );
+
+        data = new BenchData( 1, payloadSize );
+        json = serializer.toString( data );
+        jsonBytes = json.getBytes( "UTF-8" );
+
+        generated = new GeneratedBenchData( 1, payloadSize );
+
+        annotated = new AnnotatedBenchData( "value", "inner value", data );
+        annotatedJson = serializer.toString( annotated );
+    }
+
+    @Benchmark
+    public String toStringPlain()
+    {
+        return serializer.toString( data );
+    }
+
+    @Benchmark
+    public BenchData fromStringPlain()
+    {
+        return serializer.fromString( json, BenchData.class );
+    }
+
+    @Benchmark
+    public BenchData fromStreamPlain()
+    {
+        return serializer.fromStream( new ByteArrayInputStream( jsonBytes ), "UTF-8", BenchData.class );
+    }
+
+    /**
+     * Baseline for {@link #fromStreamPlain()}: same input, decoded by the general-purpose charset decoder.
+     */
+    @Benchmark
+    public BenchData fromStreamDecoder()
+    {
+        return decoderSerializer.fromStream( new ByteArrayInputStream( jsonBytes ), "UTF-8", BenchData.class );
+    }
+
+    /**
+     * Partial read of two fields, for comparison with binding the whole document in {@link #fromStringPlain()}.
+     */
+    @Benchmark
+    public String lazyFieldsFromString()
+    {
+        final LazyJsonObject lazy = serializer.lazyFromString( json );
+        return lazy.getString( "id" ) + lazy.get( "active", Boolean.class );
+    }
+
+    @Benchmark
+    public String toStringGenerated()
+    {
+        return serializer.toString( generated );
+    }
+
+    @Benchmark
+    public GeneratedBenchData fromStringGenerated()
+    {
+        return serializer.fromString( json, GeneratedBenchData.class );
+    }
+
+    @Benchmark
+    public String toStringAnnotated()
+    {
+        return serializer.toString( annotated );
+    }
+
+    @Benchmark
+    public AnnotatedBenchData fromStringAnnotated()
+    {
+        return serializer.fromString( annotatedJson, AnnotatedBenchData.class );
+    }
+
+}
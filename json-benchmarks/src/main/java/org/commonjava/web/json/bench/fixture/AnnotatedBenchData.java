@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.bench.fixture;
+
+import java.lang.reflect.Type;
+
+import org.commonjava.web.json.ser.JsonAdapters;
+import org.commonjava.web.json.ser.WebSerializationAdapter;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+
+/**
+ * Mirrors the shape of the <code>AnnotatedTestData</code> test fixture: a type graph whose adapters come from
+ * {@link JsonAdapters} annotations, so registration cost shows up in the measurements.
+ */
+@JsonAdapters( AnnotatedBenchData.Ser.class )
+public class AnnotatedBenchData
+{
+
+    private final String value;
+
+    private final Inner inner;
+
+    private final BenchData data;
+
+    public AnnotatedBenchData( final String value, final String innerValue, final BenchData data )
+    {
+        this.value = value;
+        this.inner = new Inner( innerValue );
+        this.data = data;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+
+    public Inner getInner()
+    {
+        return inner;
+    }
+
+    public BenchData getData()
+    {
+        return data;
+    }
+
+    @JsonAdapters( InnerSer.class )
+    public static final class Inner
+    {
+        private final String innerValue;
+
+        public Inner( final String innerValue )
+        {
+            this.innerValue = innerValue;
+        }
+
+        public String getValue()
+        {
+            return innerValue;
+        }
+    }
+
+    public static final class Ser
+        implements WebSerializationAdapter, JsonSerializer<AnnotatedBenchData>, JsonDeserializer<AnnotatedBenchData>
+    {
+
+        @Override
+        public AnnotatedBenchData deserialize( final JsonElement json, final Type typeOfT,
+                                               final JsonDeserializationContext context )
+            throws JsonParseException
+        {
+            final JsonObject obj = json.getAsJsonObject();
+            final String val = obj.get( "foo" )
+                                  .getAsString();
+
+            final String val2 = obj.get( "bar" )
+                                   .getAsJsonObject()
+                                   .get( "baz" )
+                                   .getAsString();
+
+            final BenchData data = context.deserialize( obj.get( "data" ), BenchData.class );
+
+            return new AnnotatedBenchData( val, val2, data );
+        }
+
+        @Override
+        public JsonElement serialize( final AnnotatedBenchData src, final Type typeOfSrc,
+                                      final JsonSerializationContext context )
+        {
+            final JsonObject result = new JsonObject();
+            result.addProperty( "foo", src.getValue() );
+            result.add( "bar", context.serialize( src.getInner() ) );
+            result.add( "data", context.serialize( src.getData() ) );
+            return result;
+        }
+
+        @Override
+        public void register( final GsonBuilder gsonBuilder )
+        {
+            gsonBuilder.registerTypeAdapter( AnnotatedBenchData.class, this );
+        }
+
+    }
+
+    public static final class InnerSer
+        implements WebSerializationAdapter, JsonSerializer<Inner>
+    {
+
+        @Override
+        public JsonElement serialize( final Inner src, final Type typeOfSrc, final JsonSerializationContext context )
+        {
+            final JsonObject result = new JsonObject();
+            result.addProperty( "baz", src.getValue() );
+            return result;
+        }
+
+        @Override
+        public void register( final GsonBuilder gsonBuilder )
+        {
+            gsonBuilder.registerTypeAdapter( Inner.class, this );
+        }
+
+    }
+
+}
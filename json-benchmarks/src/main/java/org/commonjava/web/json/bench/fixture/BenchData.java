@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.bench.fixture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BenchData
+{
+    private String id;
+
+    private String email;
+
+    private String name;
+
+    private long created;
+
+    private boolean active;
+
+    private List<String> tags;
+
+    private String description;
+
+    public BenchData()
+    {
+    }
+
+    public BenchData( final int idx, final int descriptionSize )
+    {
+        this.id = "id-" + idx;
+        this.email = "user" + idx + "@nowhere.com";
+        this.name = "User Number " + idx;
+        this.created = 1400000000000L + idx;
+        this.active = idx % 2 == 0;
+        this.tags = new ArrayList<String>();
+        tags.add( "tag-a" );
+        tags.add( "tag-" + ( idx % 10 ) );
+
+        final StringBuilder sb = new StringBuilder( descriptionSize );
+        for ( int i = 0; i < descriptionSize; i++ )
+        {
+            sb.append( (char) ( 'a' + ( ( i + idx ) % 26 ) ) );
+        }
+        this.description = sb.toString();
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getEmail()
+    {
+        return email;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getCreated()
+    {
+        return created;
+    }
+
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    public List<String> getTags()
+    {
+        return tags;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+}
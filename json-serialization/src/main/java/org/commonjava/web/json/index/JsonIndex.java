@@ -0,0 +1,695 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Compact structural index of a JSON document, built in a single pass and held entirely in primitive arrays: one
+ * entry (node) per value, in document order, recording its type, its start/end offsets in the source, the offsets of
+ * its member name (for object members), a pointer to its next sibling and, for containers, the number of children.
+ * The first child of a non-empty container is always the node right after it. Nothing is decoded until asked for, and
+ * no Gson element tree is built.
+ * <p>
+ * Path queries ({@link JsonPath}) walk the node arrays, so repeated queries over the same document cost a walk
+ * of the path rather than a re-parse. Each step walks the siblings in its container, so a name or index step costs up
+ * to the container's child count, not a hash or array lookup. Only strict JSON is accepted. Instances are immutable
+ * and thread-safe.
+ */
+public final class JsonIndex
+{
+
+    public static final int ROOT = 0;
+
+    private static final JsonType[] TYPES = JsonType.values();
+
+    private final String src;
+
+    private final int size;
+
+    private final byte[] types;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private final int[] nameStarts;
+
+    private final int[] nameEnds;
+
+    private final int[] next;
+
+    private final int[] counts;
+
+    private JsonIndex( final Builder builder )
+    {
+        this.src = builder.src;
+        this.size = builder.size;
+        this.types = builder.types;
+        this.starts = builder.starts;
+        this.ends = builder.ends;
+        this.nameStarts = builder.nameStarts;
+        this.nameEnds = builder.nameEnds;
+        this.next = builder.next;
+        this.counts = builder.counts;
+    }
+
+    /**
+     * Index a JSON document.
+     *
+     * @throws JsonSyntaxException if the document isn't strict JSON
+     */
+    public static JsonIndex build( final String src )
+    {
+        final Builder builder = new Builder( src );
+        builder.build();
+        return new JsonIndex( builder );
+    }
+
+    public String getSource()
+    {
+        return src;
+    }
+
+    /**
+     * @return number of nodes (values) in the document
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public JsonType getType( final int node )
+    {
+        return TYPES[types[node]];
+    }
+
+    /**
+     * @return the undecoded JSON text of the node's value
+     */
+    public String getRaw( final int node )
+    {
+        return src.substring( starts[node], ends[node] );
+    }
+
+    /**
+     * @return the decoded value of a string node, the literal text of a number or boolean, null for a null node, or the
+     *         raw JSON of a container
+     */
+    public String getString( final int node )
+    {
+        switch ( getType( node ) )
+        {
+            case STRING:
+                return unescape( starts[node] + 1, ends[node] - 1 );
+            case NULL:
+                return null;
+            default:
+                return getRaw( node );
+        }
+    }
+
+    /**
+     * @return the member name of the node, or null if it isn't an object member
+     */
+    public String getName( final int node )
+    {
+        return nameStarts[node] < 0 ? null : unescape( nameStarts[node], nameEnds[node] );
+    }
+
+    /**
+     * @return the number of direct children of an object or array node (0 for scalars)
+     */
+    public int getChildCount( final int node )
+    {
+        return counts[node];
+    }
+
+    /**
+     * Walks all of the object's members (the last of any duplicates wins), so the cost grows with the member count.
+     *
+     * @return the node of the named member of an object node, or -1 if there is none
+     */
+    public int getMember( final int node, final String name )
+    {
+        if ( types[node] != JsonType.OBJECT.ordinal() )
+        {
+            return -1;
+        }
+
+        int found = -1;
+        for ( int child = firstChild( node ); child >= 0; child = next[child] )
+        {
+            if ( nameEquals( child, name ) )
+            {
+                // like Gson, the last of any duplicate names wins.
+                found = child;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Walks the elements before the one asked for, so the cost grows with the index; to visit every element, walk the
+     * siblings from {@link #find(String)} with a wildcard (<code>items[*]</code>) instead of calling this per index.
+     *
+     * @return the node of the element at the given position of an array node, or -1 if there is none
+     */
+    public int getElement( final int node, final int index )
+    {
+        if ( types[node] != JsonType.ARRAY.ordinal() || index < 0 || index >= counts[node] )
+        {
+            return -1;
+        }
+
+        int i = 0;
+        for ( int child = firstChild( node ); child >= 0; child = next[child] )
+        {
+            if ( i++ == index )
+            {
+                return child;
+            }
+        }
+
+        return -1;
+    }
+
+    public int[] find( final String path )
+    {
+        return find( JsonPath.compile( path ) );
+    }
+
+    /**
+     * @return the nodes matching the path, in document order
+     */
+    public int[] find( final JsonPath path )
+    {
+        int[] current = new int[] { ROOT };
+        int count = 1;
+        for ( int step = 0; step < path.length() && count > 0; step++ )
+        {
+            int[] matched = new int[Math.max( 4, count )];
+            int found = 0;
+            for ( int i = 0; i < count; i++ )
+            {
+                final int node = current[i];
+                switch ( path.kind( step ) )
+                {
+                    case NAME:
+                    {
+                        final int member = getMember( node, path.name( step ) );
+                        if ( member >= 0 )
+                        {
+                            matched = append( matched, found++, member );
+                        }
+                        break;
+                    }
+                    case INDEX:
+                    {
+                        final int element = getElement( node, path.index( step ) );
+                        if ( element >= 0 )
+                        {
+                            matched = append( matched, found++, element );
+                        }
+                        break;
+                    }
+                    default:
+                        for ( int child = firstChild( node ); child >= 0; child = next[child] )
+                        {
+                            matched = append( matched, found++, child );
+                        }
+                }
+            }
+
+            current = matched;
+            count = found;
+        }
+
+        return Arrays.copyOf( current, count );
+    }
+
+    /**
+     * @return the first node matching the path, or -1
+     */
+    public int findFirst( final String path )
+    {
+        final int[] nodes = find( path );
+        return nodes.length == 0 ? -1 : nodes[0];
+    }
+
+    /**
+     * @return {@link #getString(int)} of each node matching the path, in document order
+     */
+    public List<String> getStrings( final String path )
+    {
+        final int[] nodes = find( path );
+        final List<String> values = new ArrayList<String>( nodes.length );
+        for ( final int node : nodes )
+        {
+            values.add( getString( node ) );
+        }
+
+        return values;
+    }
+
+    /**
+     * @return {@link #getString(int)} of the first node matching the path, or null if nothing matches
+     */
+    public String getFirstString( final String path )
+    {
+        final int node = findFirst( path );
+        return node < 0 ? null : getString( node );
+    }
+
+    private int firstChild( final int node )
+    {
+        final byte type = types[node];
+        if ( ( type != JsonType.OBJECT.ordinal() && type != JsonType.ARRAY.ordinal() ) || node + 1 >= size
+            || starts[node + 1] >= ends[node] )
+        {
+            return -1;
+        }
+
+        return node + 1;
+    }
+
+    private boolean nameEquals( final int node, final String name )
+    {
+        final int start = nameStarts[node];
+        final int end = nameEnds[node];
+        if ( escapeIn( start, end ) < 0 )
+        {
+            return end - start == name.length() && src.regionMatches( start, name, 0, end - start );
+        }
+
+        return unescape( start, end ).equals( name );
+    }
+
+    private static int[] append( int[] nodes, final int at, final int node )
+    {
+        if ( at == nodes.length )
+        {
+            nodes = Arrays.copyOf( nodes, at * 2 );
+        }
+
+        nodes[at] = node;
+        return nodes;
+    }
+
+    /**
+     * @return offset of the first backslash in the given range, or -1
+     */
+    private int escapeIn( final int start, final int end )
+    {
+        for ( int i = start; i < end; i++ )
+        {
+            if ( src.charAt( i ) == '\\' )
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Decode the JSON string contents between the given offsets (exclusive of the quotes).
+     */
+    private String unescape( final int start, final int end )
+    {
+        int escape = escapeIn( start, end );
+        if ( escape < 0 )
+        {
+            return src.substring( start, end );
+        }
+
+        final StringBuilder sb = new StringBuilder( end - start );
+        int pos = start;
+        while ( escape >= 0 )
+        {
+            sb.append( src, pos, escape );
+            final char c = src.charAt( escape + 1 );
+            pos = escape + 2;
+            switch ( c )
+            {
+                case 'b':
+                    sb.append( '\b' );
+                    break;
+                case 'f':
+                    sb.append( '\f' );
+                    break;
+                case 'n':
+                    sb.append( '\n' );
+                    break;
+                case 'r':
+                    sb.append( '\r' );
+                    break;
+                case 't':
+                    sb.append( '\t' );
+                    break;
+                case 'u':
+                    sb.append( (char) Integer.parseInt( src.substring( pos, pos + 4 ), 16 ) );
+                    pos += 4;
+                    break;
+                default:
+                    sb.append( c );
+            }
+
+            escape = escapeIn( pos, end );
+        }
+
+        sb.append( src, pos, end );
+        return sb.toString();
+    }
+
+    /**
+     * One-pass, non-recursive tokenizer filling the node arrays.
+     */
+    private static final class Builder
+    {
+        private final String src;
+
+        private final int len;
+
+        private int pos;
+
+        private int size;
+
+        private byte[] types = new byte[64];
+
+        private int[] starts = new int[64];
+
+        private int[] ends = new int[64];
+
+        private int[] nameStarts = new int[64];
+
+        private int[] nameEnds = new int[64];
+
+        private int[] next = new int[64];
+
+        private int[] counts = new int[64];
+
+        private int[] containers = new int[16];
+
+        private int[] lastChildren = new int[16];
+
+        private int depth;
+
+        Builder( final String src )
+        {
+            this.src = src;
+            this.len = src.length();
+        }
+
+        void build()
+        {
+            skipWhitespace();
+            value( -1, -1 );
+
+            while ( depth > 0 )
+            {
+                skipWhitespace();
+                final int container = containers[depth - 1];
+                final boolean object = types[container] == JsonType.OBJECT.ordinal();
+                final char c = peek();
+                if ( c == ( object ? '}' : ']' ) )
+                {
+                    pos++;
+                    ends[container] = pos;
+                    depth--;
+                }
+                else if ( c == ',' && lastChildren[depth - 1] >= 0 )
+                {
+                    pos++;
+                    skipWhitespace();
+                    member( object );
+                }
+                else if ( lastChildren[depth - 1] < 0 )
+                {
+                    member( object );
+                }
+                else
+                {
+                    throw fail( "Expected ',' or '" + ( object ? '}' : ']' ) + "'" );
+                }
+            }
+
+            skipWhitespace();
+            if ( pos < len )
+            {
+                throw fail( "Unexpected content after the document" );
+            }
+        }
+
+        private void member( final boolean object )
+        {
+            if ( !object )
+            {
+                value( -1, -1 );
+                return;
+            }
+
+            if ( peek() != '"' )
+            {
+                throw fail( "Expected a member name" );
+            }
+
+            final int nameStart = pos + 1;
+            skipString();
+            final int nameEnd = pos - 1;
+
+            skipWhitespace();
+            if ( peek() != ':' )
+            {
+                throw fail( "Expected ':'" );
+            }
+            pos++;
+            skipWhitespace();
+
+            value( nameStart, nameEnd );
+        }
+
+        private void value( final int nameStart, final int nameEnd )
+        {
+            final int node = size;
+            ensureCapacity();
+            size++;
+
+            starts[node] = pos;
+            nameStarts[node] = nameStart;
+            nameEnds[node] = nameEnd;
+            next[node] = -1;
+            counts[node] = 0;
+
+            if ( depth > 0 )
+            {
+                counts[containers[depth - 1]]++;
+
+                final int previous = lastChildren[depth - 1];
+                if ( previous >= 0 )
+                {
+                    next[previous] = node;
+                }
+                lastChildren[depth - 1] = node;
+            }
+
+            final char c = peek();
+            switch ( c )
+            {
+                case '{':
+                case '[':
+                    types[node] = (byte) ( c == '{' ? JsonType.OBJECT : JsonType.ARRAY ).ordinal();
+                    pos++;
+                    // the container's real end offset is set when it closes.
+                    ends[node] = len;
+                    push( node );
+                    return;
+                case '"':
+                    types[node] = (byte) JsonType.STRING.ordinal();
+                    skipString();
+                    break;
+                case 't':
+                    literal( "true" );
+                    types[node] = (byte) JsonType.BOOLEAN.ordinal();
+                    break;
+                case 'f':
+                    literal( "false" );
+                    types[node] = (byte) JsonType.BOOLEAN.ordinal();
+                    break;
+                case 'n':
+                    literal( "null" );
+                    types[node] = (byte) JsonType.NULL.ordinal();
+                    break;
+                default:
+                    number();
+                    types[node] = (byte) JsonType.NUMBER.ordinal();
+            }
+
+            ends[node] = pos;
+        }
+
+        private void push( final int node )
+        {
+            if ( depth == containers.length )
+            {
+                containers = Arrays.copyOf( containers, depth * 2 );
+                lastChildren = Arrays.copyOf( lastChildren, depth * 2 );
+            }
+
+            containers[depth] = node;
+            lastChildren[depth] = -1;
+            depth++;
+
+            // an empty container closes immediately.
+            skipWhitespace();
+            if ( peek() == ( types[node] == JsonType.OBJECT.ordinal() ? '}' : ']' ) )
+            {
+                pos++;
+                ends[node] = pos;
+                depth--;
+            }
+        }
+
+        private void skipString()
+        {
+            pos++;
+            while ( pos < len )
+            {
+                final char c = src.charAt( pos++ );
+                if ( c == '"' )
+                {
+                    return;
+                }
+                else if ( c == '\\' )
+                {
+                    escape();
+                }
+            }
+
+            throw fail( "Unterminated string" );
+        }
+
+        /**
+         * Check the escape after a backslash, so {@link JsonIndex#unescape(int, int)} never sees a malformed one.
+         */
+        private void escape()
+        {
+            final char c = peek();
+            switch ( c )
+            {
+                case '"':
+                case '\\':
+                case '/':
+                case 'b':
+                case 'f':
+                case 'n':
+                case 'r':
+                case 't':
+                    pos++;
+                    return;
+                case 'u':
+                    pos++;
+                    for ( int i = 0; i < 4; i++ )
+                    {
+                        if ( Character.digit( peek(), 16 ) < 0 )
+                        {
+                            throw fail( "Malformed unicode escape" );
+                        }
+                        pos++;
+                    }
+                    return;
+                default:
+                    throw fail( "Invalid escape '\\" + c + "'" );
+            }
+        }
+
+        private void literal( final String literal )
+        {
+            if ( !src.startsWith( literal, pos ) )
+            {
+                throw fail( "Expected '" + literal + "'" );
+            }
+
+            pos += literal.length();
+        }
+
+        private void number()
+        {
+            final int start = pos;
+            while ( pos < len )
+            {
+                final char c = src.charAt( pos );
+                if ( ( c >= '0' && c <= '9' ) || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' )
+                {
+                    pos++;
+                }
+                else
+                {
+                    break;
+                }
+            }
+
+            if ( pos == start )
+            {
+                throw fail( "Expected a value" );
+            }
+        }
+
+        private char peek()
+        {
+            if ( pos >= len )
+            {
+                throw fail( "Unexpected end of document" );
+            }
+
+            return src.charAt( pos );
+        }
+
+        private void skipWhitespace()
+        {
+            while ( pos < len )
+            {
+                final char c = src.charAt( pos );
+                if ( c != ' ' && c != '\n' && c != '\r' && c != '\t' )
+                {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private void ensureCapacity()
+        {
+            if ( size == types.length )
+            {
+                final int capacity = size * 2;
+                types = Arrays.copyOf( types, capacity );
+                starts = Arrays.copyOf( starts, capacity );
+                ends = Arrays.copyOf( ends, capacity );
+                nameStarts = Arrays.copyOf( nameStarts, capacity );
+                nameEnds = Arrays.copyOf( nameEnds, capacity );
+                next = Arrays.copyOf( next, capacity );
+                counts = Arrays.copyOf( counts, capacity );
+            }
+        }
+
+        private JsonSyntaxException fail( final String message )
+        {
+            return new JsonSyntaxException( message + " at offset " + pos + "." );
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled path expression for {@link JsonIndex} queries. Supported syntax is a dotted list of member names, each
+ * optionally followed by subscripts, with an optional leading <code>$</code>:
+ * <ul>
+ * <li><code>name</code> or <code>['name']</code> selects an object member</li>
+ * <li><code>[2]</code> selects an array element</li>
+ * <li><code>*</code> or <code>[*]</code> selects every member of an object or element of an array</li>
+ * </ul>
+ * For example <code>items[*].email</code> or <code>$.owner.tags[0]</code>. Compiled paths are immutable and can be
+ * reused across indexes.
+ */
+public final class JsonPath
+{
+
+    enum Kind
+    {
+        NAME, INDEX, ANY;
+    }
+
+    private final String expression;
+
+    private final Kind[] kinds;
+
+    private final String[] names;
+
+    private final int[] indexes;
+
+    private JsonPath( final String expression, final List<Kind> kinds, final List<String> names,
+                      final List<Integer> indexes )
+    {
+        this.expression = expression;
+        this.kinds = kinds.toArray( new Kind[kinds.size()] );
+        this.names = names.toArray( new String[names.size()] );
+        this.indexes = new int[indexes.size()];
+        for ( int i = 0; i < this.indexes.length; i++ )
+        {
+            this.indexes[i] = indexes.get( i );
+        }
+    }
+
+    public static JsonPath compile( final String expression )
+    {
+        final List<Kind> kinds = new ArrayList<Kind>();
+        final List<String> names = new ArrayList<String>();
+        final List<Integer> indexes = new ArrayList<Integer>();
+
+        final int len = expression.length();
+        int pos = expression.startsWith( "$" ) ? 1 : 0;
+        boolean first = true;
+        while ( pos < len )
+        {
+            final char c = expression.charAt( pos );
+            if ( c == '[' )
+            {
+                final int close = expression.indexOf( ']', pos );
+                if ( close < 0 )
+                {
+                    throw invalid( expression, pos );
+                }
+
+                final String sub = expression.substring( pos + 1, close )
+                                             .trim();
+                if ( "*".equals( sub ) )
+                {
+                    add( kinds, names, indexes, Kind.ANY, null, -1 );
+                }
+                else if ( sub.length() > 1 && ( sub.charAt( 0 ) == '\'' || sub.charAt( 0 ) == '"' )
+                    && sub.charAt( sub.length() - 1 ) == sub.charAt( 0 ) )
+                {
+                    add( kinds, names, indexes, Kind.NAME, sub.substring( 1, sub.length() - 1 ), -1 );
+                }
+                else
+                {
+                    try
+                    {
+                        final int idx = Integer.parseInt( sub );
+                        if ( idx < 0 )
+                        {
+                            throw invalid( expression, pos );
+                        }
+                        add( kinds, names, indexes, Kind.INDEX, null, idx );
+                    }
+                    catch ( final NumberFormatException e )
+                    {
+                        throw invalid( expression, pos );
+                    }
+                }
+
+                pos = close + 1;
+            }
+            else
+            {
+                if ( c == '.' )
+                {
+                    pos++;
+                }
+                else if ( !first )
+                {
+                    throw invalid( expression, pos );
+                }
+
+                int end = pos;
+                while ( end < len && expression.charAt( end ) != '.' && expression.charAt( end ) != '[' )
+                {
+                    end++;
+                }
+
+                if ( end == pos )
+                {
+                    throw invalid( expression, pos );
+                }
+
+                final String name = expression.substring( pos, end );
+                if ( "*".equals( name ) )
+                {
+                    add( kinds, names, indexes, Kind.ANY, null, -1 );
+                }
+                else
+                {
+                    add( kinds, names, indexes, Kind.NAME, name, -1 );
+                }
+
+                pos = end;
+            }
+
+            first = false;
+        }
+
+        return new JsonPath( expression, kinds, names, indexes );
+    }
+
+    int length()
+    {
+        return kinds.length;
+    }
+
+    Kind kind( final int step )
+    {
+        return kinds[step];
+    }
+
+    String name( final int step )
+    {
+        return names[step];
+    }
+
+    int index( final int step )
+    {
+        return indexes[step];
+    }
+
+    @Override
+    public String toString()
+    {
+        return expression;
+    }
+
+    private static void add( final List<Kind> kinds, final List<String> names, final List<Integer> indexes,
+                             final Kind kind, final String name, final int index )
+    {
+        kinds.add( kind );
+        names.add( name );
+        indexes.add( index );
+    }
+
+    private static IllegalArgumentException invalid( final String expression, final int pos )
+    {
+        return new IllegalArgumentException( "Invalid JSON path: '" + expression + "' at offset " + pos + "." );
+    }
+
+}
@@ -0,0 +1,19 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.index;
+
+/**
+ * Kind of value held by a node of a {@link JsonIndex}.
+ */
+public enum JsonType
+{
+    OBJECT, ARRAY, STRING, NUMBER, BOOLEAN, NULL;
+}
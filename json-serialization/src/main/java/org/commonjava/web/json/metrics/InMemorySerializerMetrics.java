@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.metrics;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.enterprise.inject.Alternative;
+
+/**
+ * Keeps a count, total size and {@link LatencyHistogram} per operation and root type, in memory, for export to a
+ * dashboard or for logging.
+ * <p>
+ * Memory grows with the number of distinct root types, so this is a CDI alternative: enable it in beans.xml, or
+ * produce it yourself, to have the serializer pick it up.
+ */
+@Alternative
+public class InMemorySerializerMetrics
+    implements SerializerMetrics
+{
+
+    private final ConcurrentMap<Key, OperationStats> stats = new ConcurrentHashMap<Key, OperationStats>();
+
+    @Override
+    public void record( final SerializerOperation operation, final Type type, final long elapsedNanos, final long size )
+    {
+        final Key key = new Key( operation, type );
+        OperationStats s = stats.get( key );
+        if ( s == null )
+        {
+            s = new OperationStats( operation, type );
+            final OperationStats existing = stats.putIfAbsent( key, s );
+            if ( existing != null )
+            {
+                s = existing;
+            }
+        }
+
+        s.record( elapsedNanos, size );
+    }
+
+    /**
+     * @return the stats for one operation and type, or null if nothing has been recorded for them
+     */
+    public OperationStats getStats( final SerializerOperation operation, final Type type )
+    {
+        return stats.get( new Key( operation, type ) );
+    }
+
+    /**
+     * @return stats for every operation on every type, in no particular order
+     */
+    public Collection<OperationStats> getAllStats()
+    {
+        return Collections.unmodifiableCollection( new ArrayList<OperationStats>( stats.values() ) );
+    }
+
+    /**
+     * @return stats for one operation, merged over all types
+     */
+    public OperationStats getStats( final SerializerOperation operation )
+    {
+        final List<OperationStats> matched = new ArrayList<OperationStats>();
+        for ( final OperationStats s : stats.values() )
+        {
+            if ( s.getOperation() == operation )
+            {
+                matched.add( s );
+            }
+        }
+
+        return OperationStats.merge( operation, matched );
+    }
+
+    public void reset()
+    {
+        stats.clear();
+    }
+
+    /**
+     * Count, payload size and latencies of one operation on one root type.
+     */
+    public static final class OperationStats
+    {
+        private final SerializerOperation operation;
+
+        private final Type type;
+
+        private final AtomicLong size = new AtomicLong();
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        OperationStats( final SerializerOperation operation, final Type type )
+        {
+            this.operation = operation;
+            this.type = type;
+        }
+
+        void record( final long elapsedNanos, final long payloadSize )
+        {
+            latency.record( elapsedNanos );
+            if ( payloadSize > 0 )
+            {
+                size.addAndGet( payloadSize );
+            }
+        }
+
+        static OperationStats merge( final SerializerOperation operation, final List<OperationStats> all )
+        {
+            final OperationStats merged = new OperationStats( operation, null );
+            for ( final OperationStats s : all )
+            {
+                merged.size.addAndGet( s.size.get() );
+                merged.latency.merge( s.latency );
+            }
+
+            return merged;
+        }
+
+        public SerializerOperation getOperation()
+        {
+            return operation;
+        }
+
+        /**
+         * @return the root type, or null for operations without one (or merged stats)
+         */
+        public Type getType()
+        {
+            return type;
+        }
+
+        public long getCount()
+        {
+            return latency.getCount();
+        }
+
+        /**
+         * @return total payload size over all recorded operations (see {@link SerializerMetrics#record})
+         */
+        public long getSize()
+        {
+            return size.get();
+        }
+
+        /**
+         * @return latencies, in nanoseconds
+         */
+        public LatencyHistogram getLatency()
+        {
+            return latency;
+        }
+
+        @Override
+        public String toString()
+        {
+            return operation + ( type == null ? "" : " " + type ) + ": size=" + size.get() + " " + latency;
+        }
+    }
+
+    private static final class Key
+    {
+        private final SerializerOperation operation;
+
+        private final Type type;
+
+        Key( final SerializerOperation operation, final Type type )
+        {
+            this.operation = operation;
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return operation.hashCode() * 31 + ( type == null ? 0 : type.hashCode() );
+        }
+
+        @Override
+        public boolean equals( final Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof Key ) )
+            {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return operation == other.operation && ( type == null ? other.type == null : type.equals( other.type ) );
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values (typically nanosecond latencies) with fixed, log-linear buckets: each
+ * power of two is split into 8 sub-buckets, so percentiles are accurate to within 12.5% over the whole
+ * <code>long</code> range, in a few KB of memory regardless of how many values are recorded.
+ */
+public final class LatencyHistogram
+{
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong min = new AtomicLong( Long.MAX_VALUE );
+
+    private final AtomicLong max = new AtomicLong();
+
+    public void record( final long value )
+    {
+        final long v = value < 0 ? 0 : value;
+        counts.incrementAndGet( bucket( v ) );
+        count.incrementAndGet();
+        total.addAndGet( v );
+        lower( min, v );
+        raise( max, v );
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public long getTotal()
+    {
+        return total.get();
+    }
+
+    public long getMin()
+    {
+        return count.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        final long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket holding the given percentile (capped at the largest recorded value), or 0
+     *         if nothing has been recorded
+     */
+    public long getPercentile( final double percentile )
+    {
+        final long n = count.get();
+        if ( n == 0 )
+        {
+            return 0;
+        }
+
+        final long rank = Math.max( 1, (long) Math.ceil( n * Math.min( 100, Math.max( 0, percentile ) ) / 100 ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += counts.get( i );
+            if ( seen >= rank )
+            {
+                return Math.min( upperBound( i ), max.get() );
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Add everything recorded by another histogram to this one.
+     */
+    public void merge( final LatencyHistogram other )
+    {
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            final long c = other.counts.get( i );
+            if ( c > 0 )
+            {
+                counts.addAndGet( i, c );
+            }
+        }
+
+        count.addAndGet( other.count.get() );
+        total.addAndGet( other.total.get() );
+
+        lower( min, other.min.get() );
+        raise( max, other.max.get() );
+    }
+
+    public void reset()
+    {
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            counts.set( i, 0 );
+        }
+        count.set( 0 );
+        total.set( 0 );
+        min.set( Long.MAX_VALUE );
+        max.set( 0 );
+    }
+
+    /**
+     * Summary line, treating the recorded values as nanoseconds and reporting them in the given unit.
+     */
+    public String summary( final TimeUnit unit )
+    {
+        final double scale = unit.toNanos( 1 );
+        return String.format( "count=%d min=%.3f mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f (%s)",
+                              getCount(), getMin() / scale, getMean() / scale, getPercentile( 50 ) / scale,
+                              getPercentile( 90 ) / scale, getPercentile( 99 ) / scale, getPercentile( 99.9 ) / scale,
+                              getMax() / scale, unit.name()
+                                                    .toLowerCase() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return summary( TimeUnit.MICROSECONDS );
+    }
+
+    private static void lower( final AtomicLong target, final long value )
+    {
+        long current = target.get();
+        while ( value < current && !target.compareAndSet( current, value ) )
+        {
+            current = target.get();
+        }
+    }
+
+    private static void raise( final AtomicLong target, final long value )
+    {
+        long current = target.get();
+        while ( value > current && !target.compareAndSet( current, value ) )
+        {
+            current = target.get();
+        }
+    }
+
+    private static int bucket( final long value )
+    {
+        if ( value < SUB_BUCKETS )
+        {
+            return (int) value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros( value );
+        final int sub = (int) ( value >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 );
+        return ( exponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound( final int bucket )
+    {
+        if ( bucket < SUB_BUCKETS )
+        {
+            return bucket;
+        }
+
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final int sub = bucket % SUB_BUCKETS;
+        final long width = 1L << ( exponent - SUB_BUCKET_BITS );
+        final long lower = ( (long) ( SUB_BUCKETS + sub ) ) << ( exponent - SUB_BUCKET_BITS );
+        return lower + width - 1;
+    }
+
+}
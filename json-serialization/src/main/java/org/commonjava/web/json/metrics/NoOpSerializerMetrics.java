@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.metrics;
+
+import java.lang.reflect.Type;
+
+import javax.enterprise.inject.Alternative;
+
+/**
+ * Discards everything. This is the default, so uninstrumented serializers pay only for a few
+ * {@link System#nanoTime()} calls. A CDI alternative, so it never competes with an application's own metrics bean.
+ */
+@Alternative
+public final class NoOpSerializerMetrics
+    implements SerializerMetrics
+{
+
+    public static final NoOpSerializerMetrics INSTANCE = new NoOpSerializerMetrics();
+
+    private NoOpSerializerMetrics()
+    {
+    }
+
+    @Override
+    public void record( final SerializerOperation operation, final Type type, final long elapsedNanos, final long size )
+    {
+    }
+
+}
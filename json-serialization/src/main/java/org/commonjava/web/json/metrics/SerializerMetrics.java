@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.metrics;
+
+import java.lang.reflect.Type;
+
+/**
+ * Receives timings and payload sizes from {@link org.commonjava.web.json.ser.JsonSerializer}. Implementations are
+ * called on the serialization hot path, from any thread, so they must be thread-safe and cheap.
+ * <p>
+ * The serializer uses the one set explicitly, else the CDI-provided instance if there is exactly one (with any
+ * qualifiers), else {@link NoOpSerializerMetrics}. None of the implementations here are enabled as CDI beans by
+ * default.
+ */
+public interface SerializerMetrics
+{
+
+    /**
+     * @param operation what was done
+     * @param type the root type involved, or null if there isn't one
+     * @param elapsedNanos wall-clock duration of the operation
+     * @param size payload size: bytes for streams, chars for strings and writers, -1 where it doesn't apply
+     */
+    void record( SerializerOperation operation, Type type, long elapsedNanos, long size );
+
+}
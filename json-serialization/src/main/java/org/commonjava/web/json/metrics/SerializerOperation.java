@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.metrics;
+
+/**
+ * Operations of {@link org.commonjava.web.json.ser.JsonSerializer} reported to {@link SerializerMetrics}. Timings of
+ * the <code>FROM_*</code> and <code>LISTING_*</code> operations cover parsing only; post-processing is reported
+ * separately as {@link #POST_PROCESS}, except in {@link #PARALLEL_LISTING_FROM_STRING}, which includes it. A parallel
+ * read that falls back to the sequential path is reported as {@link #LISTING_FROM_STRING}.
+ */
+public enum SerializerOperation
+{
+    TO_STRING, TO_STREAM, TO_WRITER, FROM_STRING, FROM_STREAM, LAZY_FROM_STRING, LISTING_FROM_STRING,
+    LISTING_FROM_STREAM, PARALLEL_LISTING_FROM_STRING, TO_BINARY_STREAM, FROM_BINARY_STREAM,
+    LISTING_FROM_BINARY_STREAM,
+
+    /**
+     * Running {@link org.commonjava.web.json.ser.JsonPostProcess} methods or listing post-processors.
+     */
+    POST_PROCESS,
+
+    /**
+     * Building (not fetching from cache) a Gson instance.
+     */
+    GSON_BUILD;
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Listing} backed by an arbitrary {@link Iterable} (a lazy collection, a database cursor, ...). When
+ * serialized, the source is iterated exactly once and each item is written as it is produced, without being
+ * collected into a list.
+ * <p>
+ * Calling {@link #getItems()} materializes the source into a list (iterating it), so avoid it for single-pass
+ * sources that are meant to be serialized.
+ */
+public class LazyListing<T>
+    extends Listing<T>
+{
+
+    private final transient Iterable<T> source;
+
+    public LazyListing( final Iterable<T> source )
+    {
+        this.source = source;
+    }
+
+    /**
+     * @return the items materialized by {@link #getItems()} if that has already been called, otherwise the original
+     *         source.
+     */
+    public Iterable<T> getSource()
+    {
+        final List<T> items = super.getItems();
+        return items == null ? source : items;
+    }
+
+    @Override
+    public List<T> getItems()
+    {
+        List<T> items = super.getItems();
+        if ( items == null && source != null )
+        {
+            items = new ArrayList<T>();
+            for ( final T item : source )
+            {
+                items.add( item );
+            }
+
+            setItems( items );
+        }
+
+        return items;
+    }
+
+}
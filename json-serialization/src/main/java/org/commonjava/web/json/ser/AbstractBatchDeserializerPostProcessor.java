@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.util.Collections;
+
+/**
+ * Base for {@link BatchDeserializerPostProcessor} implementations, handling single values as batches of one.
+ */
+public abstract class AbstractBatchDeserializerPostProcessor<T>
+    implements BatchDeserializerPostProcessor<T>
+{
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final int batchSize;
+
+    protected AbstractBatchDeserializerPostProcessor()
+    {
+        this( DEFAULT_BATCH_SIZE );
+    }
+
+    protected AbstractBatchDeserializerPostProcessor( final int batchSize )
+    {
+        if ( batchSize < 1 )
+        {
+            throw new IllegalArgumentException( "Batch size must be at least 1." );
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void process( final T value )
+    {
+        processBatch( Collections.singletonList( value ) );
+    }
+
+    @Override
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Immutable list of the {@link JsonAdapters} adapters reachable from a root type, computed once by walking the type
+ * graph: declared (non-static) fields of the class and all its superclasses, type arguments of parameterized types
+ * (e.g. <code>List&lt;AnnotatedThing&gt;</code>), array components and type variable / wildcard bounds. JDK types
+ * are not scanned.
+ */
+final class AdapterRegistrationPlan
+{
+
+    static final AdapterRegistrationPlan EMPTY =
+        new AdapterRegistrationPlan( Collections.<WebSerializationAdapter> emptyList() );
+
+    private static final Logger LOGGER = LoggerFactory.getLogger( AdapterRegistrationPlan.class );
+
+    private final List<WebSerializationAdapter> adapters;
+
+    private AdapterRegistrationPlan( final List<WebSerializationAdapter> adapters )
+    {
+        this.adapters = adapters;
+    }
+
+    List<WebSerializationAdapter> getAdapters()
+    {
+        return adapters;
+    }
+
+    void register( final GsonBuilder builder )
+    {
+        for ( final WebSerializationAdapter adapter : adapters )
+        {
+            adapter.register( builder );
+        }
+    }
+
+    /**
+     * Scan the type graph starting at root. Adapters are taken from (or added to) the given singleton map, so each
+     * adapter class is instantiated once no matter how many plans reference it.
+     */
+    static AdapterRegistrationPlan scan( final Type root,
+                                         final ConcurrentMap<Class<? extends WebSerializationAdapter>, WebSerializationAdapter> singletons )
+    {
+        final Map<Class<? extends WebSerializationAdapter>, WebSerializationAdapter> found =
+            new LinkedHashMap<Class<? extends WebSerializationAdapter>, WebSerializationAdapter>();
+
+        visit( root, new HashSet<Type>(), found, singletons );
+        if ( found.isEmpty() )
+        {
+            return EMPTY;
+        }
+
+        return new AdapterRegistrationPlan(
+                                            Collections.unmodifiableList( new ArrayList<WebSerializationAdapter>( found.values() ) ) );
+    }
+
+    private static void visit( final Type type, final Set<Type> seen,
+                               final Map<Class<? extends WebSerializationAdapter>, WebSerializationAdapter> found,
+                               final ConcurrentMap<Class<? extends WebSerializationAdapter>, WebSerializationAdapter> singletons )
+    {
+        if ( type == null || !seen.add( type ) )
+        {
+            return;
+        }
+
+        if ( type instanceof Class<?> )
+        {
+            final Class<?> cls = (Class<?>) type;
+            if ( cls.isArray() )
+            {
+                visit( cls.getComponentType(), seen, found, singletons );
+                return;
+            }
+
+            if ( cls.isPrimitive() || cls.getName()
+                                         .startsWith( "java." ) )
+            {
+                return;
+            }
+
+            final JsonAdapters annotation = cls.getAnnotation( JsonAdapters.class );
+            if ( annotation != null )
+            {
+                for ( final Class<? extends WebSerializationAdapter> adapterCls : annotation.value() )
+                {
+                    if ( !found.containsKey( adapterCls ) )
+                    {
+                        found.put( adapterCls, getSingleton( adapterCls, singletons ) );
+                    }
+                }
+            }
+
+            for ( final Field field : cls.getDeclaredFields() )
+            {
+                if ( !Modifier.isStatic( field.getModifiers() ) )
+                {
+                    visit( field.getGenericType(), seen, found, singletons );
+                }
+            }
+
+            visit( cls.getGenericSuperclass(), seen, found, singletons );
+        }
+        else if ( type instanceof ParameterizedType )
+        {
+            final ParameterizedType pt = (ParameterizedType) type;
+            visit( pt.getRawType(), seen, found, singletons );
+            for ( final Type arg : pt.getActualTypeArguments() )
+            {
+                visit( arg, seen, found, singletons );
+            }
+        }
+        else if ( type instanceof GenericArrayType )
+        {
+            visit( ( (GenericArrayType) type ).getGenericComponentType(), seen, found, singletons );
+        }
+        else if ( type instanceof WildcardType )
+        {
+            final WildcardType wt = (WildcardType) type;
+            for ( final Type bound : wt.getUpperBounds() )
+            {
+                visit( bound, seen, found, singletons );
+            }
+            for ( final Type bound : wt.getLowerBounds() )
+            {
+                visit( bound, seen, found, singletons );
+            }
+        }
+        else if ( type instanceof TypeVariable<?> )
+        {
+            for ( final Type bound : ( (TypeVariable<?>) type ).getBounds() )
+            {
+                visit( bound, seen, found, singletons );
+            }
+        }
+    }
+
+    private static WebSerializationAdapter getSingleton( final Class<? extends WebSerializationAdapter> adapterCls,
+                                                         final ConcurrentMap<Class<? extends WebSerializationAdapter>, WebSerializationAdapter> singletons )
+    {
+        WebSerializationAdapter adapter = singletons.get( adapterCls );
+        if ( adapter != null )
+        {
+            return adapter;
+        }
+
+        try
+        {
+            LOGGER.debug( "[REGISTER] JSON adapter from annotation: {}", adapterCls.getName() );
+            adapter = adapterCls.newInstance();
+        }
+        catch ( final InstantiationException e )
+        {
+            throw new RuntimeException( "Cannot instantiate adapter from JsonAdapters annotation: " + adapterCls.getName() );
+        }
+        catch ( final IllegalAccessException e )
+        {
+            throw new RuntimeException( "Cannot instantiate adapter from JsonAdapters annotation: " + adapterCls.getName() );
+        }
+
+        final WebSerializationAdapter existing = singletons.putIfAbsent( adapterCls, adapter );
+        return existing == null ? adapter : existing;
+    }
+
+}
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import javax.servlet.AsyncContext;
+
+/**
+ * Callback for the asynchronous request-body helpers in {@link ServletSerializerUtils}. Exactly one of the methods
+ * is called, on the thread that read the body (or on the container's listener thread, if the request timed out or
+ * failed before the read finished), and the {@link AsyncContext} is completed after it returns. If
+ * {@link #handle(Object, AsyncContext)} throws, the exception is logged; it is not passed on to
+ * {@link #failed(Throwable, AsyncContext)}.
+ */
+public interface AsyncBodyHandler<T>
+{
+
+    void handle( T value, AsyncContext context )
+        throws Exception;
+
+    void failed( Throwable error, AsyncContext context );
+
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.util.List;
+
+/**
+ * Post-processor that can handle many deserialized values at once, e.g. to resolve references with one bulk lookup.
+ * Listing reads hand it chunks of up to {@link #getBatchSize()} items through {@link #processBatch(List)}; the plain
+ * {@link #process(Object)} is still used wherever a single value is deserialized.
+ */
+public interface BatchDeserializerPostProcessor<T>
+    extends DeserializerPostProcessor<T>
+{
+
+    void processBatch( List<T> values );
+
+    int getBatchSize();
+
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+/**
+ * Tags and limits of the binary encoding written by {@link BinaryJsonWriter} and read by {@link BinaryJsonReader}.
+ * A document is the header <code>'J' 'B' VERSION</code> followed by one value:
+ *
+ * <pre>
+ * value  := BEGIN_OBJECT (name value)* END | BEGIN_ARRAY value* END
+ *         | STRING length chars | STRING_REF index | NUMBER length chars
+ *         | LONG zigzag-varint | DOUBLE 8 bytes | FLOAT 4 bytes | TRUE | FALSE | NULL
+ * name   := NAME length chars | NAME_REF index
+ * </pre>
+ *
+ * Lengths and indexes are unsigned varints; lengths count UTF-16 chars, which are UTF-8 encoded. The first
+ * {@link #MAX_SHARED} distinct names, and the first {@link #MAX_SHARED} distinct strings of up to
+ * {@link #MAX_SHARED_STRING_LENGTH} chars, are numbered in order of appearance; repeats are written as references.
+ */
+final class BinaryJson
+{
+
+    static final byte[] HEADER = { 'J', 'B', 1 };
+
+    static final int BEGIN_OBJECT = 0x01;
+
+    static final int BEGIN_ARRAY = 0x02;
+
+    static final int END = 0x03;
+
+    static final int NAME = 0x04;
+
+    static final int NAME_REF = 0x05;
+
+    static final int STRING = 0x06;
+
+    static final int STRING_REF = 0x07;
+
+    static final int NUMBER = 0x08;
+
+    static final int LONG = 0x09;
+
+    static final int DOUBLE = 0x0A;
+
+    static final int FLOAT = 0x0B;
+
+    static final int TRUE = 0x0C;
+
+    static final int FALSE = 0x0D;
+
+    static final int NULL = 0x0E;
+
+    static final int MAX_SHARED = 1024;
+
+    static final int MAX_SHARED_STRING_LENGTH = 64;
+
+    private BinaryJson()
+    {
+    }
+
+}
@@ -0,0 +1,591 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import static org.commonjava.web.json.ser.BinaryJson.BEGIN_ARRAY;
+import static org.commonjava.web.json.ser.BinaryJson.BEGIN_OBJECT;
+import static org.commonjava.web.json.ser.BinaryJson.DOUBLE;
+import static org.commonjava.web.json.ser.BinaryJson.END;
+import static org.commonjava.web.json.ser.BinaryJson.FALSE;
+import static org.commonjava.web.json.ser.BinaryJson.FLOAT;
+import static org.commonjava.web.json.ser.BinaryJson.HEADER;
+import static org.commonjava.web.json.ser.BinaryJson.LONG;
+import static org.commonjava.web.json.ser.BinaryJson.MAX_SHARED;
+import static org.commonjava.web.json.ser.BinaryJson.MAX_SHARED_STRING_LENGTH;
+import static org.commonjava.web.json.ser.BinaryJson.NAME;
+import static org.commonjava.web.json.ser.BinaryJson.NAME_REF;
+import static org.commonjava.web.json.ser.BinaryJson.NULL;
+import static org.commonjava.web.json.ser.BinaryJson.NUMBER;
+import static org.commonjava.web.json.ser.BinaryJson.STRING;
+import static org.commonjava.web.json.ser.BinaryJson.STRING_REF;
+import static org.commonjava.web.json.ser.BinaryJson.TRUE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * Reads a {@link BinaryJson} document from a stream and hands it out as the equivalent JSON text, one token at a
+ * time. Parsing the transcoded text with Gson's own {@link com.google.gson.stream.JsonReader} keeps every type
+ * adapter, listing reader and parse limit working unchanged on binary input.
+ */
+final class BinaryJsonReader
+    extends PooledReader
+{
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final InputStream in;
+
+    private final JsonBufferPool pool;
+
+    private byte[] buf;
+
+    private int pos;
+
+    private int limit;
+
+    private long byteCount;
+
+    private char[] text;
+
+    private int textPos;
+
+    private int textLimit;
+
+    private boolean started;
+
+    private boolean done;
+
+    /**
+     * Per open container: true for objects, and whether anything has been written into it yet.
+     */
+    private boolean[] objects = new boolean[32];
+
+    private boolean[] nonEmpty = new boolean[32];
+
+    private int depth;
+
+    private boolean afterName;
+
+    private final List<String> names = new ArrayList<String>();
+
+    private final List<String> strings = new ArrayList<String>();
+
+    BinaryJsonReader( final InputStream in, final JsonBufferPool pool )
+    {
+        this.in = in;
+        this.pool = pool;
+        this.buf = pool.acquireBytes();
+        this.text = pool.acquireChars();
+    }
+
+    @Override
+    public int read( final char[] cbuf, final int off, final int len )
+        throws IOException
+    {
+        ensureOpen();
+        if ( len < 1 )
+        {
+            return 0;
+        }
+
+        while ( textPos == textLimit )
+        {
+            if ( done )
+            {
+                return -1;
+            }
+
+            textPos = 0;
+            textLimit = 0;
+            nextToken();
+        }
+
+        final int n = Math.min( len, textLimit - textPos );
+        System.arraycopy( text, textPos, cbuf, off, n );
+        textPos += n;
+        return n;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        release();
+        in.close();
+    }
+
+    @Override
+    void release()
+    {
+        if ( buf != null )
+        {
+            pool.releaseBytes( buf );
+            pool.releaseChars( text );
+            buf = null;
+            text = null;
+        }
+    }
+
+    @Override
+    long getByteCount()
+    {
+        return byteCount;
+    }
+
+    /**
+     * Transcode the next token into the (empty) text buffer.
+     */
+    private void nextToken()
+        throws IOException
+    {
+        if ( !started )
+        {
+            started = true;
+            readHeader();
+            if ( done )
+            {
+                return;
+            }
+        }
+
+        final int tag = readByte();
+        switch ( tag )
+        {
+            case END:
+                if ( depth == 0 || afterName )
+                {
+                    throw malformed();
+                }
+
+                depth--;
+                append( objects[depth] ? '}' : ']' );
+                break;
+            case NAME:
+            case NAME_REF:
+                if ( depth == 0 || !objects[depth - 1] || afterName )
+                {
+                    throw malformed();
+                }
+
+                separate();
+                afterName = true;
+                if ( tag == NAME )
+                {
+                    final int start = textLimit;
+                    appendString( readLength() );
+                    share( names, start );
+                }
+                else
+                {
+                    append( lookup( names ) );
+                }
+
+                append( ':' );
+                break;
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                beginValue();
+                push( tag == BEGIN_OBJECT );
+                append( tag == BEGIN_OBJECT ? '{' : '[' );
+                break;
+            case STRING:
+            {
+                beginValue();
+                final int length = readLength();
+                final int start = textLimit;
+                appendString( length );
+                if ( length <= MAX_SHARED_STRING_LENGTH )
+                {
+                    share( strings, start );
+                }
+                break;
+            }
+            case STRING_REF:
+                beginValue();
+                append( lookup( strings ) );
+                break;
+            case NUMBER:
+                beginValue();
+                appendNumber( readLength() );
+                break;
+            case LONG:
+            {
+                beginValue();
+                final long zigzag = readVarLong();
+                append( Long.toString( ( zigzag >>> 1 ) ^ -( zigzag & 1 ) ) );
+                break;
+            }
+            case DOUBLE:
+                beginValue();
+                append( Double.toString( Double.longBitsToDouble( readFixed( 8 ) ) ) );
+                break;
+            case FLOAT:
+                beginValue();
+                append( Float.toString( Float.intBitsToFloat( (int) readFixed( 4 ) ) ) );
+                break;
+            case TRUE:
+                beginValue();
+                append( "true" );
+                break;
+            case FALSE:
+                beginValue();
+                append( "false" );
+                break;
+            case NULL:
+                beginValue();
+                append( "null" );
+                break;
+            default:
+                throw malformed();
+        }
+
+        if ( depth == 0 && tag != NAME && tag != NAME_REF )
+        {
+            done = true;
+        }
+    }
+
+    private void readHeader()
+        throws IOException
+    {
+        for ( int i = 0; i < HEADER.length; i++ )
+        {
+            final int b = pos < limit || fill() ? buf[pos++] & 0xFF : -1;
+            if ( b < 0 && i == 0 )
+            {
+                // empty body, like empty JSON text.
+                done = true;
+                return;
+            }
+            else if ( b != HEADER[i] )
+            {
+                throw new IOException( "Not a binary JSON document." );
+            }
+        }
+    }
+
+    private void beginValue()
+        throws IOException
+    {
+        if ( afterName )
+        {
+            afterName = false;
+        }
+        else if ( depth > 0 && objects[depth - 1] )
+        {
+            throw malformed();
+        }
+        else
+        {
+            separate();
+        }
+    }
+
+    private void separate()
+    {
+        if ( depth > 0 )
+        {
+            if ( nonEmpty[depth - 1] )
+            {
+                append( ',' );
+            }
+            nonEmpty[depth - 1] = true;
+        }
+    }
+
+    private void push( final boolean object )
+    {
+        if ( depth == objects.length )
+        {
+            objects = Arrays.copyOf( objects, depth * 2 );
+            nonEmpty = Arrays.copyOf( nonEmpty, depth * 2 );
+        }
+
+        objects[depth] = object;
+        nonEmpty[depth] = false;
+        depth++;
+    }
+
+    /**
+     * Remember the quoted string just appended at <code>start</code>, if the table has room.
+     */
+    private void share( final List<String> table, final int start )
+    {
+        if ( table.size() < MAX_SHARED )
+        {
+            table.add( new String( text, start, textLimit - start ) );
+        }
+    }
+
+    private String lookup( final List<String> table )
+        throws IOException
+    {
+        final long index = readVarLong();
+        if ( index >= table.size() )
+        {
+            throw malformed();
+        }
+
+        return table.get( (int) index );
+    }
+
+    /**
+     * Decode a UTF-8 string of the given UTF-16 length and append it quoted and escaped.
+     */
+    private void appendString( final int length )
+        throws IOException
+    {
+        append( '"' );
+
+        int produced = 0;
+        while ( produced < length )
+        {
+            if ( pos >= limit && !fill() )
+            {
+                throw truncated();
+            }
+
+            // ASCII fast path.
+            final byte[] b = buf;
+            while ( produced < length && pos < limit && b[pos] >= 0 )
+            {
+                appendEscaped( (char) b[pos++] );
+                produced++;
+            }
+
+            if ( produced == length || pos >= limit )
+            {
+                continue;
+            }
+
+            final int lead = b[pos++] & 0xFF;
+            if ( lead >= 0xC2 && lead <= 0xDF )
+            {
+                appendEscaped( (char) ( ( ( lead & 0x1F ) << 6 ) | continuation() ) );
+                produced++;
+            }
+            else if ( lead >= 0xE0 && lead <= 0xEF )
+            {
+                final int c = ( ( lead & 0x0F ) << 12 ) | ( continuation() << 6 ) | continuation();
+                if ( c < 0x800 || ( c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE ) )
+                {
+                    throw malformed();
+                }
+
+                appendEscaped( (char) c );
+                produced++;
+            }
+            else if ( lead >= 0xF0 && lead <= 0xF4 && produced + 2 <= length )
+            {
+                final int cp =
+                    ( ( lead & 0x07 ) << 18 ) | ( continuation() << 12 ) | ( continuation() << 6 ) | continuation();
+                if ( cp < 0x10000 || cp > 0x10FFFF )
+                {
+                    throw malformed();
+                }
+
+                append( (char) ( 0xD800 | ( ( cp - 0x10000 ) >> 10 ) ) );
+                append( (char) ( 0xDC00 | ( cp & 0x3FF ) ) );
+                produced += 2;
+            }
+            else
+            {
+                throw malformed();
+            }
+        }
+
+        append( '"' );
+    }
+
+    /**
+     * Append a number literal, allowing only characters that can't change the structure of the text.
+     */
+    private void appendNumber( final int length )
+        throws IOException
+    {
+        if ( length == 0 )
+        {
+            throw malformed();
+        }
+
+        for ( int i = 0; i < length; i++ )
+        {
+            final int c = readByte();
+            if ( !( ( c >= '0' && c <= '9' ) || ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) || c == '-'
+                || c == '+' || c == '.' ) )
+            {
+                throw malformed();
+            }
+
+            append( (char) c );
+        }
+    }
+
+    private int continuation()
+        throws IOException
+    {
+        final int b = readByte();
+        if ( ( b & 0xC0 ) != 0x80 )
+        {
+            throw malformed();
+        }
+
+        return b & 0x3F;
+    }
+
+    private void appendEscaped( final char c )
+    {
+        if ( c == '"' || c == '\\' )
+        {
+            append( '\\' );
+            append( c );
+        }
+        else if ( c < 0x20 )
+        {
+            append( "\\u00" );
+            append( HEX[c >> 4] );
+            append( HEX[c & 0xF] );
+        }
+        else
+        {
+            append( c );
+        }
+    }
+
+    private void append( final char c )
+    {
+        if ( textLimit == text.length )
+        {
+            grow( 1 );
+        }
+
+        text[textLimit++] = c;
+    }
+
+    private void append( final String s )
+    {
+        final int len = s.length();
+        if ( text.length - textLimit < len )
+        {
+            grow( len );
+        }
+
+        s.getChars( 0, len, text, textLimit );
+        textLimit += len;
+    }
+
+    private void grow( final int needed )
+    {
+        final char[] grown = Arrays.copyOf( text, Math.max( text.length * 2, textLimit + needed ) );
+        pool.releaseChars( text );
+        text = grown;
+    }
+
+    private int readLength()
+        throws IOException
+    {
+        final long length = readVarLong();
+        if ( length > Integer.MAX_VALUE )
+        {
+            throw malformed();
+        }
+
+        return (int) length;
+    }
+
+    private long readVarLong()
+        throws IOException
+    {
+        long value = 0;
+        for ( int shift = 0; shift < 64; shift += 7 )
+        {
+            final int b = readByte();
+            value |= (long) ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+            {
+                return value;
+            }
+        }
+
+        throw malformed();
+    }
+
+    private long readFixed( final int bytes )
+        throws IOException
+    {
+        long value = 0;
+        for ( int i = 0; i < bytes; i++ )
+        {
+            value = ( value << 8 ) | readByte();
+        }
+
+        return value;
+    }
+
+    private int readByte()
+        throws IOException
+    {
+        if ( pos >= limit && !fill() )
+        {
+            throw truncated();
+        }
+
+        return buf[pos++] & 0xFF;
+    }
+
+    /**
+     * @return false at end of input
+     */
+    private boolean fill()
+        throws IOException
+    {
+        final int read = in.read( buf, 0, buf.length );
+        if ( read < 0 )
+        {
+            return false;
+        }
+
+        pos = 0;
+        limit = read;
+        byteCount += read;
+        return true;
+    }
+
+    private IOException malformed()
+    {
+        return new IOException( "Malformed binary JSON document near byte " + ( byteCount - limit + pos ) + "." );
+    }
+
+    /**
+     * Not an {@link java.io.EOFException}: before the first token Gson takes that for an empty document and returns
+     * null, where a document cut short after its header is corrupt.
+     */
+    private IOException truncated()
+    {
+        return new MalformedJsonException( "Truncated binary JSON document at byte " + byteCount + "." );
+    }
+
+        private void ensureOpen()
+        throws IOException
+    {
+        if ( buf == null )
+        {
+            throw new IOException( "Reader already released." );
+        }
+    }
+
+}
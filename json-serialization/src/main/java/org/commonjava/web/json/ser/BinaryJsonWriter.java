@@ -0,0 +1,459 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import static org.commonjava.web.json.ser.BinaryJson.BEGIN_ARRAY;
+import static org.commonjava.web.json.ser.BinaryJson.BEGIN_OBJECT;
+import static org.commonjava.web.json.ser.BinaryJson.DOUBLE;
+import static org.commonjava.web.json.ser.BinaryJson.END;
+import static org.commonjava.web.json.ser.BinaryJson.FALSE;
+import static org.commonjava.web.json.ser.BinaryJson.FLOAT;
+import static org.commonjava.web.json.ser.BinaryJson.HEADER;
+import static org.commonjava.web.json.ser.BinaryJson.LONG;
+import static org.commonjava.web.json.ser.BinaryJson.MAX_SHARED;
+import static org.commonjava.web.json.ser.BinaryJson.MAX_SHARED_STRING_LENGTH;
+import static org.commonjava.web.json.ser.BinaryJson.NAME;
+import static org.commonjava.web.json.ser.BinaryJson.NAME_REF;
+import static org.commonjava.web.json.ser.BinaryJson.NULL;
+import static org.commonjava.web.json.ser.BinaryJson.NUMBER;
+import static org.commonjava.web.json.ser.BinaryJson.STRING;
+import static org.commonjava.web.json.ser.BinaryJson.STRING_REF;
+import static org.commonjava.web.json.ser.BinaryJson.TRUE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * {@link JsonWriter} that emits the {@link BinaryJson} encoding into a pooled byte buffer instead of JSON text, so
+ * every registered type adapter writes the binary form unchanged. Like {@link PooledStreamEncoder},
+ * {@link #finish()} writes pending output and releases the buffer; the target stream is flushed but never closed.
+ */
+final class BinaryJsonWriter
+    extends JsonWriter
+{
+
+    private static final Writer UNUSED = new Writer()
+    {
+        @Override
+        public void write( final char[] cbuf, final int off, final int len )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    };
+
+    private final OutputStream out;
+
+    private final JsonBufferPool pool;
+
+    private byte[] buf;
+
+    private int count;
+
+    private long byteCount;
+
+    private String deferredName;
+
+    private final Map<String, Integer> names = new HashMap<String, Integer>();
+
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    BinaryJsonWriter( final OutputStream out, final JsonBufferPool pool )
+    {
+        super( UNUSED );
+        this.out = out;
+        this.pool = pool;
+        this.buf = pool.acquireBytes();
+
+        System.arraycopy( HEADER, 0, buf, 0, HEADER.length );
+        count = HEADER.length;
+    }
+
+    @Override
+    public JsonWriter beginArray()
+        throws IOException
+    {
+        writeDeferredName();
+        put( BEGIN_ARRAY );
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray()
+        throws IOException
+    {
+        put( END );
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject()
+        throws IOException
+    {
+        writeDeferredName();
+        put( BEGIN_OBJECT );
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject()
+        throws IOException
+    {
+        put( END );
+        return this;
+    }
+
+    @Override
+    public JsonWriter name( final String name )
+        throws IOException
+    {
+        if ( name == null )
+        {
+            throw new NullPointerException( "name == null" );
+        }
+
+        if ( deferredName != null )
+        {
+            throw new IllegalStateException();
+        }
+
+        deferredName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value( final String value )
+        throws IOException
+    {
+        if ( value == null )
+        {
+            return nullValue();
+        }
+
+        writeDeferredName();
+        if ( value.length() <= MAX_SHARED_STRING_LENGTH )
+        {
+            writeShared( STRING, STRING_REF, strings, value );
+        }
+        else
+        {
+            put( STRING );
+            putString( value );
+        }
+
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue()
+        throws IOException
+    {
+        if ( deferredName != null )
+        {
+            if ( !getSerializeNulls() )
+            {
+                // skip the name and the value, as JsonWriter does.
+                deferredName = null;
+                return this;
+            }
+
+            writeDeferredName();
+        }
+
+        put( NULL );
+        return this;
+    }
+
+    @Override
+    public JsonWriter value( final boolean value )
+        throws IOException
+    {
+        writeDeferredName();
+        put( value ? TRUE : FALSE );
+        return this;
+    }
+
+    @Override
+    public JsonWriter value( final double value )
+        throws IOException
+    {
+        writeDeferredName();
+        put( DOUBLE );
+        putFixed( Double.doubleToRawLongBits( value ), 8 );
+        return this;
+    }
+
+    @Override
+    public JsonWriter value( final long value )
+        throws IOException
+    {
+        writeDeferredName();
+        put( LONG );
+        putVarLong( ( value << 1 ) ^ ( value >> 63 ) );
+        return this;
+    }
+
+    @Override
+    public JsonWriter value( final Number value )
+        throws IOException
+    {
+        if ( value == null )
+        {
+            return nullValue();
+        }
+
+        if ( value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+            || value instanceof AtomicInteger || value instanceof AtomicLong )
+        {
+            return value( value.longValue() );
+        }
+        else if ( value instanceof Double )
+        {
+            return value( value.doubleValue() );
+        }
+
+        writeDeferredName();
+        if ( value instanceof Float )
+        {
+            // keep Float.toString() formatting rather than that of the widened double.
+            put( FLOAT );
+            putFixed( Float.floatToRawIntBits( value.floatValue() ), 4 );
+        }
+        else
+        {
+            put( NUMBER );
+            putString( value.toString() );
+        }
+
+        return this;
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        ensureOpen();
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        finish();
+    }
+
+    /**
+     * Flush everything written so far through to the target and release the pooled buffer.
+     */
+    void finish()
+        throws IOException
+    {
+        if ( buf == null )
+        {
+            return;
+        }
+
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    void release()
+    {
+        final byte[] b = buf;
+        buf = null;
+        count = 0;
+        pool.releaseBytes( b );
+    }
+
+    /**
+     * @return bytes passed through to the target stream so far
+     */
+    long getByteCount()
+    {
+        return byteCount;
+    }
+
+    private void writeDeferredName()
+        throws IOException
+    {
+        if ( deferredName != null )
+        {
+            writeShared( NAME, NAME_REF, names, deferredName );
+            deferredName = null;
+        }
+    }
+
+    private void writeShared( final int tag, final int refTag, final Map<String, Integer> table, final String value )
+        throws IOException
+    {
+        final Integer ref = table.get( value );
+        if ( ref != null )
+        {
+            put( refTag );
+            putVarLong( ref );
+            return;
+        }
+
+        if ( table.size() < MAX_SHARED )
+        {
+            table.put( value, table.size() );
+        }
+
+        put( tag );
+        putString( value );
+    }
+
+    /**
+     * Write the UTF-16 length, then the UTF-8 bytes. Unpaired surrogates are written as <code>'?'</code>.
+     */
+    private void putString( final String value )
+        throws IOException
+    {
+        final int len = value.length();
+        putVarLong( len );
+
+        int i = 0;
+        while ( i < len )
+        {
+            if ( buf.length - count < 4 )
+            {
+                flushBuffer();
+            }
+
+            // ASCII fast path.
+            final int max = Math.min( len, i + buf.length - count );
+            char c;
+            while ( i < max && ( c = value.charAt( i ) ) < 0x80 )
+            {
+                buf[count++] = (byte) c;
+                i++;
+            }
+
+            if ( i == len || buf.length - count < 4 )
+            {
+                continue;
+            }
+
+            c = value.charAt( i++ );
+            if ( c < 0x800 )
+            {
+                buf[count++] = (byte) ( 0xC0 | ( c >> 6 ) );
+                buf[count++] = (byte) ( 0x80 | ( c & 0x3F ) );
+            }
+            else if ( c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE )
+            {
+                buf[count++] = (byte) ( 0xE0 | ( c >> 12 ) );
+                buf[count++] = (byte) ( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+                buf[count++] = (byte) ( 0x80 | ( c & 0x3F ) );
+            }
+            else if ( Character.isHighSurrogate( c ) && i < len && Character.isLowSurrogate( value.charAt( i ) ) )
+            {
+                final int cp = Character.toCodePoint( c, value.charAt( i++ ) );
+                buf[count++] = (byte) ( 0xF0 | ( cp >> 18 ) );
+                buf[count++] = (byte) ( 0x80 | ( ( cp >> 12 ) & 0x3F ) );
+                buf[count++] = (byte) ( 0x80 | ( ( cp >> 6 ) & 0x3F ) );
+                buf[count++] = (byte) ( 0x80 | ( cp & 0x3F ) );
+            }
+            else
+            {
+                buf[count++] = '?';
+            }
+        }
+    }
+
+    private void putVarLong( long value )
+        throws IOException
+    {
+        if ( buf.length - count < 10 )
+        {
+            flushBuffer();
+        }
+
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            buf[count++] = (byte) ( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+
+        buf[count++] = (byte) value;
+    }
+
+    private void putFixed( final long value, final int bytes )
+        throws IOException
+    {
+        if ( buf.length - count < bytes )
+        {
+            flushBuffer();
+        }
+
+        for ( int shift = ( bytes - 1 ) * 8; shift >= 0; shift -= 8 )
+        {
+            buf[count++] = (byte) ( value >> shift );
+        }
+    }
+
+    private void put( final int tag )
+        throws IOException
+    {
+        ensureOpen();
+        if ( count == buf.length )
+        {
+            flushBuffer();
+        }
+
+        buf[count++] = (byte) tag;
+    }
+
+    private void flushBuffer()
+        throws IOException
+    {
+        if ( count > 0 )
+        {
+            out.write( buf, 0, count );
+            byteCount += count;
+            count = 0;
+        }
+    }
+
+    private void ensureOpen()
+        throws IOException
+    {
+        if ( buf == null )
+        {
+            throw new IOException( "Writer already finished." );
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader that passes everything through from the underlying reader, while keeping a copy of at most the first
+ * <code>limit</code> characters for logging.
+ */
+final class CapturingReader
+    extends FilterReader
+{
+
+    private final StringBuilder captured;
+
+    private final int limit;
+
+    private boolean truncated;
+
+    CapturingReader( final Reader in, final int limit )
+    {
+        super( in );
+        this.limit = limit;
+        this.captured = new StringBuilder( Math.min( limit, 1024 ) );
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int c = super.read();
+        if ( c > -1 )
+        {
+            capture( (char) c );
+        }
+
+        return c;
+    }
+
+    @Override
+    public int read( final char[] cbuf, final int off, final int len )
+        throws IOException
+    {
+        final int read = super.read( cbuf, off, len );
+        if ( read > 0 )
+        {
+            final int remaining = limit - captured.length();
+            if ( remaining >= read )
+            {
+                captured.append( cbuf, off, read );
+            }
+            else
+            {
+                if ( remaining > 0 )
+                {
+                    captured.append( cbuf, off, remaining );
+                }
+                truncated = true;
+            }
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip( final long n )
+        throws IOException
+    {
+        // route through read(..) so skipped content is captured too.
+        final char[] buf = new char[(int) Math.min( n, 1024 )];
+        long skipped = 0;
+        while ( skipped < n )
+        {
+            final int read = read( buf, 0, (int) Math.min( buf.length, n - skipped ) );
+            if ( read < 0 )
+            {
+                break;
+            }
+            skipped += read;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    private void capture( final char c )
+    {
+        if ( captured.length() < limit )
+        {
+            captured.append( c );
+        }
+        else
+        {
+            truncated = true;
+        }
+    }
+
+    public String getCaptured()
+    {
+        return truncated ? captured.toString() + "...[truncated]" : captured.toString();
+    }
+
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP content codings for (de)serialized bodies. {@link #encode(OutputStream)} and {@link #decode(InputStream)} wrap
+ * a stream so the serializer compresses or decompresses as it goes, without buffering the whole body. Closing the
+ * wrapper finishes the compressed data and frees the native (de)compressor, but leaves the wrapped stream open.
+ */
+public enum ContentEncoding
+{
+    IDENTITY( "identity" ), GZIP( "gzip" ), DEFLATE( "deflate" );
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+
+    private ContentEncoding( final String token )
+    {
+        this.token = token;
+    }
+
+    public String getToken()
+    {
+        return token;
+    }
+
+    public OutputStream encode( final OutputStream out )
+        throws IOException
+    {
+        switch ( this )
+        {
+            case GZIP:
+                return new GZIPOutputStream( new NonClosingOutputStream( out ), BUFFER_SIZE );
+            case DEFLATE:
+                return new DeflaterOutputStream( new NonClosingOutputStream( out ), new Deflater(),
+                                                 BUFFER_SIZE )
+                {
+                    @Override
+                    public void close()
+                        throws IOException
+                    {
+                        try
+                        {
+                            super.close();
+                        }
+                        finally
+                        {
+                            def.end();
+                        }
+                    }
+                };
+            default:
+                return new NonClosingOutputStream( out );
+        }
+    }
+
+    public InputStream decode( final InputStream in )
+        throws IOException
+    {
+        switch ( this )
+        {
+            case GZIP:
+                return new GZIPInputStream( new NonClosingInputStream( in ), BUFFER_SIZE );
+            case DEFLATE:
+                return new InflaterInputStream( new NonClosingInputStream( in ), new Inflater(),
+                                                BUFFER_SIZE )
+                {
+                    @Override
+                    public void close()
+                        throws IOException
+                    {
+                        try
+                        {
+                            super.close();
+                        }
+                        finally
+                        {
+                            inf.end();
+                        }
+                    }
+                };
+            default:
+                return new NonClosingInputStream( in );
+        }
+    }
+
+    /**
+     * @return the coding named by a Content-Encoding header (none means {@link #IDENTITY}), or null if it isn't
+     *         supported
+     */
+    public static ContentEncoding forHeader( final String contentEncoding )
+    {
+        if ( contentEncoding == null )
+        {
+            return IDENTITY;
+        }
+
+        final String value = contentEncoding.trim();
+        if ( value.length() == 0 || IDENTITY.token.equalsIgnoreCase( value ) )
+        {
+            return IDENTITY;
+        }
+        else if ( GZIP.token.equalsIgnoreCase( value ) || "x-gzip".equalsIgnoreCase( value ) )
+        {
+            return GZIP;
+        }
+        else if ( DEFLATE.token.equalsIgnoreCase( value ) )
+        {
+            return DEFLATE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Pick the coding for a response from an Accept-Encoding header: the acceptable compressed coding with the
+     * highest quality (gzip on a tie), or {@link #IDENTITY} if neither is acceptable.
+     */
+    public static ContentEncoding negotiate( final String acceptEncoding )
+    {
+        if ( acceptEncoding == null )
+        {
+            return IDENTITY;
+        }
+
+        float gzip = -1;
+        float deflate = -1;
+        float any = -1;
+        for ( final String entry : acceptEncoding.split( "," ) )
+        {
+            final int idx = entry.indexOf( ';' );
+            final String coding = ( idx < 0 ? entry : entry.substring( 0, idx ) ).trim();
+            final float quality = idx < 0 ? 1 : quality( entry.substring( idx + 1 ) );
+            if ( GZIP.token.equalsIgnoreCase( coding ) || "x-gzip".equalsIgnoreCase( coding ) )
+            {
+                gzip = quality;
+            }
+            else if ( DEFLATE.token.equalsIgnoreCase( coding ) )
+            {
+                deflate = quality;
+            }
+            else if ( "*".equals( coding ) )
+            {
+                any = quality;
+            }
+        }
+
+        // codings not listed take the quality of "*", if given.
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if ( gzip > 0 && gzip >= deflate )
+        {
+            return GZIP;
+        }
+        else if ( deflate > 0 )
+        {
+            return DEFLATE;
+        }
+
+        return IDENTITY;
+    }
+
+    private static float quality( final String params )
+    {
+        for ( final String param : params.split( ";" ) )
+        {
+            final String p = param.trim();
+            if ( p.startsWith( "q=" ) )
+            {
+                try
+                {
+                    return Float.parseFloat( p.substring( 2 ) );
+                }
+                catch ( final NumberFormatException e )
+                {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
+
+    private static final class NonClosingOutputStream
+        extends FilterOutputStream
+    {
+        NonClosingOutputStream( final OutputStream out )
+        {
+            super( out );
+        }
+
+        @Override
+        public void write( final byte[] b, final int off, final int len )
+            throws IOException
+        {
+            out.write( b, off, len );
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            flush();
+        }
+    }
+
+    private static final class NonClosingInputStream
+        extends FilterInputStream
+    {
+        NonClosingInputStream( final InputStream in )
+        {
+            super( in );
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class for which the json-adapter-processor annotation processor should generate a reflection-free
+ * Gson adapter at compile time. The generated <code>&lt;Name&gt;JsonAdapter</code> class is a
+ * {@link WebSerializationAdapter} listed in <code>META-INF/services</code>, so {@link JsonSerializer} picks it up
+ * automatically.
+ * <p>
+ * The class needs a non-private no-arg constructor. Its non-static, non-transient fields (including inherited ones)
+ * must be either non-private and non-final, or have getter/setter methods.
+ * <p>
+ * Names come from the fields (or <code>@SerializedName</code>) at compile time, so a FieldNamingPolicy or
+ * ExclusionStrategy registered on the GsonBuilder doesn't apply to the class; <code>@Expose</code>,
+ * <code>@Since</code> and <code>@Until</code> are rejected by the processor.
+ */
+@Retention( RetentionPolicy.CLASS )
+@Target( ElementType.TYPE )
+public @interface GenerateJsonAdapter
+{
+
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Helpers called from adapters generated for {@link GenerateJsonAdapter} classes. The token readers accept the same
+ * loosely-typed input as Gson's built-in adapters (e.g. booleans given as strings). Callers handle JSON null
+ * themselves before calling the primitive readers.
+ */
+public final class GeneratedAdapterSupport
+{
+
+    private GeneratedAdapterSupport()
+    {
+    }
+
+    /**
+     * Write a non-null value of a field declared as a plain class the way Gson's reflective adapter does: with the
+     * adapter for the value's runtime class when that is a subclass, unless only the declared type has an adapter of
+     * its own (the runtime class would be written reflectively).
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <T> void writeRuntimeType( final Gson gson, final TypeAdapter<T> declared, final Class<?> declaredType,
+                                             final JsonWriter out, final T value )
+        throws IOException
+    {
+        TypeAdapter<T> chosen = declared;
+        if ( value.getClass() != declaredType )
+        {
+            final TypeAdapter<T> runtime = (TypeAdapter<T>) gson.getAdapter( value.getClass() );
+            if ( !( runtime instanceof ReflectiveTypeAdapterFactory.Adapter )
+                || declared instanceof ReflectiveTypeAdapterFactory.Adapter )
+            {
+                chosen = runtime;
+            }
+        }
+
+        chosen.write( out, value );
+    }
+
+    public static String readString( final JsonReader in )
+        throws IOException
+    {
+        final JsonToken token = in.peek();
+        if ( token == JsonToken.NULL )
+        {
+            in.nextNull();
+            return null;
+        }
+        else if ( token == JsonToken.BOOLEAN )
+        {
+            return Boolean.toString( in.nextBoolean() );
+        }
+
+        return in.nextString();
+    }
+
+    public static boolean nextBoolean( final JsonReader in )
+        throws IOException
+    {
+        if ( in.peek() == JsonToken.STRING )
+        {
+            return Boolean.parseBoolean( in.nextString() );
+        }
+
+        return in.nextBoolean();
+    }
+
+    public static int nextInt( final JsonReader in )
+        throws IOException
+    {
+        try
+        {
+            return in.nextInt();
+        }
+        catch ( final NumberFormatException e )
+        {
+            throw new JsonSyntaxException( e );
+        }
+    }
+
+    public static long nextLong( final JsonReader in )
+        throws IOException
+    {
+        try
+        {
+            return in.nextLong();
+        }
+        catch ( final NumberFormatException e )
+        {
+            throw new JsonSyntaxException( e );
+        }
+    }
+
+    public static double nextDouble( final JsonReader in )
+        throws IOException
+    {
+        try
+        {
+            return in.nextDouble();
+        }
+        catch ( final NumberFormatException e )
+        {
+            throw new JsonSyntaxException( e );
+        }
+    }
+
+    public static char nextChar( final JsonReader in )
+        throws IOException
+    {
+        final String str = in.nextString();
+        if ( str.length() != 1 )
+        {
+            throw new JsonSyntaxException( "Expecting character, got: " + str );
+        }
+
+        return str.charAt( 0 );
+    }
+
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-local pool of the buffers and charset coders {@link JsonSerializer} needs for streaming reads and writes,
+ * so steady-state (de)serialization doesn't allocate them per call. Each thread keeps at most one instance of each
+ * resource; a resource is handed out at most once at a time, so nested use on the same thread just allocates (and
+ * counts a miss).
+ * <p>
+ * String builders used by <code>toString(..)</code> are only kept while their capacity stays below
+ * {@link #getMaxRetainedChars()}, so one huge document doesn't pin memory for the life of the thread.
+ */
+public final class JsonBufferPool
+{
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    public static final int DEFAULT_MAX_RETAINED_CHARS = 256 * 1024;
+
+    /**
+     * Smallest buffer that can always hold one complete encoded character, in any charset.
+     */
+    public static final int MIN_BUFFER_SIZE = 16;
+
+    private final int bufferSize;
+
+    private final int maxRetainedChars;
+
+    private final ThreadLocal<Slot> slots = new ThreadLocal<Slot>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public JsonBufferPool()
+    {
+        this( DEFAULT_BUFFER_SIZE, DEFAULT_MAX_RETAINED_CHARS );
+    }
+
+    /**
+     * @param bufferSize size of pooled char and byte buffers
+     * @param maxRetainedChars largest string builder capacity that will be returned to the pool
+     */
+    public JsonBufferPool( final int bufferSize, final int maxRetainedChars )
+    {
+        if ( bufferSize < MIN_BUFFER_SIZE )
+        {
+            throw new IllegalArgumentException( "Buffer size must be at least " + MIN_BUFFER_SIZE + "." );
+        }
+
+        this.bufferSize = bufferSize;
+        this.maxRetainedChars = maxRetainedChars;
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public int getMaxRetainedChars()
+    {
+        return maxRetainedChars;
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    char[] acquireChars()
+    {
+        final Slot slot = slot();
+        final char[] buf = slot.chars;
+        if ( buf == null )
+        {
+            misses.incrementAndGet();
+            return new char[bufferSize];
+        }
+
+        hits.incrementAndGet();
+        slot.chars = null;
+        return buf;
+    }
+
+    void releaseChars( final char[] buf )
+    {
+        if ( buf != null && buf.length == bufferSize )
+        {
+            slot().chars = buf;
+        }
+    }
+
+    byte[] acquireBytes()
+    {
+        final Slot slot = slot();
+        final byte[] buf = slot.bytes;
+        if ( buf == null )
+        {
+            misses.incrementAndGet();
+            return new byte[bufferSize];
+        }
+
+        hits.incrementAndGet();
+        slot.bytes = null;
+        return buf;
+    }
+
+    void releaseBytes( final byte[] buf )
+    {
+        if ( buf != null && buf.length == bufferSize )
+        {
+            slot().bytes = buf;
+        }
+    }
+
+    StringBuilder acquireBuilder()
+    {
+        final Slot slot = slot();
+        final StringBuilder sb = slot.builder;
+        if ( sb == null )
+        {
+            misses.incrementAndGet();
+            return new StringBuilder( bufferSize );
+        }
+
+        hits.incrementAndGet();
+        slot.builder = null;
+        sb.setLength( 0 );
+        return sb;
+    }
+
+    void releaseBuilder( final StringBuilder sb )
+    {
+        if ( sb != null && sb.capacity() <= maxRetainedChars )
+        {
+            slot().builder = sb;
+        }
+    }
+
+    CharsetDecoder acquireDecoder( final Charset charset )
+    {
+        final CharsetDecoder decoder = slot().decoders.remove( charset );
+        if ( decoder == null )
+        {
+            misses.incrementAndGet();
+            return charset.newDecoder()
+                          .onMalformedInput( CodingErrorAction.REPLACE )
+                          .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        }
+
+        hits.incrementAndGet();
+        return decoder.reset();
+    }
+
+    void releaseDecoder( final CharsetDecoder decoder )
+    {
+        if ( decoder != null )
+        {
+            slot().decoders.put( decoder.charset(), decoder );
+        }
+    }
+
+    CharsetEncoder acquireEncoder( final Charset charset )
+    {
+        final CharsetEncoder encoder = slot().encoders.remove( charset );
+        if ( encoder == null )
+        {
+            misses.incrementAndGet();
+            return charset.newEncoder()
+                          .onMalformedInput( CodingErrorAction.REPLACE )
+                          .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        }
+
+        hits.incrementAndGet();
+        return encoder.reset();
+    }
+
+    void releaseEncoder( final CharsetEncoder encoder )
+    {
+        if ( encoder != null )
+        {
+            slot().encoders.put( encoder.charset(), encoder );
+        }
+    }
+
+    private Slot slot()
+    {
+        Slot slot = slots.get();
+        if ( slot == null )
+        {
+            slot = new Slot();
+            slots.set( slot );
+        }
+
+        return slot;
+    }
+
+    private static final class Slot
+    {
+        private char[] chars;
+
+        private byte[] bytes;
+
+        private StringBuilder builder;
+
+        private final Map<Charset, CharsetDecoder> decoders = new HashMap<Charset, CharsetDecoder>( 4 );
+
+        private final Map<Charset, CharsetEncoder> encoders = new HashMap<Charset, CharsetEncoder>( 4 );
+    }
+
+}
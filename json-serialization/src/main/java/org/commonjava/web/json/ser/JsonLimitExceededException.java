@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+/**
+ * Thrown when a document being parsed exceeds one of the configured {@link JsonLimits}. The parse is abandoned as
+ * soon as the limit is crossed.
+ */
+public class JsonLimitExceededException
+    extends RuntimeException
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private final String limit;
+
+    private final long maximum;
+
+    private final long actual;
+
+    public JsonLimitExceededException( final String limit, final long maximum, final long actual )
+    {
+        super( "JSON " + limit + " limit exceeded: " + actual + " > " + maximum );
+        this.limit = limit;
+        this.maximum = maximum;
+        this.actual = actual;
+    }
+
+    /**
+     * @return which limit was exceeded: <code>bytes</code>, <code>depth</code>, <code>array length</code> or
+     *         <code>string length</code>
+     */
+    public String getLimit()
+    {
+        return limit;
+    }
+
+    public long getMaximum()
+    {
+        return maximum;
+    }
+
+    /**
+     * @return the size reached when the parse was aborted (which may be less than the full size of the document)
+     */
+    public long getActual()
+    {
+        return actual;
+    }
+
+}
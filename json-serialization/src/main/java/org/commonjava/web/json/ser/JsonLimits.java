@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+/**
+ * Upper bounds {@link JsonSerializer} enforces while parsing, so a single oversized or hostile document can't
+ * exhaust the heap. Each limit is checked as the document is read, and the first one exceeded aborts the parse with a
+ * {@link JsonLimitExceededException}. A value of zero or less disables that limit.
+ * <p>
+ * The string length is the exception: Gson's reader hands out a string only once it has read all of it, so an
+ * oversized string is held in memory in full before it is rejected. Only <code>maxBytes</code> bounds that, and only
+ * for streams.
+ */
+public final class JsonLimits
+{
+
+    public static final JsonLimits UNLIMITED = new JsonLimits( 0, 0, 0, 0 );
+
+    private final long maxBytes;
+
+    private final int maxDepth;
+
+    private final int maxArrayLength;
+
+    private final int maxStringLength;
+
+    /**
+     * @param maxBytes largest document read from a stream, in bytes (for strings, the length in chars is checked
+     *            instead)
+     * @param maxDepth deepest nesting of objects and arrays
+     * @param maxArrayLength most elements in any one array
+     * @param maxStringLength longest string value or member name, in chars (checked once the string has been read)
+     */
+    public JsonLimits( final long maxBytes, final int maxDepth, final int maxArrayLength, final int maxStringLength )
+    {
+        this.maxBytes = maxBytes;
+        this.maxDepth = maxDepth;
+        this.maxArrayLength = maxArrayLength;
+        this.maxStringLength = maxStringLength;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    public int getMaxArrayLength()
+    {
+        return maxArrayLength;
+    }
+
+    public int getMaxStringLength()
+    {
+        return maxStringLength;
+    }
+
+    /**
+     * @return true if any of the structural limits (depth, array length, string length) are set
+     */
+    boolean isStructureLimited()
+    {
+        return maxDepth > 0 || maxArrayLength > 0 || maxStringLength > 0;
+    }
+
+    /**
+     * Fail if a payload of the given size (-1 if unknown) is already known to be too large.
+     */
+    void checkSize( final long size )
+    {
+        if ( maxBytes > 0 && size > maxBytes )
+        {
+            throw new JsonLimitExceededException( "bytes", maxBytes, size );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "JsonLimits [maxBytes=" + maxBytes + ", maxDepth=" + maxDepth + ", maxArrayLength=" + maxArrayLength
+            + ", maxStringLength=" + maxStringLength + "]";
+    }
+
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+/**
+ * Minimal strict-JSON scanner over a region of a string: it only finds where values start and end, without decoding
+ * anything. Each skip/consume method returns false on anything unexpected (including Gson's lenient extensions),
+ * so callers can fall back to a real parse.
+ */
+abstract class JsonScanner
+{
+
+    final String src;
+
+    int pos;
+
+    final int limit;
+
+    JsonScanner( final String src, final int start, final int limit )
+    {
+        this.src = src;
+        this.pos = start;
+        this.limit = limit;
+    }
+
+    final boolean skipValue()
+    {
+        if ( pos >= limit )
+        {
+            return false;
+        }
+
+        final char c = src.charAt( pos );
+        if ( c == '"' )
+        {
+            return skipString();
+        }
+        else if ( c == '{' || c == '[' )
+        {
+            return skipContainer();
+        }
+
+        final int start = pos;
+        while ( pos < limit )
+        {
+            final char s = src.charAt( pos );
+            if ( s == ',' || s == '}' || s == ']' || isWhitespace( s ) )
+            {
+                break;
+            }
+            else if ( !( ( s >= 'a' && s <= 'z' ) || ( s >= '0' && s <= '9' ) || s == '-' || s == '+' || s == '.'
+                || s == 'E' ) )
+            {
+                return false;
+            }
+            pos++;
+        }
+
+        return pos > start;
+    }
+
+    final boolean skipContainer()
+    {
+        int depth = 0;
+        while ( pos < limit )
+        {
+            final char c = src.charAt( pos );
+            switch ( c )
+            {
+                case '"':
+                    if ( !skipString() )
+                    {
+                        return false;
+                    }
+                    continue;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    if ( depth == 0 )
+                    {
+                        pos++;
+                        return true;
+                    }
+                    break;
+                case '\'':
+                case '/':
+                case '#':
+                    // lenient syntax; leave it to Gson.
+                    return false;
+                default:
+            }
+            pos++;
+        }
+
+        return false;
+    }
+
+    final boolean skipString()
+    {
+        if ( !consume( '"' ) )
+        {
+            return false;
+        }
+
+        while ( pos < limit )
+        {
+            final char c = src.charAt( pos++ );
+            if ( c == '"' )
+            {
+                return true;
+            }
+            else if ( c == '\\' )
+            {
+                pos++;
+            }
+        }
+
+        return false;
+    }
+
+    final boolean consume( final char c )
+    {
+        if ( pos < limit && src.charAt( pos ) == c )
+        {
+            pos++;
+            return true;
+        }
+
+        return false;
+    }
+
+    final void skipWhitespace()
+    {
+        while ( pos < limit && isWhitespace( src.charAt( pos ) ) )
+        {
+            pos++;
+        }
+    }
+
+    static boolean isWhitespace( final char c )
+    {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+}
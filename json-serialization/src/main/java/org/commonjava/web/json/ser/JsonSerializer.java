@@ -12,16 +12,29 @@ package org.commonjava.web.json.ser;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Field;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Alternative;
@@ -30,14 +43,23 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.commonjava.web.json.metrics.NoOpSerializerMetrics;
+import org.commonjava.web.json.metrics.SerializerMetrics;
+import org.commonjava.web.json.metrics.SerializerOperation;
 import org.commonjava.web.json.model.Listing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
 @ApplicationScoped
 @Alternative
@@ -47,14 +69,68 @@ public class JsonSerializer
 
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    public static final int DEFAULT_DEBUG_CAPTURE_LIMIT = 64 * 1024;
+
+    /**
+     * Fewest items worth handing to a separate task in {@link #parallelListingFromString}.
+     */
+    public static final int MIN_PARALLEL_CHUNK_SIZE = 256;
+
     private static final WebSerializationAdapter[] DEFAULT_ADAPTERS = { new ListingAdapter() };
 
-    private final Set<WebSerializationAdapter> baseAdapters = new HashSet<WebSerializationAdapter>();
+    /**
+     * Cache key used for {@link Gson} instances built without a root type (no annotation scan).
+     */
+    private static final Type NO_ROOT_TYPE = new Type()
+    {
+        @Override
+        public String toString()
+        {
+            return "<none>";
+        }
+    };
+
+    private final Set<WebSerializationAdapter> baseAdapters = new CopyOnWriteArraySet<WebSerializationAdapter>();
+
+    private final ConcurrentMap<Type, Gson> gsonCache = new ConcurrentHashMap<Type, Gson>();
+
+    private final AtomicLong gsonCacheGeneration = new AtomicLong();
+
+    private final AtomicLong gsonCacheHits = new AtomicLong();
+
+    private final AtomicLong gsonCacheMisses = new AtomicLong();
+
+    private final ConcurrentMap<Type, AdapterRegistrationPlan> registrationPlans =
+        new ConcurrentHashMap<Type, AdapterRegistrationPlan>();
+
+    private final ConcurrentMap<Class<? extends WebSerializationAdapter>, WebSerializationAdapter> annotationAdapters =
+        new ConcurrentHashMap<Class<? extends WebSerializationAdapter>, WebSerializationAdapter>();
+
+    private final ConcurrentMap<Class<?>, PostProcessPlan> postProcessPlans =
+        new ConcurrentHashMap<Class<?>, PostProcessPlan>();
+
+    private volatile List<WebSerializationAdapter> serviceAdapters;
+
+    private JsonBufferPool bufferPool = new JsonBufferPool();
+
+    private boolean utf8FastPath = true;
+
+    private JsonLimits limits = JsonLimits.UNLIMITED;
+
+    private int debugCaptureLimit = DEFAULT_DEBUG_CAPTURE_LIMIT;
+
+    private volatile SerializerMetrics metrics;
 
     @Inject
     @Any
     Instance<WebSerializationAdapter> adapterInstance;
 
+    @Inject
+    @Any
+    Instance<SerializerMetrics> metricsInstance;
+
     JsonSerializer()
     {
     }
@@ -67,14 +143,170 @@ public class JsonSerializer
     public void registerSerializationAdapters( final WebSerializationAdapter... adapters )
     {
         this.baseAdapters.addAll( Arrays.asList( adapters ) );
+        invalidateGsonCache();
+    }
+
+    /**
+     * Drop all cached {@link Gson} instances, forcing them to be rebuilt (with the current set of adapters) on next
+     * use.
+     */
+    public void invalidateGsonCache()
+    {
+        gsonCacheGeneration.incrementAndGet();
+        gsonCache.clear();
+    }
+
+    public JsonBufferPool getBufferPool()
+    {
+        return bufferPool;
+    }
+
+    /**
+     * Replace the pool of reusable buffers used for streaming reads/writes and <code>toString(..)</code>, e.g. to
+     * change its sizing.
+     */
+    public void setBufferPool( final JsonBufferPool bufferPool )
+    {
+        this.bufferPool = bufferPool;
+    }
+
+    public JsonLimits getLimits()
+    {
+        return limits;
+    }
+
+    /**
+     * Set the limits enforced while parsing; {@link JsonLimits#UNLIMITED} (the default) turns them off.
+     */
+    public void setLimits( final JsonLimits limits )
+    {
+        this.limits = limits == null ? JsonLimits.UNLIMITED : limits;
+    }
+
+    public boolean isUtf8FastPath()
+    {
+        return utf8FastPath;
+    }
+
+    /**
+     * Whether UTF-8 streams are decoded by a dedicated reader with an ASCII fast path (the default), rather than a
+     * general-purpose {@link java.nio.charset.CharsetDecoder}.
+     */
+    public void setUtf8FastPath( final boolean utf8FastPath )
+    {
+        this.utf8FastPath = utf8FastPath;
+    }
+
+    public int getDebugCaptureLimit()
+    {
+        return debugCaptureLimit;
+    }
+
+    /**
+     * Set the maximum number of characters of a streamed JSON body to include in debug logging. Zero disables
+     * capturing entirely.
+     */
+    public void setDebugCaptureLimit( final int debugCaptureLimit )
+    {
+        this.debugCaptureLimit = debugCaptureLimit;
+    }
+
+    /**
+     * @return the metrics receiver: the one set explicitly, else a CDI-provided one if there is exactly one, else
+     *         {@link NoOpSerializerMetrics}
+     */
+    public SerializerMetrics getMetrics()
+    {
+        SerializerMetrics m = metrics;
+        if ( m == null )
+        {
+            m = NoOpSerializerMetrics.INSTANCE;
+            if ( metricsInstance != null && !metricsInstance.isUnsatisfied() )
+            {
+                if ( metricsInstance.isAmbiguous() )
+                {
+                    logger.warn( "More than one SerializerMetrics bean is available; not recording metrics. "
+                        + "Set one with setMetrics(..)." );
+                }
+                else
+                {
+                    m = metricsInstance.get();
+                }
+            }
+
+            metrics = m;
+        }
+
+        return m;
+    }
+
+    /**
+     * Set the metrics receiver, or null to go back to looking one up.
+     */
+    public void setMetrics( final SerializerMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
+
+    public long getGsonCacheHits()
+    {
+        return gsonCacheHits.get();
+    }
+
+    public long getGsonCacheMisses()
+    {
+        return gsonCacheMisses.get();
+    }
+
+    public int getGsonCacheSize()
+    {
+        return gsonCache.size();
     }
 
     private Gson getGson( final Type type )
+    {
+        final Type key = type == null ? NO_ROOT_TYPE : type;
+
+        Gson gson = gsonCache.get( key );
+        if ( gson != null )
+        {
+            gsonCacheHits.incrementAndGet();
+            return gson;
+        }
+
+        gsonCacheMisses.incrementAndGet();
+
+        final long generation = gsonCacheGeneration.get();
+        final long start = System.nanoTime();
+        gson = buildGson( type );
+        getMetrics().record( SerializerOperation.GSON_BUILD, type, System.nanoTime() - start, -1 );
+
+        final Gson existing = gsonCache.putIfAbsent( key, gson );
+        if ( existing != null )
+        {
+            return existing;
+        }
+
+        // don't keep an instance built from an adapter set that was changed while we were building it.
+        if ( generation != gsonCacheGeneration.get() )
+        {
+            gsonCache.remove( key, gson );
+        }
+
+        return gson;
+    }
+
+    private Gson buildGson( final Type type )
     {
         final GsonBuilder builder = new GsonBuilder();
+        for ( final WebSerializationAdapter adapter : getServiceAdapters() )
+        {
+            adapter.register( builder );
+        }
+
         if ( type != null )
         {
-            registerAnnotationAdapters( type, builder, new HashSet<Type>() );
+            getRegistrationPlan( type ).register( builder );
         }
 
         if ( adapterInstance != null )
@@ -101,148 +333,394 @@ public class JsonSerializer
         return builder.create();
     }
 
-    private void registerAnnotationAdapters( final Type type, final GsonBuilder builder, final Set<Type> seen )
+    /**
+     * Adapters listed in <code>META-INF/services/org.commonjava.web.json.ser.WebSerializationAdapter</code> (such as
+     * those generated for {@link GenerateJsonAdapter} classes). These are registered first, so any other adapter for
+     * the same type takes precedence.
+     */
+    private List<WebSerializationAdapter> getServiceAdapters()
     {
-        if ( seen.contains( type ) )
+        List<WebSerializationAdapter> adapters = serviceAdapters;
+        if ( adapters == null )
         {
-            return;
-        }
-
-        seen.add( type );
-        if ( type instanceof Class<?> )
-        {
-            final Class<?> typeCls = (Class<?>) type;
-            final JsonAdapters adapters = typeCls.getAnnotation( JsonAdapters.class );
-            if ( adapters != null )
+            adapters = new ArrayList<WebSerializationAdapter>();
+            final Iterator<WebSerializationAdapter> it = ServiceLoader.load( WebSerializationAdapter.class )
+                                                                      .iterator();
+            while ( it.hasNext() )
             {
-                for ( final Class<? extends WebSerializationAdapter> adapterCls : adapters.value() )
+                try
                 {
-                    try
-                    {
-                        logger.debug( "[REGISTER] JSON adapter from annotation: {}", adapterCls.getName() );
-                        adapterCls.newInstance()
-                                  .register( builder );
-                    }
-                    catch ( final InstantiationException e )
-                    {
-                        throw new RuntimeException( "Cannot instantiate adapter from JsonAdapters annotation: " + adapterCls.getName() );
-                    }
-                    catch ( final IllegalAccessException e )
-                    {
-                        throw new RuntimeException( "Cannot instantiate adapter from JsonAdapters annotation: " + adapterCls.getName() );
-                    }
+                    final WebSerializationAdapter adapter = it.next();
+                    logger.debug( "[REGISTER] JSON adapter from service loader: {}", adapter.getClass()
+                                                                                           .getName() );
+                    adapters.add( adapter );
+                }
+                catch ( final ServiceConfigurationError e )
+                {
+                    logger.warn( "Skipping JSON adapter that cannot be loaded: {}", e.getMessage() );
                 }
             }
 
-            final Field[] fields = typeCls.getDeclaredFields();
-            for ( final Field field : fields )
+            serviceAdapters = adapters;
+        }
+
+        return adapters;
+    }
+
+    private AdapterRegistrationPlan getRegistrationPlan( final Type type )
+    {
+        AdapterRegistrationPlan plan = registrationPlans.get( type );
+        if ( plan == null )
+        {
+            plan = AdapterRegistrationPlan.scan( type, annotationAdapters );
+
+            final AdapterRegistrationPlan existing = registrationPlans.putIfAbsent( type, plan );
+            if ( existing != null )
             {
-                final Class<?> fieldType = field.getType();
-                registerAnnotationAdapters( fieldType, builder, seen );
+                plan = existing;
             }
         }
+
+        return plan;
     }
 
     public String toString( final Object src )
     {
-        return getGson( src.getClass() ).toJson( src );
+        return toString( src, src.getClass() );
     }
 
     public String toString( final Object src, final Type type )
     {
-        return getGson( src.getClass() ).toJson( src, type );
+        final long start = System.nanoTime();
+        final StringBuilder sb = bufferPool.acquireBuilder();
+        try
+        {
+            getGson( src.getClass() ).toJson( src, type, new StringBuilderWriter( sb ) );
+            getMetrics().record( SerializerOperation.TO_STRING, type, System.nanoTime() - start, sb.length() );
+            return sb.toString();
+        }
+        finally
+        {
+            bufferPool.releaseBuilder( sb );
+        }
     }
 
-    public <T> T fromString( final String src, final Type type )
+    public void toStream( final Object src, final OutputStream stream, final Charset charset )
     {
-        final T result = getGson( type ).fromJson( src, type );
-
-        return result;
+        toStream( src, src.getClass(), stream, charset );
     }
 
-    public <T> T fromString( final String src, final TypeToken<T> token )
+    /**
+     * Serialize incrementally to the given stream, encoding with the given charset (UTF-8 if null). The stream is
+     * flushed, but not closed.
+     */
+    public void toStream( final Object src, final Type type, final OutputStream stream, final Charset charset )
     {
-        final T result = getGson( token.getType() ).fromJson( src, token.getType() );
+        final long start = System.nanoTime();
+        final PooledStreamEncoder encoder = new PooledStreamEncoder( stream, charset == null ? UTF_8 : charset, bufferPool );
+        try
+        {
+            write( src, type, encoder );
+            encoder.finish();
+            getMetrics().record( SerializerOperation.TO_STREAM, type, System.nanoTime() - start,
+                                 encoder.getByteCount() );
+        }
+        catch ( final IOException e )
+        {
+            logger.error( "Failed to serialize type: {}. Error: {}", e, type, e.getMessage() );
+            throw new RuntimeException( "Cannot write stream." );
+        }
+        finally
+        {
+            encoder.release();
+        }
+    }
 
-        return result;
+    public void toBinaryStream( final Object src, final OutputStream stream )
+    {
+        toBinaryStream( src, src.getClass(), stream );
     }
 
-    public <T> T fromStream( final InputStream stream, String encoding, final Class<T> type )
+    /**
+     * Serialize to the given stream in the {@link JsonWireFormat#BINARY} encoding, through the same adapters as JSON
+     * text. The stream is flushed, but not closed.
+     */
+    public void toBinaryStream( final Object src, final Type type, final OutputStream stream )
     {
-        if ( encoding == null )
+        final long start = System.nanoTime();
+        final BinaryJsonWriter out = new BinaryJsonWriter( stream, bufferPool );
+        try
         {
-            encoding = "UTF-8";
+            getGson( src.getClass() ).toJson( src, type, out );
+            out.finish();
+            getMetrics().record( SerializerOperation.TO_BINARY_STREAM, type, System.nanoTime() - start,
+                                 out.getByteCount() );
         }
-
-        try
+        catch ( final JsonIOException e )
         {
-            final Reader reader = new InputStreamReader( stream, encoding );
-            final String json = IOUtils.toString( reader );
-            logger.debug( "JSON:\n\n{}\n\n", json );
+            logger.error( "Failed to serialize type: {}. Error: {}", e, type, e.getMessage() );
+            throw new RuntimeException( "Cannot write stream." );
+        }
+        catch ( final IOException e )
+        {
+            logger.error( "Failed to serialize type: {}. Error: {}", e, type, e.getMessage() );
+            throw new RuntimeException( "Cannot write stream." );
+        }
+        finally
+        {
+            out.release();
+        }
+    }
 
-            T result = getGson( type ).fromJson( json, type );
-            result = postProcess( result );
+    public void toWriter( final Object src, final Writer writer )
+    {
+        toWriter( src, src.getClass(), writer );
+    }
 
-            return result;
+    /**
+     * Serialize incrementally to the given writer through a pooled buffer. The writer is flushed, but not closed.
+     */
+    public void toWriter( final Object src, final Type type, final Writer writer )
+    {
+        final long start = System.nanoTime();
+        final long chars = write( src, type, writer );
+        getMetrics().record( SerializerOperation.TO_WRITER, type, System.nanoTime() - start, chars );
+    }
+
+    /**
+     * @return the number of chars written
+     */
+    private long write( final Object src, final Type type, final Writer writer )
+    {
+        final PooledBufferedWriter out = new PooledBufferedWriter( writer, bufferPool );
+        try
+        {
+            getGson( src.getClass() ).toJson( src, type, out );
+            out.finish();
+            return out.getCharCount();
         }
-        catch ( final UnsupportedEncodingException e )
+        catch ( final JsonIOException e )
         {
-            logger.error( "Failed to deserialize type: {}. Error: {}", e, type.getName(), e.getMessage() );
-            throw new RuntimeException( "Cannot read stream." );
+            logger.error( "Failed to serialize type: {}. Error: {}", e, type, e.getMessage() );
+            throw new RuntimeException( "Cannot write stream." );
         }
         catch ( final IOException e )
         {
-            logger.error( "Failed to deserialize type: {}. Error: {}", e, type.getName(), e.getMessage() );
-            throw new RuntimeException( "Cannot read stream." );
+            logger.error( "Failed to serialize type: {}. Error: {}", e, type, e.getMessage() );
+            throw new RuntimeException( "Cannot write stream." );
+        }
+        finally
+        {
+            out.release();
         }
     }
 
+    public <T> T fromString( final String src, final Type type )
+    {
+        final long start = System.nanoTime();
+        final T result = parseString( getGson( type ), src, type );
+        getMetrics().record( SerializerOperation.FROM_STRING, type, System.nanoTime() - start, length( src ) );
+
+        return postProcess( result );
+    }
+
+    public <T> T fromString( final String src, final TypeToken<T> token )
+    {
+        final long start = System.nanoTime();
+        final T result = parseString( getGson( token.getType() ), src, token.getType() );
+        getMetrics().record( SerializerOperation.FROM_STRING, token.getType(), System.nanoTime() - start,
+                             length( src ) );
+
+        return postProcess( result );
+    }
+
+    /**
+     * Index the top-level members of a JSON object without deserializing them; see {@link LazyJsonObject}.
+     */
+    public LazyJsonObject lazyFromString( final String src )
+    {
+        final long start = System.nanoTime();
+        final LazyJsonObject lazy = new LazyJsonObject( this, src, 0, src.length() );
+        getMetrics().record( SerializerOperation.LAZY_FROM_STRING, null, System.nanoTime() - start, src.length() );
+
+        return lazy;
+    }
+
+    public <T> T fromStream( final InputStream stream, final String encoding, final Class<T> type )
+    {
+        final T result = readStream( openReader( stream, encoding, type ), type, SerializerOperation.FROM_STREAM );
+
+        return postProcess( result );
+    }
+
+    public <T> T fromStream( final InputStream stream, final String encoding, final TypeToken<T> token )
+    {
+        final T result =
+            readStream( openReader( stream, encoding, token.getType() ), token.getType(), SerializerOperation.FROM_STREAM );
+
+        return postProcess( result );
+    }
+
+    /**
+     * Read a document written by {@link #toBinaryStream(Object, Type, OutputStream)}.
+     */
+    public <T> T fromBinaryStream( final InputStream stream, final Class<T> type )
+    {
+        final T result = readStream( openBinaryReader( stream ), type, SerializerOperation.FROM_BINARY_STREAM );
+
+        return postProcess( result );
+    }
+
+    public <T> T fromBinaryStream( final InputStream stream, final TypeToken<T> token )
+    {
+        final T result =
+            readStream( openBinaryReader( stream ), token.getType(), SerializerOperation.FROM_BINARY_STREAM );
+
+        return postProcess( result );
+    }
+
+    /**
+     * Invoke the {@link JsonPostProcess} methods of the deserialized value's class, in order.
+     */
     private <T> T postProcess( final T input )
     {
-        // TODO: Read postprocessing annotation and invoke in order...
+        if ( input != null )
+        {
+            final PostProcessPlan plan = getPostProcessPlan( input.getClass() );
+            if ( plan != PostProcessPlan.EMPTY )
+            {
+                final long start = System.nanoTime();
+                plan.apply( input );
+                getMetrics().record( SerializerOperation.POST_PROCESS, input.getClass(), System.nanoTime() - start, -1 );
+            }
+        }
+
         return input;
     }
 
-    public <T> T fromStream( final InputStream stream, String encoding, final TypeToken<T> token )
+    private <T> void postProcessItems( final List<T> items, final Type type,
+                                       final DeserializerPostProcessor<T>... postProcessors )
     {
-        if ( encoding == null )
+        if ( postProcessors.length > 0 )
         {
-            encoding = "UTF-8";
+            final long start = System.nanoTime();
+            PostProcessors.apply( items, postProcessors );
+            getMetrics().record( SerializerOperation.POST_PROCESS, type, System.nanoTime() - start, -1 );
         }
+    }
 
-        try
+    private PostProcessPlan getPostProcessPlan( final Class<?> type )
+    {
+        PostProcessPlan plan = postProcessPlans.get( type );
+        if ( plan == null )
         {
-            final Reader reader = new InputStreamReader( stream, encoding );
-            final String json = IOUtils.toString( reader );
-            logger.debug( "JSON:\n\n{}\n\n", json );
+            plan = PostProcessPlan.scan( type );
 
-            final T result = getGson( token.getType() ).fromJson( json, token.getType() );
+            final PostProcessPlan existing = postProcessPlans.putIfAbsent( type, plan );
+            if ( existing != null )
+            {
+                plan = existing;
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Parse directly from the stream, without buffering the whole body. If debug logging is enabled, at most
+     * {@link #getDebugCaptureLimit()} characters of the body are kept for the log message.
+     */
+    private <T> T readStream( final PooledReader pooled, final Type type, final SerializerOperation operation )
+    {
+        final long start = System.nanoTime();
+        Reader reader = pooled;
+
+        CapturingReader capture = null;
+        if ( debugCaptureLimit > 0 && logger.isDebugEnabled() )
+        {
+            capture = new CapturingReader( reader, debugCaptureLimit );
+            reader = capture;
+        }
+
+        try
+        {
+            final T result = parse( getGson( type ), reader, type );
+            getMetrics().record( operation, type, System.nanoTime() - start, pooled.getByteCount() );
 
             return result;
         }
-        catch ( final UnsupportedEncodingException e )
+        finally
         {
-            logger.error( "Failed to deserialize type: {}. Error: {}", e, token.getType(), e.getMessage() );
-            throw new RuntimeException( "Cannot read stream." );
+            pooled.release();
+            if ( capture != null )
+            {
+                logger.debug( "JSON:\n\n{}\n\n", capture.getCaptured() );
+            }
         }
-        catch ( final IOException e )
+    }
+
+    /**
+     * Open a decoding reader over the stream using pooled buffers (the caller releases it). UTF-8 input goes through
+     * {@link Utf8StreamReader} unless the fast path is switched off.
+     */
+    private PooledReader openReader( final InputStream stream, final String encoding, final Type type )
+    {
+        final Charset charset;
+        try
         {
-            logger.error( "Failed to deserialize type: {}. Error: {}", e, token.getType(), e.getMessage() );
+            charset = encoding == null ? UTF_8 : Charset.forName( encoding );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            logger.error( "Failed to deserialize type: {}. Error: {}", e, type, e.getMessage() );
             throw new RuntimeException( "Cannot read stream." );
         }
+
+        final InputStream in = limitStream( stream );
+        if ( utf8FastPath && UTF_8.equals( charset ) )
+        {
+            return new Utf8StreamReader( in, bufferPool );
+        }
+
+        return new PooledStreamReader( in, charset, bufferPool );
     }
 
-    public <T> Listing<T> listingFromStream( final InputStream stream, String encoding, final TypeToken<Listing<T>> token,
+    /**
+     * Open a reader transcoding the {@link JsonWireFormat#BINARY} encoding to JSON text (the caller releases it).
+     */
+    private PooledReader openBinaryReader( final InputStream stream )
+    {
+        return new BinaryJsonReader( limitStream( stream ), bufferPool );
+    }
+
+    private InputStream limitStream( final InputStream stream )
+    {
+        return limits.getMaxBytes() > 0 ? new LimitedInputStream( stream, limits.getMaxBytes() ) : stream;
+    }
+
+    public <T> Listing<T> listingFromStream( final InputStream stream, final String encoding, final TypeToken<Listing<T>> token,
                                              final DeserializerPostProcessor<T>... postProcessors )
     {
-        if ( encoding == null )
-        {
-            encoding = "UTF-8";
-        }
+        return readListing( openReader( stream, encoding, token.getType() ), token, SerializerOperation.LISTING_FROM_STREAM,
+                            postProcessors );
+    }
+
+    public <T> Listing<T> listingFromBinaryStream( final InputStream stream, final TypeToken<Listing<T>> token,
+                                                   final DeserializerPostProcessor<T>... postProcessors )
+    {
+        return readListing( openBinaryReader( stream ), token, SerializerOperation.LISTING_FROM_BINARY_STREAM,
+                            postProcessors );
+    }
 
+    private <T> Listing<T> readListing( final PooledReader reader, final TypeToken<Listing<T>> token,
+                                        final SerializerOperation operation,
+                                        final DeserializerPostProcessor<T>... postProcessors )
+    {
+        final long start = System.nanoTime();
         try
         {
-            Listing<T> result = getGson( null ).fromJson( new InputStreamReader( stream, encoding ), token.getType() );
+            Listing<T> result = parse( getGson( null ), reader, token.getType() );
+            getMetrics().record( operation, token.getType(), System.nanoTime() - start, reader.getByteCount() );
 
             if ( result != null && result.getItems() != null )
             {
@@ -250,29 +728,63 @@ public class JsonSerializer
                 Collections.reverse( items );
 
                 result = new Listing<T>( items );
-                for ( final T item : result.getItems() )
-                {
-                    for ( final DeserializerPostProcessor<T> proc : postProcessors )
-                    {
-                        proc.process( item );
-                    }
-                }
+                postProcessItems( result.getItems(), token.getType(), postProcessors );
             }
 
             return result;
         }
-        catch ( final UnsupportedEncodingException e )
+        finally
         {
-            logger.error( "Failed to deserialize type: {}. Error: {}", e, token.getType(), e.getMessage() );
+            reader.release();
+        }
+    }
 
-            throw new RuntimeException( "Cannot read stream." );
+    public <T> ListingIterator<T> listingIterator( final InputStream stream, final String encoding, final TypeToken<Listing<T>> token,
+                                                   final DeserializerPostProcessor<T>... postProcessors )
+    {
+        return listingIterator( openReader( stream, encoding, token.getType() ), token, postProcessors );
+    }
+
+    public <T> ListingIterator<T> binaryListingIterator( final InputStream stream, final TypeToken<Listing<T>> token,
+                                                         final DeserializerPostProcessor<T>... postProcessors )
+    {
+        return listingIterator( openBinaryReader( stream ), token, postProcessors );
+    }
+
+    /**
+     * Iterate over the items of a serialized {@link Listing}, deserializing and post-processing one item at a time as
+     * the reader is consumed. See {@link ListingIterator}.
+     */
+    public <T> ListingIterator<T> listingIterator( final Reader reader, final TypeToken<Listing<T>> token,
+                                                   final DeserializerPostProcessor<T>... postProcessors )
+    {
+        final Type itemType = getListingItemType( token.getType() );
+
+        @SuppressWarnings( "unchecked" )
+        final TypeAdapter<T> adapter = (TypeAdapter<T>) getGson( null ).getAdapter( TypeToken.get( itemType ) );
+
+        final JsonReader in = limits.isStructureLimited() ? new LimitedJsonReader( reader, limits ) : new JsonReader( reader );
+
+        return new ListingIterator<T>( in, adapter, postProcessors );
+    }
+
+    private static Type getListingItemType( final Type listingType )
+    {
+        if ( listingType instanceof ParameterizedType )
+        {
+            return ( (ParameterizedType) listingType ).getActualTypeArguments()[0];
         }
+
+        return Object.class;
     }
 
     public <T> Listing<T> listingFromString( final String src, final TypeToken<Listing<T>> token,
                                              final DeserializerPostProcessor<T>... postProcessors )
     {
-        Listing<T> result = getGson( null ).fromJson( src, token.getType() );
+        final long start = System.nanoTime();
+        Listing<T> result = parseString( getGson( null ), src, token.getType() );
+        getMetrics().record( SerializerOperation.LISTING_FROM_STRING, token.getType(), System.nanoTime() - start,
+                             length( src ) );
 
         if ( result != null && result.getItems() != null )
         {
@@ -280,16 +792,202 @@ public class JsonSerializer
             Collections.reverse( items );
 
             result = new Listing<T>( items );
-            for ( final T item : result.getItems() )
+            postProcessItems( result.getItems(), token.getType(), postProcessors );
+        }
+
+        return result;
+    }
+
+    /**
+     * Like {@link #listingFromString(String, TypeToken, DeserializerPostProcessor...)}, but splits the items array
+     * into up to <code>parallelism</code> contiguous chunks that are deserialized and post-processed as separate tasks
+     * on the given executor (the calling thread takes the first chunk). The resulting item order is the same as the
+     * sequential version; the order in which items are post-processed is not, so post-processors must be
+     * thread-safe.
+     * <p>
+     * Documents too small to be worth splitting, or that aren't plain JSON listings, are deserialized sequentially.
+     */
+    public <T> Listing<T> parallelListingFromString( final String src, final TypeToken<Listing<T>> token,
+                                                     final ExecutorService executor, final int parallelism,
+                                                     final DeserializerPostProcessor<T>... postProcessors )
+    {
+        final long start = System.nanoTime();
+        final ListingSplitter splitter = parallelism > 1 ? ListingSplitter.split( src ) : null;
+        final int chunks = splitter == null ? 1 : Math.min( parallelism, splitter.size() / MIN_PARALLEL_CHUNK_SIZE );
+        if ( chunks < 2 )
+        {
+            return listingFromString( src, token, postProcessors );
+        }
+
+        final Type itemType = getListingItemType( token.getType() );
+
+        // the same Gson listingFromString(..) uses, so items come out the same whatever the parallelism.
+        @SuppressWarnings( "unchecked" )
+        final TypeAdapter<T> adapter = (TypeAdapter<T>) getGson( null ).getAdapter( TypeToken.get( itemType ) );
+
+        final int size = splitter.size();
+        limits.checkSize( src.length() );
+        if ( limits.getMaxArrayLength() > 0 && size > limits.getMaxArrayLength() )
+        {
+            throw new JsonLimitExceededException( "array length", limits.getMaxArrayLength(), size );
+        }
+
+        final List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>( chunks - 1 );
+        try
+        {
+            for ( int i = 1; i < chunks; i++ )
             {
-                for ( final DeserializerPostProcessor<T> proc : postProcessors )
-                {
-                    proc.process( item );
-                }
+                futures.add( executor.submit( new ListingChunkTask<T>( chunkReader( splitter, size * i / chunks,
+                                                                                    size * ( i + 1 ) / chunks ),
+                                                                       adapter, postProcessors ) ) );
+            }
+
+            final List<T> items = new ArrayList<T>( size );
+            items.addAll( new ListingChunkTask<T>( chunkReader( splitter, 0, size / chunks ), adapter, postProcessors ).call() );
+            for ( final Future<List<T>> future : futures )
+            {
+                items.addAll( future.get() );
+            }
+
+            Collections.reverse( items );
+            getMetrics().record( SerializerOperation.PARALLEL_LISTING_FROM_STRING, token.getType(),
+                                 System.nanoTime() - start, src.length() );
+
+            return new Listing<T>( items );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
             }
+
+            logger.error( "Failed to deserialize type: {}. Error: {}", cause, token.getType(), cause.getMessage() );
+            throw new RuntimeException( "Cannot read stream." );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread()
+                  .interrupt();
+            throw new RuntimeException( "Interrupted while deserializing listing." );
+        }
+        finally
+        {
+            for ( final Future<List<T>> future : futures )
+            {
+                future.cancel( true );
+            }
+        }
+    }
+
+    private JsonReader chunkReader( final ListingSplitter splitter, final int from, final int to )
+    {
+        final Reader reader = splitter.chunk( from, to );
+
+        // chunk items sit inside the listing object, but the chunk array stands in for its items array.
+        return limits.isStructureLimited() ? new LimitedJsonReader( reader, limits, 1 ) : new JsonReader( reader );
+    }
+
+    /**
+     * Parse a whole document from a string, under the configured limits.
+     */
+    private <T> T parseString( final Gson gson, final String src, final Type type )
+    {
+        if ( src == null )
+        {
+            return null;
+        }
+
+        limits.checkSize( src.length() );
+        return parse( gson, new StringReader( src ), type );
+    }
+
+    /**
+     * Parse a whole document from the reader. Without structural limits this is exactly
+     * {@link Gson#fromJson(Reader, Type)}; with them, the same but through a {@link LimitedJsonReader}.
+     */
+    private <T> T parse( final Gson gson, final Reader reader, final Type type )
+    {
+        if ( !limits.isStructureLimited() )
+        {
+            return gson.fromJson( reader, type );
+        }
+
+        final JsonReader in = new LimitedJsonReader( reader, limits );
+        final T result = gson.<T> fromJson( in, type );
+        try
+        {
+            if ( result != null && in.peek() != JsonToken.END_DOCUMENT )
+            {
+                throw new JsonIOException( "JSON document was not fully consumed." );
+            }
+        }
+        catch ( final MalformedJsonException e )
+        {
+            throw new JsonSyntaxException( e );
+        }
+        catch ( final IOException e )
+        {
+            throw new JsonIOException( e );
         }
 
         return result;
     }
 
+    private static long length( final String src )
+    {
+        return src == null ? -1 : src.length();
+    }
+
+    /**
+     * Deserializes and post-processes one chunk of listing items.
+     */
+    private static final class ListingChunkTask<T>
+        implements Callable<List<T>>
+    {
+        private final JsonReader in;
+
+        private final TypeAdapter<T> adapter;
+
+        private final DeserializerPostProcessor<T>[] postProcessors;
+
+        ListingChunkTask( final JsonReader in, final TypeAdapter<T> adapter,
+                          final DeserializerPostProcessor<T>[] postProcessors )
+        {
+            this.in = in;
+            this.adapter = adapter;
+            this.postProcessors = postProcessors;
+        }
+
+        @Override
+        public List<T> call()
+        {
+            in.setLenient( true );
+
+            final List<T> items = new ArrayList<T>();
+            try
+            {
+                in.beginArray();
+                while ( in.hasNext() )
+                {
+                    items.add( adapter.read( in ) );
+                }
+                in.endArray();
+            }
+            catch ( final IOException e )
+            {
+                // same exception Gson.fromJson(..) would throw for the sequential path.
+                throw new JsonSyntaxException( e );
+            }
+            catch ( final IllegalStateException e )
+            {
+                throw new JsonSyntaxException( e );
+            }
+
+            PostProcessors.apply( items, postProcessors );
+            return items;
+        }
+    }
+
 }
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+/**
+ * Encodings {@link JsonSerializer} can read and write: JSON text, or the same object model in a compact binary form
+ * for calls between nodes that both speak it.
+ */
+public enum JsonWireFormat
+{
+    JSON( "application/json" ), BINARY( "application/x-commonjava-json-binary" );
+
+    private final String contentType;
+
+    private JsonWireFormat( final String contentType )
+    {
+        this.contentType = contentType;
+    }
+
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    /**
+     * @return the format of a body with the given Content-Type; anything but the binary type is taken as JSON
+     */
+    public static JsonWireFormat forContentType( final String contentType )
+    {
+        return contentType != null && BINARY.contentType.equalsIgnoreCase( mediaType( contentType ) ) ? BINARY : JSON;
+    }
+
+    /**
+     * Pick the response format for an Accept header: the binary format only if it has a higher quality than JSON, or
+     * the same quality and is listed first. No header, wildcards and unknown types all mean JSON.
+     */
+    public static JsonWireFormat negotiate( final String accept )
+    {
+        if ( accept == null )
+        {
+            return JSON;
+        }
+
+        JsonWireFormat best = null;
+        float bestQuality = 0;
+        for ( final String range : accept.split( "," ) )
+        {
+            final String type = mediaType( range );
+            final JsonWireFormat format;
+            if ( BINARY.contentType.equalsIgnoreCase( type ) )
+            {
+                format = BINARY;
+            }
+            else if ( JSON.contentType.equalsIgnoreCase( type ) || "*/*".equals( type )
+                || "application/*".equalsIgnoreCase( type ) )
+            {
+                format = JSON;
+            }
+            else
+            {
+                continue;
+            }
+
+            final float quality = quality( range );
+            if ( best == null ? quality > 0 : quality > bestQuality )
+            {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+
+        return best == null ? JSON : best;
+    }
+
+    private static String mediaType( final String value )
+    {
+        final int idx = value.indexOf( ';' );
+        return ( idx < 0 ? value : value.substring( 0, idx ) ).trim();
+    }
+
+    private static float quality( final String range )
+    {
+        for ( final String param : range.split( ";" ) )
+        {
+            final String p = param.trim();
+            if ( p.startsWith( "q=" ) )
+            {
+                try
+                {
+                    return Float.parseFloat( p.substring( 2 ) );
+                }
+                catch ( final NumberFormatException e )
+                {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
+}
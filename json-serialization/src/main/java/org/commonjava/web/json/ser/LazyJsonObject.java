@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Read-only view of a JSON object that records where each top-level value starts and ends in one cheap pass, and
+ * only deserializes a value when it is asked for. Reading a couple of fields from a large document costs a scan plus
+ * binding those fields, rather than binding the whole thing. Values are decoded through the owning
+ * {@link JsonSerializer} (adapters and {@link JsonPostProcess} methods apply) each time they're requested; nothing
+ * is cached.
+ * <p>
+ * The document must be strict JSON; Gson's lenient extensions (comments, single quotes, unquoted names) are rejected.
+ */
+public final class LazyJsonObject
+{
+
+    private final JsonSerializer serializer;
+
+    private final String src;
+
+    private final Map<String, Integer> index;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    LazyJsonObject( final JsonSerializer serializer, final String src, final int start, final int end )
+    {
+        this.serializer = serializer;
+        this.src = src;
+
+        final Indexer indexer = new Indexer( src, start, end );
+        indexer.scan();
+
+        this.index = Collections.unmodifiableMap( indexer.index );
+        this.starts = indexer.starts;
+        this.ends = indexer.ends;
+    }
+
+    public Set<String> getKeys()
+    {
+        return index.keySet();
+    }
+
+    public boolean has( final String key )
+    {
+        return index.containsKey( key );
+    }
+
+    /**
+     * @return true if the key is absent or its value is JSON null
+     */
+    public boolean isNull( final String key )
+    {
+        final Integer slot = index.get( key );
+        return slot == null || src.startsWith( "null", starts[slot] );
+    }
+
+    /**
+     * @return the undecoded JSON text of the value, or null if the key is absent
+     */
+    public String getRaw( final String key )
+    {
+        final Integer slot = index.get( key );
+        return slot == null ? null : src.substring( starts[slot], ends[slot] );
+    }
+
+    public String getString( final String key )
+    {
+        return get( key, String.class );
+    }
+
+    public <T> T get( final String key, final Class<T> type )
+    {
+        return get( key, (Type) type );
+    }
+
+    public <T> T get( final String key, final TypeToken<T> token )
+    {
+        return get( key, token.getType() );
+    }
+
+    /**
+     * @return the decoded value, or null if the key is absent
+     */
+    public <T> T get( final String key, final Type type )
+    {
+        final String raw = getRaw( key );
+        return raw == null ? null : serializer.<T> fromString( raw, type );
+    }
+
+    /**
+     * @return a lazy view of a nested object value, or null if the key is absent or null
+     */
+    public LazyJsonObject getObject( final String key )
+    {
+        if ( isNull( key ) )
+        {
+            return null;
+        }
+
+        final int slot = index.get( key );
+        return new LazyJsonObject( serializer, src, starts[slot], ends[slot] );
+    }
+
+    /**
+     * Records the name and value offsets of each member of one object.
+     */
+    private static final class Indexer
+        extends JsonScanner
+    {
+        private final Map<String, Integer> index = new LinkedHashMap<String, Integer>();
+
+        private int[] starts = new int[16];
+
+        private int[] ends = new int[16];
+
+        private int count;
+
+        Indexer( final String src, final int start, final int limit )
+        {
+            super( src, start, limit );
+        }
+
+        void scan()
+        {
+            skipWhitespace();
+            if ( !consume( '{' ) )
+            {
+                throw fail( "Expected a JSON object" );
+            }
+
+            skipWhitespace();
+            if ( consume( '}' ) )
+            {
+                return;
+            }
+
+            while ( true )
+            {
+                skipWhitespace();
+                final int nameStart = pos;
+                if ( !skipString() )
+                {
+                    throw fail( "Expected a member name" );
+                }
+
+                final String name = decodeName( nameStart, pos );
+
+                skipWhitespace();
+                if ( !consume( ':' ) )
+                {
+                    throw fail( "Expected ':'" );
+                }
+
+                skipWhitespace();
+                final int valueStart = pos;
+                if ( !skipValue() )
+                {
+                    throw fail( "Expected a value" );
+                }
+
+                add( name, valueStart, pos );
+
+                skipWhitespace();
+                if ( consume( '}' ) )
+                {
+                    return;
+                }
+                else if ( !consume( ',' ) )
+                {
+                    throw fail( "Expected ',' or '}'" );
+                }
+            }
+        }
+
+        private String decodeName( final int start, final int end )
+        {
+            boolean escaped = false;
+            for ( int i = start + 1; i < end - 1 && !escaped; i++ )
+            {
+                escaped = src.charAt( i ) == '\\';
+            }
+
+            if ( !escaped )
+            {
+                return src.substring( start + 1, end - 1 );
+            }
+
+            final JsonReader reader = new JsonReader( new StringReader( src.substring( start, end ) ) );
+            reader.setLenient( true );
+            try
+            {
+                return reader.nextString();
+            }
+            catch ( final IOException e )
+            {
+                throw new JsonSyntaxException( e );
+            }
+        }
+
+        private void add( final String name, final int start, final int end )
+        {
+            if ( count == starts.length )
+            {
+                starts = Arrays.copyOf( starts, count * 2 );
+                ends = Arrays.copyOf( ends, count * 2 );
+            }
+
+            starts[count] = start;
+            ends[count] = end;
+
+            // like Gson, the last of any duplicate names wins.
+            index.put( name, count++ );
+        }
+
+        private JsonSyntaxException fail( final String message )
+        {
+            return new JsonSyntaxException( message + " at offset " + pos + "." );
+        }
+    }
+
+}
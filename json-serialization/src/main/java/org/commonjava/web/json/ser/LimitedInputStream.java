@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails with {@link JsonLimitExceededException} as soon as more than the allowed number of bytes has been read.
+ */
+final class LimitedInputStream
+    extends FilterInputStream
+{
+
+    private final long maxBytes;
+
+    private long count;
+
+    LimitedInputStream( final InputStream in, final long maxBytes )
+    {
+        super( in );
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int b = super.read();
+        if ( b >= 0 )
+        {
+            count( 1 );
+        }
+
+        return b;
+    }
+
+    @Override
+    public int read( final byte[] b, final int off, final int len )
+        throws IOException
+    {
+        // never ask for more than one byte past the limit.
+        final int n = super.read( b, off, (int) Math.min( len, maxBytes - count + 1 ) );
+        if ( n > 0 )
+        {
+            count( n );
+        }
+
+        return n;
+    }
+
+    @Override
+    public long skip( final long n )
+        throws IOException
+    {
+        final long skipped = super.skip( Math.min( n, maxBytes - count + 1 ) );
+        count( skipped );
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    private void count( final long n )
+    {
+        count += n;
+        if ( count > maxBytes )
+        {
+            throw new JsonLimitExceededException( "bytes", maxBytes, count );
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * {@link JsonReader} that enforces the structural {@link JsonLimits} (nesting depth, array length, string length)
+ * token by token, as Gson's adapters pull them. {@link #skipValue()} walks skipped values through the same checks, so
+ * unknown members can't be used to smuggle in an oversized structure. String lengths can only be checked on the
+ * finished string, after the superclass has buffered all of it.
+ */
+final class LimitedJsonReader
+    extends JsonReader
+{
+
+    private final int maxDepth;
+
+    private final int maxArrayLength;
+
+    private final int maxStringLength;
+
+    /**
+     * Element counts of the open containers; -1 for objects.
+     */
+    private int[] counts = new int[16];
+
+    private int depth;
+
+    LimitedJsonReader( final Reader in, final JsonLimits limits )
+    {
+        this( in, limits, 0 );
+    }
+
+    /**
+     * @param enclosingObjects number of objects the reader's content is nested in, for reading a fragment of a larger
+     *            document
+     */
+    LimitedJsonReader( final Reader in, final JsonLimits limits, final int enclosingObjects )
+    {
+        super( in );
+        this.maxDepth = limits.getMaxDepth();
+        this.maxArrayLength = limits.getMaxArrayLength();
+        this.maxStringLength = limits.getMaxStringLength();
+        for ( int i = 0; i < enclosingObjects; i++ )
+        {
+            open( -1 );
+        }
+    }
+
+    @Override
+    public void beginArray()
+        throws IOException
+    {
+        super.beginArray();
+        open( 0 );
+    }
+
+    @Override
+    public void endArray()
+        throws IOException
+    {
+        super.endArray();
+        depth--;
+    }
+
+    @Override
+    public void beginObject()
+        throws IOException
+    {
+        super.beginObject();
+        open( -1 );
+    }
+
+    @Override
+    public void endObject()
+        throws IOException
+    {
+        super.endObject();
+        depth--;
+    }
+
+    @Override
+    public String nextName()
+        throws IOException
+    {
+        return checkLength( super.nextName() );
+    }
+
+    @Override
+    public String nextString()
+        throws IOException
+    {
+        final String value = checkLength( super.nextString() );
+        element();
+        return value;
+    }
+
+    @Override
+    public boolean nextBoolean()
+        throws IOException
+    {
+        final boolean value = super.nextBoolean();
+        element();
+        return value;
+    }
+
+    @Override
+    public void nextNull()
+        throws IOException
+    {
+        super.nextNull();
+        element();
+    }
+
+    @Override
+    public double nextDouble()
+        throws IOException
+    {
+        final double value = super.nextDouble();
+        element();
+        return value;
+    }
+
+    @Override
+    public long nextLong()
+        throws IOException
+    {
+        final long value = super.nextLong();
+        element();
+        return value;
+    }
+
+    @Override
+    public int nextInt()
+        throws IOException
+    {
+        final int value = super.nextInt();
+        element();
+        return value;
+    }
+
+    @Override
+    public void skipValue()
+        throws IOException
+    {
+        int open = 0;
+        do
+        {
+            final JsonToken token = peek();
+            switch ( token )
+            {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    open++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    open++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    open--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    open--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                case END_DOCUMENT:
+                    return;
+                default:
+                    // strings and numbers.
+                    nextString();
+            }
+        }
+        while ( open > 0 );
+    }
+
+    private void open( final int count )
+    {
+        element();
+        if ( maxDepth > 0 && depth >= maxDepth )
+        {
+            throw new JsonLimitExceededException( "depth", maxDepth, depth + 1 );
+        }
+
+        if ( depth == counts.length )
+        {
+            counts = Arrays.copyOf( counts, depth * 2 );
+        }
+
+        counts[depth++] = count;
+    }
+
+    /**
+     * Count a value against the length of the enclosing array, if any.
+     */
+    private void element()
+    {
+        if ( depth > 0 && counts[depth - 1] >= 0 )
+        {
+            final int count = ++counts[depth - 1];
+            if ( maxArrayLength > 0 && count > maxArrayLength )
+            {
+                throw new JsonLimitExceededException( "array length", maxArrayLength, count );
+            }
+        }
+    }
+
+    private String checkLength( final String value )
+    {
+        if ( maxStringLength > 0 && value.length() > maxStringLength )
+        {
+            throw new JsonLimitExceededException( "string length", maxStringLength, value.length() );
+        }
+
+        return value;
+    }
+
+}
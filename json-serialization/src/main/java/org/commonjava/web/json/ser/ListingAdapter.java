@@ -10,44 +10,115 @@
  ******************************************************************************/
 package org.commonjava.web.json.ser;
 
-import java.lang.reflect.Type;
-import java.util.List;
+import java.io.IOException;
 
+import org.commonjava.web.json.model.LazyListing;
 import org.commonjava.web.json.model.Listing;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+/**
+ * Writes {@link Listing}s and {@link LazyListing}s as <code>{"items":[...]}</code>, one item at a time straight to
+ * the {@link JsonWriter}. Each item is written using the adapter for its runtime class. Other subclasses of
+ * {@link Listing} may carry fields of their own, so they are left to the adapter Gson would otherwise use, as is
+ * reading.
+ */
 public class ListingAdapter
-    implements WebSerializationAdapter, JsonSerializer<Listing<?>>
+    implements WebSerializationAdapter, TypeAdapterFactory
 {
 
     @Override
     public void register( final GsonBuilder gsonBuilder )
     {
-        gsonBuilder.registerTypeAdapter( Listing.class, this );
+        gsonBuilder.registerTypeAdapterFactory( this );
     }
 
     @Override
-    public JsonElement serialize( final Listing<?> src, final Type typeOfSrc, final JsonSerializationContext context )
+    public <T> TypeAdapter<T> create( final Gson gson, final TypeToken<T> type )
     {
-        final JsonObject result = new JsonObject();
+        if ( !isPlainListing( type.getRawType() ) )
+        {
+            return null;
+        }
+
+        final TypeAdapter<T> delegate = gson.getDelegateAdapter( this, type );
+        return new TypeAdapter<T>()
+        {
+            @Override
+            @SuppressWarnings( "unchecked" )
+            public void write( final JsonWriter out, final T value )
+                throws IOException
+            {
+                if ( value != null && !isPlainListing( value.getClass() ) )
+                {
+                    // a subclass held in a Listing-typed field or passed with a Listing type.
+                    ( (TypeAdapter<Object>) gson.getAdapter( value.getClass() ) ).write( out, value );
+                    return;
+                }
+
+                writeListing( gson, out, (Listing<?>) value );
+            }
 
-        final JsonArray array = new JsonArray();
-        result.add( "items", array );
+            @Override
+            public T read( final JsonReader in )
+                throws IOException
+            {
+                return delegate.read( in );
+            }
+        };
+    }
+
+    private static boolean isPlainListing( final Class<?> type )
+    {
+        return type == Listing.class || type == LazyListing.class;
+    }
 
-        final List<?> items = src.getItems();
-        for ( final Object item : items )
+    @SuppressWarnings( "unchecked" )
+    private void writeListing( final Gson gson, final JsonWriter out, final Listing<?> listing )
+        throws IOException
+    {
+        if ( listing == null )
         {
-            final JsonElement element = context.serialize( item );
-            array.add( element );
+            out.nullValue();
+            return;
         }
 
-        return result;
+        final Iterable<?> items = listing instanceof LazyListing ? ( (LazyListing<?>) listing ).getSource() : listing.getItems();
+
+        out.beginObject();
+        if ( items != null )
+        {
+            out.name( "items" );
+            out.beginArray();
+
+            Class<?> lastType = null;
+            TypeAdapter<Object> adapter = null;
+            for ( final Object item : items )
+            {
+                if ( item == null )
+                {
+                    out.nullValue();
+                    continue;
+                }
+
+                if ( item.getClass() != lastType )
+                {
+                    lastType = item.getClass();
+                    adapter = (TypeAdapter<Object>) gson.getAdapter( lastType );
+                }
+
+                adapter.write( out, item );
+            }
+
+            out.endArray();
+        }
+        out.endObject();
     }
 
 }
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.commonjava.web.json.model.Listing;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * Pull-style iterator over the <code>items</code> array of a serialized {@link Listing}. Each item is deserialized
+ * (and run through the post-processors) only when it is requested, so memory use doesn't depend on the size of the
+ * listing.
+ * <p>
+ * Unlike {@link JsonSerializer#listingFromStream(java.io.InputStream, String, com.google.gson.reflect.TypeToken,
+ * DeserializerPostProcessor...)}, items are returned in document order. Call {@link #close()} when done to release
+ * the underlying reader.
+ * <p>
+ * Gson keeps the last of several <code>items</code> members, where this iterator streams the first non-null one; so
+ * once that array is used up, the rest of the object is read and a later <code>items</code> member is rejected with a
+ * {@link JsonSyntaxException} rather than silently ignored.
+ * <p>
+ * If any post-processor is a {@link BatchDeserializerPostProcessor}, the iterator reads ahead by up to the largest
+ * batch size, so each batch is post-processed together before the first of its items is returned.
+ */
+public final class ListingIterator<T>
+    implements Iterator<T>, Closeable
+{
+
+    private final JsonReader reader;
+
+    private final TypeAdapter<T> adapter;
+
+    private final DeserializerPostProcessor<T>[] postProcessors;
+
+    private final int readAhead;
+
+    private final List<T> buffer;
+
+    private int bufferPos;
+
+    private boolean started;
+
+    private boolean done;
+
+    ListingIterator( final JsonReader reader, final TypeAdapter<T> adapter, final DeserializerPostProcessor<T>... postProcessors )
+    {
+        this.reader = reader;
+        this.adapter = adapter;
+        this.postProcessors = postProcessors;
+        this.readAhead = PostProcessors.readAhead( postProcessors );
+        this.buffer = new ArrayList<T>( readAhead );
+        reader.setLenient( true );
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( bufferPos < buffer.size() )
+        {
+            return true;
+        }
+
+        if ( done )
+        {
+            return false;
+        }
+
+        try
+        {
+            if ( !started )
+            {
+                started = true;
+                if ( !seekItems() )
+                {
+                    finish();
+                    return false;
+                }
+            }
+
+            if ( reader.hasNext() )
+            {
+                return true;
+            }
+
+            reader.endArray();
+            rejectLaterItems();
+            finish();
+            return false;
+        }
+        catch ( final MalformedJsonException e )
+        {
+            throw new JsonSyntaxException( e );
+        }
+        catch ( final IOException e )
+        {
+            throw new JsonIOException( e );
+        }
+    }
+
+    @Override
+    public T next()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+
+        if ( bufferPos == buffer.size() )
+        {
+            fill();
+        }
+
+        final T item = buffer.get( bufferPos );
+        buffer.set( bufferPos++, null );
+
+        return item;
+    }
+
+    /**
+     * Step past the next item without returning it, e.g. to count the items cheaply. An item not yet read is skipped
+     * without being deserialized or post-processed; but with a {@link BatchDeserializerPostProcessor}, items already
+     * read ahead into the current batch have been both, and are just dropped.
+     */
+    public void skip()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+
+        if ( bufferPos < buffer.size() )
+        {
+            buffer.set( bufferPos++, null );
+            return;
+        }
+
+        try
+        {
+            reader.skipValue();
+        }
+        catch ( final MalformedJsonException e )
+        {
+            throw new JsonSyntaxException( e );
+        }
+        catch ( final IOException e )
+        {
+            throw new JsonIOException( e );
+        }
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException( "Listing items are read-only." );
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        buffer.clear();
+        bufferPos = 0;
+        done = true;
+        reader.close();
+    }
+
+    /**
+     * Read and post-process the next run of up to {@link #readAhead} items.
+     */
+    private void fill()
+    {
+        buffer.clear();
+        bufferPos = 0;
+        try
+        {
+            do
+            {
+                buffer.add( adapter.read( reader ) );
+            }
+            while ( buffer.size() < readAhead && reader.hasNext() );
+        }
+        catch ( final MalformedJsonException e )
+        {
+            throw new JsonSyntaxException( e );
+        }
+        catch ( final IOException e )
+        {
+            throw new JsonIOException( e );
+        }
+
+        PostProcessors.apply( buffer, postProcessors );
+    }
+
+    /**
+     * Advance the reader to just inside the <code>items</code> array.
+     *
+     * @return false if the document is empty or null, or has no (non-null) items array.
+     */
+    private boolean seekItems()
+        throws IOException
+    {
+        try
+        {
+            if ( reader.peek() == JsonToken.NULL )
+            {
+                return false;
+            }
+        }
+        catch ( final EOFException e )
+        {
+            return false;
+        }
+
+        reader.beginObject();
+        while ( reader.hasNext() )
+        {
+            final String name = reader.nextName();
+            if ( "items".equals( name ) && reader.peek() != JsonToken.NULL )
+            {
+                reader.beginArray();
+                return true;
+            }
+
+            reader.skipValue();
+        }
+
+        return false;
+    }
+
+    /**
+     * Read the members after the items array through to the end of the listing object.
+     */
+    private void rejectLaterItems()
+        throws IOException
+    {
+        while ( reader.hasNext() )
+        {
+            if ( "items".equals( reader.nextName() ) )
+            {
+                throw new MalformedJsonException( "Listing has more than one items member." );
+            }
+
+            reader.skipValue();
+        }
+
+        reader.endObject();
+    }
+
+    private void finish()
+        throws IOException
+    {
+        done = true;
+        reader.close();
+    }
+
+}
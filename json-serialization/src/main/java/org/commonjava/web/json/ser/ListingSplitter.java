@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Finds the element boundaries of the top-level <code>"items"</code> array of a serialized
+ * {@link org.commonjava.web.json.model.Listing} without deserializing anything, so the elements can be parsed in
+ * separate chunks. Anything it doesn't recognize as strict JSON (including Gson's lenient extensions) makes it give
+ * up, leaving the document to the normal sequential path. So does a second <code>"items"</code> key (Gson keeps the
+ * last one) and anything after the closing brace, so the sequential path reports those exactly as it would anyway.
+ */
+final class ListingSplitter
+    extends JsonScanner
+{
+
+    private int[] starts = new int[64];
+
+    private int[] ends = new int[64];
+
+    private int count;
+
+    private ListingSplitter( final String src )
+    {
+        super( src, 0, src.length() );
+    }
+
+    /**
+     * @return the splitter holding the element offsets, or null if the document has no splittable items array
+     */
+    static ListingSplitter split( final String src )
+    {
+        final ListingSplitter splitter = new ListingSplitter( src );
+        return splitter.scan() ? splitter : null;
+    }
+
+    int size()
+    {
+        return count;
+    }
+
+    /**
+     * @return a reader over elements <code>from</code> (inclusive) to <code>to</code> (exclusive), wrapped in a JSON
+     *         array
+     */
+    Reader chunk( final int from, final int to )
+    {
+        return new ArrayRegionReader( src, starts[from], ends[to - 1] );
+    }
+
+    private boolean scan()
+    {
+        skipWhitespace();
+        if ( !consume( '{' ) )
+        {
+            return false;
+        }
+
+        skipWhitespace();
+        if ( consume( '}' ) )
+        {
+            return false;
+        }
+
+        while ( true )
+        {
+            skipWhitespace();
+            final int keyStart = pos + 1;
+            if ( !skipString() )
+            {
+                return false;
+            }
+
+            final boolean items = isItemsKey( keyStart );
+
+            skipWhitespace();
+            if ( !consume( ':' ) )
+            {
+                return false;
+            }
+
+            skipWhitespace();
+            if ( items )
+            {
+                return scanItems() && scanTail();
+            }
+
+            if ( !skipValue() )
+            {
+                return false;
+            }
+
+            skipWhitespace();
+            if ( !consume( ',' ) )
+            {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Check the members after the items array, and that nothing but whitespace follows the listing object.
+     */
+    private boolean scanTail()
+    {
+        while ( true )
+        {
+            skipWhitespace();
+            if ( consume( '}' ) )
+            {
+                skipWhitespace();
+                return pos == limit;
+            }
+            else if ( !consume( ',' ) )
+            {
+                return false;
+            }
+
+            skipWhitespace();
+            final int keyStart = pos + 1;
+            if ( !skipString() || isItemsKey( keyStart ) )
+            {
+                return false;
+            }
+
+            skipWhitespace();
+            if ( !consume( ':' ) )
+            {
+                return false;
+            }
+
+            skipWhitespace();
+            if ( !skipValue() )
+            {
+                return false;
+            }
+        }
+    }
+
+    private boolean scanItems()
+    {
+        if ( !consume( '[' ) )
+        {
+            return false;
+        }
+
+        skipWhitespace();
+        if ( consume( ']' ) )
+        {
+            return true;
+        }
+
+        while ( true )
+        {
+            skipWhitespace();
+            final int start = pos;
+            if ( !skipValue() )
+            {
+                return false;
+            }
+
+            add( start, pos );
+
+            skipWhitespace();
+            if ( consume( ']' ) )
+            {
+                return true;
+            }
+            else if ( !consume( ',' ) )
+            {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return whether the key just skipped, starting at <code>keyStart</code>, is <code>"items"</code>
+     */
+    private boolean isItemsKey( final int keyStart )
+    {
+        return src.regionMatches( keyStart, "items\"", 0, 6 ) && pos == keyStart + 6;
+    }
+
+    private void add( final int start, final int end )
+    {
+        if ( count == starts.length )
+        {
+            starts = Arrays.copyOf( starts, count * 2 );
+            ends = Arrays.copyOf( ends, count * 2 );
+        }
+
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * Reads <code>[</code>, then a region of the source string, then <code>]</code>, without copying the region.
+     */
+    private static final class ArrayRegionReader
+        extends Reader
+    {
+        private final String src;
+
+        private int pos;
+
+        private final int end;
+
+        private boolean opened;
+
+        private boolean closed;
+
+        ArrayRegionReader( final String src, final int start, final int end )
+        {
+            this.src = src;
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read( final char[] cbuf, final int off, final int len )
+            throws IOException
+        {
+            if ( len < 1 )
+            {
+                return 0;
+            }
+
+            if ( !opened )
+            {
+                opened = true;
+                cbuf[off] = '[';
+                return 1;
+            }
+
+            if ( pos < end )
+            {
+                final int n = Math.min( len, end - pos );
+                src.getChars( pos, pos + n, cbuf, off );
+                pos += n;
+                return n;
+            }
+
+            if ( !closed )
+            {
+                closed = true;
+                cbuf[off] = ']';
+                return 1;
+            }
+
+            return -1;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Buffering writer backed by a buffer from {@link JsonBufferPool}. {@link #finish()} flushes and hands the buffer
+ * back; neither it nor {@link #close()} closes the target writer, which belongs to the caller.
+ */
+final class PooledBufferedWriter
+    extends Writer
+{
+
+    private final Writer out;
+
+    private final JsonBufferPool pool;
+
+    private char[] buf;
+
+    private int count;
+
+    private long charCount;
+
+    PooledBufferedWriter( final Writer out, final JsonBufferPool pool )
+    {
+        this.out = out;
+        this.pool = pool;
+        this.buf = pool.acquireChars();
+    }
+
+    @Override
+    public void write( final int c )
+        throws IOException
+    {
+        ensureOpen();
+        if ( count == buf.length )
+        {
+            flushBuffer();
+        }
+
+        buf[count++] = (char) c;
+    }
+
+    @Override
+    public void write( final char[] cbuf, final int off, final int len )
+        throws IOException
+    {
+        ensureOpen();
+        if ( len >= buf.length )
+        {
+            flushBuffer();
+            out.write( cbuf, off, len );
+            charCount += len;
+            return;
+        }
+
+        if ( len > buf.length - count )
+        {
+            flushBuffer();
+        }
+
+        System.arraycopy( cbuf, off, buf, count, len );
+        count += len;
+    }
+
+    @Override
+    public void write( final String str, final int off, final int len )
+        throws IOException
+    {
+        ensureOpen();
+        if ( len >= buf.length )
+        {
+            flushBuffer();
+            out.write( str, off, len );
+            charCount += len;
+            return;
+        }
+
+        if ( len > buf.length - count )
+        {
+            flushBuffer();
+        }
+
+        str.getChars( off, off + len, buf, count );
+        count += len;
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        ensureOpen();
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        finish();
+    }
+
+    /**
+     * Flush everything written so far through to the target and release the pooled buffer.
+     */
+    void finish()
+        throws IOException
+    {
+        if ( buf == null )
+        {
+            return;
+        }
+
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /**
+     * Release the pooled buffer without flushing, discarding anything still buffered.
+     */
+    void release()
+    {
+        final char[] b = buf;
+        buf = null;
+        count = 0;
+        pool.releaseChars( b );
+    }
+
+    /**
+     * @return chars passed through to the target writer so far
+     */
+    long getCharCount()
+    {
+        return charCount;
+    }
+
+    private void flushBuffer()
+        throws IOException
+    {
+        if ( count > 0 )
+        {
+            out.write( buf, 0, count );
+            charCount += count;
+            count = 0;
+        }
+    }
+
+    private void ensureOpen()
+        throws IOException
+    {
+        if ( buf == null )
+        {
+            throw new IOException( "Writer already finished." );
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.Reader;
+
+/**
+ * Decoding reader over a stream that borrows its buffers from a {@link JsonBufferPool}.
+ */
+abstract class PooledReader
+    extends Reader
+{
+
+    /**
+     * Hand the pooled resources back without closing the underlying stream.
+     */
+    abstract void release();
+
+    /**
+     * @return bytes read from the underlying stream so far
+     */
+    abstract long getByteCount();
+
+}
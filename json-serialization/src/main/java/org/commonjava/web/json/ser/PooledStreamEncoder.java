@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Replacement for {@link java.io.OutputStreamWriter} that encodes with a pooled encoder and byte buffer. It doesn't
+ * buffer chars itself, so it's meant to sit behind a {@link PooledBufferedWriter}. {@link #finish()} writes any
+ * pending output and hands the pooled resources back; the target stream is flushed but never closed.
+ */
+final class PooledStreamEncoder
+    extends Writer
+{
+
+    private final OutputStream out;
+
+    private final JsonBufferPool pool;
+
+    private CharsetEncoder encoder;
+
+    private ByteBuffer bytes;
+
+    private final char[] pair = new char[2];
+
+    private boolean pending;
+
+    private long byteCount;
+
+    PooledStreamEncoder( final OutputStream out, final Charset charset, final JsonBufferPool pool )
+    {
+        this.out = out;
+        this.pool = pool;
+        this.encoder = pool.acquireEncoder( charset );
+        this.bytes = ByteBuffer.wrap( pool.acquireBytes() );
+    }
+
+    @Override
+    public void write( final char[] cbuf, int off, int len )
+        throws IOException
+    {
+        ensureOpen();
+        if ( len < 1 )
+        {
+            return;
+        }
+
+        if ( pending )
+        {
+            // complete a surrogate pair split across writes.
+            pending = false;
+            pair[1] = cbuf[off];
+            off++;
+            len--;
+            encode( CharBuffer.wrap( pair ), false );
+        }
+
+        encode( CharBuffer.wrap( cbuf, off, len ), false );
+    }
+
+    @Override
+    public void write( final String str, int off, int len )
+        throws IOException
+    {
+        ensureOpen();
+        if ( len < 1 )
+        {
+            return;
+        }
+
+        if ( pending )
+        {
+            pending = false;
+            pair[1] = str.charAt( off );
+            off++;
+            len--;
+            encode( CharBuffer.wrap( pair ), false );
+        }
+
+        // encode straight from the string; copying it out would need a char buffer of our own.
+        encode( CharBuffer.wrap( str, off, off + len ), false );
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        ensureOpen();
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        finish();
+    }
+
+    void finish()
+        throws IOException
+    {
+        if ( encoder == null )
+        {
+            return;
+        }
+
+        try
+        {
+            encode( CharBuffer.wrap( pair, 0, pending ? 1 : 0 ), true );
+            pending = false;
+
+            while ( encoder.flush( bytes ) == CoderResult.OVERFLOW )
+            {
+                drain();
+            }
+
+            drain();
+            out.flush();
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    void release()
+    {
+        if ( encoder != null )
+        {
+            pool.releaseEncoder( encoder );
+            pool.releaseBytes( bytes.array() );
+            encoder = null;
+            bytes = null;
+        }
+    }
+
+    /**
+     * @return bytes written to the target stream so far
+     */
+    long getByteCount()
+    {
+        return byteCount;
+    }
+
+    private void encode( final CharBuffer cb, final boolean endOfInput )
+        throws IOException
+    {
+        while ( true )
+        {
+            final CoderResult cr = encoder.encode( cb, bytes, endOfInput );
+            if ( cr.isOverflow() )
+            {
+                drain();
+            }
+            else if ( cr.isUnderflow() )
+            {
+                break;
+            }
+            else
+            {
+                cr.throwException();
+            }
+        }
+
+        if ( cb.hasRemaining() )
+        {
+            // only a trailing high surrogate can be left over.
+            pair[0] = cb.get();
+            pending = true;
+        }
+    }
+
+    private void drain()
+        throws IOException
+    {
+        if ( bytes.position() > 0 )
+        {
+            out.write( bytes.array(), 0, bytes.position() );
+            byteCount += bytes.position();
+            bytes.clear();
+        }
+    }
+
+    private void ensureOpen()
+        throws IOException
+    {
+        if ( encoder == null )
+        {
+            throw new IOException( "Writer already finished." );
+        }
+    }
+
+}
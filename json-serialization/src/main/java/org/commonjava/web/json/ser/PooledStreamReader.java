@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Replacement for {@link java.io.InputStreamReader} that decodes with a pooled decoder and byte buffer. Call
+ * {@link #release()} to hand those back without closing the stream, or {@link #close()} to do both.
+ */
+final class PooledStreamReader
+    extends PooledReader
+{
+
+    private final InputStream in;
+
+    private final JsonBufferPool pool;
+
+    private CharsetDecoder decoder;
+
+    private ByteBuffer bytes;
+
+    private final char[] one = new char[1];
+
+    private final char[] single = new char[2];
+
+    private boolean haveLeftover;
+
+    private char leftover;
+
+    private boolean eof;
+
+    private long byteCount;
+
+    private boolean flushed;
+
+    PooledStreamReader( final InputStream in, final Charset charset, final JsonBufferPool pool )
+    {
+        this.in = in;
+        this.pool = pool;
+        this.decoder = pool.acquireDecoder( charset );
+        this.bytes = ByteBuffer.wrap( pool.acquireBytes() );
+        bytes.flip();
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        return read( one, 0, 1 ) < 0 ? -1 : one[0];
+    }
+
+    @Override
+    public int read( final char[] cbuf, int off, int len )
+        throws IOException
+    {
+        ensureOpen();
+        if ( len < 1 )
+        {
+            return 0;
+        }
+
+        int n = 0;
+        if ( haveLeftover )
+        {
+            cbuf[off++] = leftover;
+            len--;
+            n++;
+            haveLeftover = false;
+            if ( len == 0 )
+            {
+                return n;
+            }
+        }
+
+        if ( len == 1 )
+        {
+            // a surrogate pair needs room for two chars; decode into a scratch array and keep the second.
+            final int read = decode( single, 0, 2 );
+            if ( read < 0 )
+            {
+                return n == 0 ? -1 : n;
+            }
+
+            cbuf[off] = single[0];
+            if ( read > 1 )
+            {
+                leftover = single[1];
+                haveLeftover = true;
+            }
+
+            return n + 1;
+        }
+
+        final int read = decode( cbuf, off, len );
+        if ( read < 0 )
+        {
+            return n == 0 ? -1 : n;
+        }
+
+        return n + read;
+    }
+
+    @Override
+    public boolean ready()
+        throws IOException
+    {
+        ensureOpen();
+        return haveLeftover || bytes.hasRemaining() || in.available() > 0;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        release();
+        in.close();
+    }
+
+    @Override
+    void release()
+    {
+        if ( decoder != null )
+        {
+            pool.releaseDecoder( decoder );
+            pool.releaseBytes( bytes.array() );
+            decoder = null;
+            bytes = null;
+        }
+    }
+
+    private int decode( final char[] cbuf, final int off, final int len )
+        throws IOException
+    {
+        final CharBuffer cb = CharBuffer.wrap( cbuf, off, len );
+        while ( !flushed )
+        {
+            CoderResult cr = decoder.decode( bytes, cb, eof );
+            if ( cr.isOverflow() )
+            {
+                break;
+            }
+            else if ( cr.isError() )
+            {
+                cr.throwException();
+            }
+
+            if ( eof )
+            {
+                cr = decoder.flush( cb );
+                if ( cr.isOverflow() )
+                {
+                    break;
+                }
+
+                flushed = true;
+                break;
+            }
+
+            if ( cb.position() > off )
+            {
+                // return what we have rather than block for more input.
+                break;
+            }
+
+            fill();
+        }
+
+        final int read = cb.position() - off;
+        return read == 0 && flushed ? -1 : read;
+    }
+
+    private void fill()
+        throws IOException
+    {
+        bytes.compact();
+        if ( !bytes.hasRemaining() )
+        {
+            throw new IOException( "Byte buffer too small to decode a single character." );
+        }
+
+        final int read = in.read( bytes.array(), bytes.position(), bytes.remaining() );
+        if ( read < 0 )
+        {
+            eof = true;
+        }
+        else
+        {
+            bytes.position( bytes.position() + read );
+            byteCount += read;
+        }
+        bytes.flip();
+    }
+
+    @Override
+    long getByteCount()
+    {
+        return byteCount;
+    }
+
+    private void ensureOpen()
+        throws IOException
+    {
+        if ( decoder == null )
+        {
+            throw new IOException( "Reader already released." );
+        }
+    }
+
+}
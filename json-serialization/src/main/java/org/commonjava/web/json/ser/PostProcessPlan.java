@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable, ordered list of the {@link JsonPostProcess} methods of a class (including inherited ones), looked up
+ * and made accessible once so applying them is just a series of {@link Method#invoke(Object, Object...)} calls.
+ */
+final class PostProcessPlan
+{
+
+    static final PostProcessPlan EMPTY = new PostProcessPlan( new Method[0] );
+
+    private static final Logger LOGGER = LoggerFactory.getLogger( PostProcessPlan.class );
+
+    private final Method[] methods;
+
+    private PostProcessPlan( final Method[] methods )
+    {
+        this.methods = methods;
+    }
+
+    void apply( final Object target )
+    {
+        for ( final Method method : methods )
+        {
+            try
+            {
+                method.invoke( target );
+            }
+            catch ( final IllegalAccessException e )
+            {
+                LOGGER.error( "Failed to post-process: {}. Error: {}", e, method, e.getMessage() );
+                throw new RuntimeException( "Cannot post-process deserialized value." );
+            }
+            catch ( final InvocationTargetException e )
+            {
+                final Throwable cause = e.getCause();
+                if ( cause instanceof RuntimeException )
+                {
+                    throw (RuntimeException) cause;
+                }
+                else if ( cause instanceof Error )
+                {
+                    throw (Error) cause;
+                }
+
+                LOGGER.error( "Failed to post-process: {}. Error: {}", cause, method, cause.getMessage() );
+                throw new RuntimeException( "Cannot post-process deserialized value." );
+            }
+        }
+    }
+
+    static PostProcessPlan scan( final Class<?> type )
+    {
+        final List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+        for ( Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass() )
+        {
+            if ( !c.getName()
+                   .startsWith( "java." ) )
+            {
+                hierarchy.add( 0, c );
+            }
+        }
+
+        final List<Method> found = new ArrayList<Method>();
+        final Set<String> overridable = new HashSet<String>();
+        for ( final Class<?> c : hierarchy )
+        {
+            final Method[] declared = c.getDeclaredMethods();
+            Arrays.sort( declared, BY_NAME );
+            for ( final Method method : declared )
+            {
+                if ( method.getAnnotation( JsonPostProcess.class ) == null )
+                {
+                    continue;
+                }
+
+                final int mods = method.getModifiers();
+                if ( Modifier.isStatic( mods ) || method.getParameterTypes().length > 0 )
+                {
+                    LOGGER.warn( "Ignoring @JsonPostProcess on {}: must be a no-arg instance method.", method );
+                    continue;
+                }
+
+                // an overridden post-process method is invoked (virtually) once, at the superclass's position.
+                if ( !Modifier.isPrivate( mods ) && !overridable.add( method.getName() ) )
+                {
+                    continue;
+                }
+
+                method.setAccessible( true );
+                found.add( method );
+            }
+        }
+
+        if ( found.isEmpty() )
+        {
+            return EMPTY;
+        }
+
+        // stable sort, so superclass-first / by-name order is kept within the same order() value.
+        Collections.sort( found, BY_ORDER );
+        return new PostProcessPlan( found.toArray( new Method[found.size()] ) );
+    }
+
+    private static final Comparator<Method> BY_NAME = new Comparator<Method>()
+    {
+        @Override
+        public int compare( final Method first, final Method second )
+        {
+            return first.getName()
+                        .compareTo( second.getName() );
+        }
+    };
+
+    private static final Comparator<Method> BY_ORDER = new Comparator<Method>()
+    {
+        @Override
+        public int compare( final Method first, final Method second )
+        {
+            final int a = first.getAnnotation( JsonPostProcess.class )
+                               .order();
+            final int b = second.getAnnotation( JsonPostProcess.class )
+                                .order();
+            return a < b ? -1 : ( a == b ? 0 : 1 );
+        }
+    };
+
+}
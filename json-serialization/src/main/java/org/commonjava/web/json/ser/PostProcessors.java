@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.util.List;
+
+/**
+ * Applies {@link DeserializerPostProcessor}s to runs of listing items, batching for those that support it.
+ */
+final class PostProcessors
+{
+
+    private PostProcessors()
+    {
+    }
+
+    /**
+     * Run each post-processor over all of the items in turn: batch-aware ones get chunks of at most their batch size,
+     * the rest get one call per item.
+     */
+    static <T> void apply( final List<T> items, final DeserializerPostProcessor<T>... postProcessors )
+    {
+        if ( items.isEmpty() )
+        {
+            return;
+        }
+
+        for ( final DeserializerPostProcessor<T> proc : postProcessors )
+        {
+            if ( proc instanceof BatchDeserializerPostProcessor )
+            {
+                final BatchDeserializerPostProcessor<T> batch = (BatchDeserializerPostProcessor<T>) proc;
+                final int size = Math.max( 1, batch.getBatchSize() );
+                for ( int i = 0; i < items.size(); i += size )
+                {
+                    batch.processBatch( items.subList( i, Math.min( items.size(), i + size ) ) );
+                }
+            }
+            else
+            {
+                for ( final T item : items )
+                {
+                    proc.process( item );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the largest batch size among the post-processors, or 1 if none of them batch
+     */
+    static int readAhead( final DeserializerPostProcessor<?>... postProcessors )
+    {
+        int max = 1;
+        for ( final DeserializerPostProcessor<?> proc : postProcessors )
+        {
+            if ( proc instanceof BatchDeserializerPostProcessor )
+            {
+                max = Math.max( max, ( (BatchDeserializerPostProcessor<?>) proc ).getBatchSize() );
+            }
+        }
+
+        return max;
+    }
+
+}
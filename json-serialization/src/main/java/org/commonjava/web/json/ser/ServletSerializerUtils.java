@@ -10,9 +10,29 @@
  ******************************************************************************/
 package org.commonjava.web.json.ser;
 
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,13 +42,26 @@ import com.google.gson.reflect.TypeToken;
 public final class ServletSerializerUtils
 {
 
+    public static final String JSON_CONTENT_TYPE = "application/json";
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
     private static final Logger LOGGER = LoggerFactory.getLogger( ServletSerializerUtils.class );
 
     private ServletSerializerUtils()
     {
     }
 
+    /**
+     * Deserialize the request body, as {@link JsonWireFormat#BINARY} if that's its Content-Type, otherwise as JSON.
+     * A gzip or deflate Content-Encoding is decompressed as the body is read.
+     */
     public static <T> T fromRequestBody( final HttpServletRequest req, final JsonSerializer serializer, final Class<T> type )
+    {
+        return fromRequestBody( req, serializer, TypeToken.get( type ) );
+    }
+
+    public static <T> T fromRequestBody( final HttpServletRequest req, final JsonSerializer serializer, final TypeToken<T> token )
     {
         String encoding = req.getCharacterEncoding();
         if ( encoding == null )
@@ -36,35 +69,387 @@ public final class ServletSerializerUtils
             encoding = "UTF-8";
         }
 
+        final ContentEncoding contentEncoding = ContentEncoding.forHeader( req.getHeader( CONTENT_ENCODING ) );
+        if ( contentEncoding == null )
+        {
+            LOGGER.error( "Failed to deserialize type: {} from HttpServletRequest body. Unsupported Content-Encoding: {}",
+                          token.getType(), req.getHeader( CONTENT_ENCODING ) );
+
+            throw new RuntimeException( "Cannot read request." );
+        }
+
+        // reject a declared oversize body before reading any of it.
+        serializer.getLimits()
+                  .checkSize( req.getContentLength() );
+
+        InputStream in = null;
         try
         {
-            return serializer.fromStream( req.getInputStream(), encoding, type );
+            in = contentEncoding.decode( req.getInputStream() );
+            if ( JsonWireFormat.forContentType( req.getContentType() ) == JsonWireFormat.BINARY )
+            {
+                return serializer.fromBinaryStream( in, token );
+            }
+
+            return serializer.fromStream( in, encoding, token );
         }
         catch ( final IOException e )
         {
-            LOGGER.error( "Failed to deserialize type: {} from HttpServletRequest body. Error: {}", e, type.getName(), e.getMessage() );
+            LOGGER.error( "Failed to deserialize type: {} from HttpServletRequest body. Error: {}", e, token.getType(), e.getMessage() );
 
             throw new RuntimeException( "Cannot read request." );
         }
+        finally
+        {
+            closeQuietly( in );
+        }
     }
 
-    public static <T> T fromRequestBody( final HttpServletRequest req, final JsonSerializer serializer, final TypeToken<T> token )
+    public static void toResponseBody( final HttpServletResponse resp, final JsonSerializer serializer, final Object value )
     {
-        String encoding = req.getCharacterEncoding();
-        if ( encoding == null )
+        toResponseBody( resp, serializer, value, value.getClass() );
+    }
+
+    /**
+     * Stream the serialized value into the response body. If no content type has been set yet, the response is
+     * marked as UTF-8 encoded <code>application/json</code>.
+     */
+    public static void toResponseBody( final HttpServletResponse resp, final JsonSerializer serializer, final Object value,
+                                       final Type type )
+    {
+        writeResponse( resp, serializer, value, type, JsonWireFormat.JSON, ContentEncoding.IDENTITY );
+    }
+
+    public static void toResponseBody( final HttpServletRequest req, final HttpServletResponse resp,
+                                       final JsonSerializer serializer, final Object value )
+    {
+        toResponseBody( req, resp, serializer, value, value.getClass() );
+    }
+
+    /**
+     * Stream the serialized value into the response body in the format the request's Accept header prefers (see
+     * {@link JsonWireFormat#negotiate(String)}), compressed as its Accept-Encoding header allows (see
+     * {@link ContentEncoding#negotiate(String)}).
+     */
+    public static void toResponseBody( final HttpServletRequest req, final HttpServletResponse resp,
+                                       final JsonSerializer serializer, final Object value, final Type type )
+    {
+        resp.addHeader( "Vary", "Accept, Accept-Encoding" );
+        writeResponse( resp, serializer, value, type, JsonWireFormat.negotiate( req.getHeader( "Accept" ) ),
+                       ContentEncoding.negotiate( req.getHeader( "Accept-Encoding" ) ) );
+    }
+
+    private static void writeResponse( final HttpServletResponse resp, final JsonSerializer serializer,
+                                       final Object value, final Type type, final JsonWireFormat format,
+                                       final ContentEncoding contentEncoding )
+    {
+        if ( format == JsonWireFormat.BINARY )
         {
-            encoding = "UTF-8";
+            resp.setContentType( format.getContentType() );
+        }
+        else if ( resp.getContentType() == null )
+        {
+            resp.setContentType( JSON_CONTENT_TYPE );
+            resp.setCharacterEncoding( "UTF-8" );
+        }
+
+        if ( contentEncoding != ContentEncoding.IDENTITY )
+        {
+            resp.setHeader( CONTENT_ENCODING, contentEncoding.getToken() );
         }
 
         try
         {
-            return serializer.fromStream( req.getInputStream(), encoding, token );
+            // closing the coding stream finishes the compressed body, but leaves the response open.
+            final OutputStream out = contentEncoding.encode( resp.getOutputStream() );
+            try
+            {
+                if ( format == JsonWireFormat.BINARY )
+                {
+                    serializer.toBinaryStream( value, type, out );
+                }
+                else
+                {
+                    serializer.toStream( value, type, out, Charset.forName( resp.getCharacterEncoding() ) );
+                }
+            }
+            finally
+            {
+                out.close();
+            }
         }
         catch ( final IOException e )
         {
-            LOGGER.error( "Failed to deserialize type: {} from HttpServletRequest body. Error: {}", e, token.getType(), e.getMessage() );
+            LOGGER.error( "Failed to serialize type: {} to HttpServletResponse body. Error: {}", e, type, e.getMessage() );
 
-            throw new RuntimeException( "Cannot read request." );
+            throw new RuntimeException( "Cannot write response." );
+        }
+    }
+
+    /**
+     * Put the request into asynchronous mode and deserialize its body on the container's async executor
+     * ({@link AsyncContext#start(Runnable)}). Only the dispatch is asynchronous: the body is still read with blocking
+     * I/O, and on most containers (Tomcat included) that executor is the request thread pool, so a slow upload still
+     * occupies a container thread. Use the overloads taking an {@link Executor} to read on a pool of your own.
+     * <p>
+     * The handler gets the result (or the failure), then the async context is completed. If the async context times
+     * out or fails first, the read is interrupted and the handler is told it failed; the container's listener thread
+     * waits for the read to stop before returning, so the request isn't recycled while it is still being read.
+     */
+    public static <T> Future<T> fromRequestBodyAsync( final HttpServletRequest req, final JsonSerializer serializer,
+                                                      final Class<T> type, final AsyncBodyHandler<T> handler )
+    {
+        return fromRequestBodyAsync( req, serializer, TypeToken.get( type ), null, handler );
+    }
+
+    public static <T> Future<T> fromRequestBodyAsync( final HttpServletRequest req, final JsonSerializer serializer,
+                                                      final TypeToken<T> token, final AsyncBodyHandler<T> handler )
+    {
+        return fromRequestBodyAsync( req, serializer, token, null, handler );
+    }
+
+    public static <T> Future<T> fromRequestBodyAsync( final HttpServletRequest req, final JsonSerializer serializer,
+                                                      final Class<T> type, final Executor executor,
+                                                      final AsyncBodyHandler<T> handler )
+    {
+        return fromRequestBodyAsync( req, serializer, TypeToken.get( type ), executor, handler );
+    }
+
+    /**
+     * As {@link #fromRequestBodyAsync(HttpServletRequest, JsonSerializer, TypeToken, AsyncBodyHandler)}, but the body
+     * is read on the given executor (the container's async executor if null). A bounded pool of your own keeps slow
+     * uploads from tying up container threads; they tie up that pool's threads instead. If the executor rejects the
+     * read, the handler is told it failed.
+     */
+    public static <T> Future<T> fromRequestBodyAsync( final HttpServletRequest req, final JsonSerializer serializer,
+                                                      final TypeToken<T> token, final Executor executor,
+                                                      final AsyncBodyHandler<T> handler )
+    {
+        return startAsyncRead( req, handler, executor, new Callable<T>()
+        {
+            @Override
+            public T call()
+            {
+                return fromRequestBody( req, serializer, token );
+            }
+        } );
+    }
+
+    /**
+     * Serialize the value into the response of an asynchronous request on the container's async executor, then
+     * complete the async context. Format and compression are negotiated from the request, as in
+     * {@link #toResponseBody(HttpServletRequest, HttpServletResponse, JsonSerializer, Object, Type)}.
+     */
+    public static Future<Void> toResponseBodyAsync( final AsyncContext context, final JsonSerializer serializer,
+                                                    final Object value, final Type type )
+    {
+        final FutureTask<Void> task = new FutureTask<Void>( new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                try
+                {
+                    toResponseBody( (HttpServletRequest) context.getRequest(), (HttpServletResponse) context.getResponse(),
+                                    serializer, value, type );
+                }
+                finally
+                {
+                    context.complete();
+                }
+
+                return null;
+            }
+        } );
+
+        context.start( task );
+        return task;
+    }
+
+    private static <T> Future<T> startAsyncRead( final HttpServletRequest req, final AsyncBodyHandler<T> handler,
+                                                 final Executor executor, final Callable<T> read )
+    {
+        final AsyncContext context = req.isAsyncStarted() ? req.getAsyncContext() : req.startAsync();
+        final AsyncReadTask<T> task = new AsyncReadTask<T>( read, context, handler );
+
+        context.addListener( new AsyncListener()
+        {
+            @Override
+            public void onTimeout( final AsyncEvent event )
+            {
+                task.abandon( event.getThrowable() );
+            }
+
+            @Override
+            public void onStartAsync( final AsyncEvent event )
+            {
+            }
+
+            @Override
+            public void onError( final AsyncEvent event )
+            {
+                task.abandon( event.getThrowable() );
+            }
+
+            @Override
+            public void onComplete( final AsyncEvent event )
+            {
+            }
+        } );
+
+        try
+        {
+            if ( executor == null )
+            {
+                context.start( task );
+            }
+            else
+            {
+                executor.execute( task );
+            }
+        }
+        catch ( final RejectedExecutionException e )
+        {
+            LOGGER.error( "Cannot schedule async read of HttpServletRequest body. Error: {}", e, e.getMessage() );
+            task.abandon( e );
+        }
+
+        return task;
+    }
+
+    /**
+     * Reads the body, then tells the handler and completes the async context. Whichever thread claims delivery first
+     * does it: the read thread once the read returns, or a listener abandoning the task. A listener that abandons the
+     * task mid-read doesn't wait for the read, since servlet reads can ignore the interrupt; it delivers the failure
+     * itself and the read thread, when its read finally returns, finds delivery already claimed and does nothing.
+     */
+    private static final class AsyncReadTask<T>
+        extends FutureTask<T>
+    {
+        /**
+         * How long a listener waits for the read thread to finish a delivery already under way.
+         */
+        private static final long DELIVERY_WAIT_MILLIS = 5000;
+
+        private final AsyncContext context;
+
+        private final AsyncBodyHandler<T> handler;
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private final CountDownLatch delivered = new CountDownLatch( 1 );
+
+        AsyncReadTask( final Callable<T> read, final AsyncContext context, final AsyncBodyHandler<T> handler )
+        {
+            super( read );
+            this.context = context;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run()
+        {
+            // does nothing if the task was abandoned before it started.
+            super.run();
+
+            if ( !claimed.compareAndSet( false, true ) )
+            {
+                // abandoned; the failure has been delivered already.
+                return;
+            }
+
+            if ( isCancelled() )
+            {
+                // don't let the cancellation interrupt break the handler's own I/O.
+                Thread.interrupted();
+            }
+
+            deliver( null );
+        }
+
+        /**
+         * Called when the async context times out or fails, or the read can't be scheduled.
+         */
+        void abandon( final Throwable cause )
+        {
+            cancel( true );
+
+            if ( claimed.compareAndSet( false, true ) )
+            {
+                deliver( cause );
+                return;
+            }
+
+            // the read finished and its thread is calling the handler; give it a bounded time to complete the context.
+            try
+            {
+                if ( !delivered.await( DELIVERY_WAIT_MILLIS, TimeUnit.MILLISECONDS ) )
+                {
+                    LOGGER.warn( "Async request handler still running {}ms after the request was abandoned.",
+                                 DELIVERY_WAIT_MILLIS );
+                }
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread()
+                      .interrupt();
+            }
+        }
+
+        private void deliver( final Throwable cause )
+        {
+            try
+            {
+                if ( cause != null )
+                {
+                    handler.failed( cause, context );
+                    return;
+                }
+
+                final T value;
+                try
+                {
+                    value = get();
+                }
+                catch ( final ExecutionException e )
+                {
+                    handler.failed( e.getCause(), context );
+                    return;
+                }
+                catch ( final CancellationException e )
+                {
+                    handler.failed( e, context );
+                    return;
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread()
+                          .interrupt();
+                    handler.failed( e, context );
+                    return;
+                }
+
+                try
+                {
+                    handler.handle( value, context );
+                }
+                catch ( final Exception e )
+                {
+                    // the handler has had its one call; don't report its own failure back to it.
+                    LOGGER.error( "Async request handler failed: {}", e, e.getMessage() );
+                }
+            }
+            finally
+            {
+                try
+                {
+                    context.complete();
+                }
+                finally
+                {
+                    delivered.countDown();
+                }
+            }
         }
     }
 }
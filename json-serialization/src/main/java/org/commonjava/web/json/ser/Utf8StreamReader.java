@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * UTF-8 reader that decodes straight out of a pooled byte buffer. Runs of ASCII (all of the JSON structure, keys and
+ * numbers in practice) are widened byte-for-byte without going through a {@link java.nio.charset.CharsetDecoder};
+ * only multi-byte sequences take the slow path. Malformed input is replaced with U+FFFD, like the decoder path.
+ */
+final class Utf8StreamReader
+    extends PooledReader
+{
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final InputStream in;
+
+    private final JsonBufferPool pool;
+
+    private byte[] buf;
+
+    private int pos;
+
+    private int limit;
+
+    private boolean eof;
+
+    private long byteCount;
+
+    private boolean haveLeftover;
+
+    private char leftover;
+
+    private final char[] one = new char[1];
+
+    Utf8StreamReader( final InputStream in, final JsonBufferPool pool )
+    {
+        this.in = in;
+        this.pool = pool;
+        this.buf = pool.acquireBytes();
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        return read( one, 0, 1 ) < 0 ? -1 : one[0];
+    }
+
+    @Override
+    public int read( final char[] cbuf, final int off, final int len )
+        throws IOException
+    {
+        ensureOpen();
+        if ( len < 1 )
+        {
+            return 0;
+        }
+
+        int n = off;
+        final int end = off + len;
+        if ( haveLeftover )
+        {
+            cbuf[n++] = leftover;
+            haveLeftover = false;
+        }
+
+        final byte[] b = buf;
+        while ( n < end )
+        {
+            if ( pos >= limit )
+            {
+                // return what we have rather than block for more input.
+                if ( n > off || eof || !fill() )
+                {
+                    break;
+                }
+            }
+
+            // ASCII fast path.
+            int p = pos;
+            final int max = Math.min( limit, p + end - n );
+            while ( p < max && b[p] >= 0 )
+            {
+                cbuf[n++] = (char) b[p++];
+            }
+            pos = p;
+
+            if ( n < end && pos < limit && b[pos] < 0 )
+            {
+                final int need = sequenceLength( b[pos] & 0xFF );
+                if ( limit - pos < need && !eof )
+                {
+                    if ( n > off )
+                    {
+                        break;
+                    }
+
+                    fill();
+                    continue;
+                }
+
+                n = decodeSequence( cbuf, n, end, need );
+            }
+        }
+
+        final int read = n - off;
+        return read == 0 && pos >= limit && eof ? -1 : read;
+    }
+
+    @Override
+    public boolean ready()
+        throws IOException
+    {
+        ensureOpen();
+        return haveLeftover || pos < limit || in.available() > 0;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        release();
+        in.close();
+    }
+
+    @Override
+    void release()
+    {
+        if ( buf != null )
+        {
+            pool.releaseBytes( buf );
+            buf = null;
+        }
+    }
+
+    /**
+     * Decode one multi-byte sequence at <code>pos</code> (which may be truncated only at end of input) into
+     * <code>cbuf[n]</code>, spilling the low half of a surrogate pair into the leftover slot if there's no room.
+     */
+    private int decodeSequence( final char[] cbuf, int n, final int end, final int need )
+    {
+        final byte[] b = buf;
+        final int lead = b[pos] & 0xFF;
+        if ( need == 0 )
+        {
+            pos++;
+            cbuf[n++] = REPLACEMENT;
+            return n;
+        }
+
+        int cp = lead & ( 0x7F >> need );
+        for ( int i = 1; i < need; i++ )
+        {
+            if ( pos + i >= limit || ( b[pos + i] & 0xC0 ) != 0x80
+                || ( i == 1 && !isSecondByteAllowed( lead, b[pos + 1] & 0xFF ) ) )
+            {
+                // truncated or malformed: replace the bytes consumed so far.
+                pos += i;
+                cbuf[n++] = REPLACEMENT;
+                return n;
+            }
+
+            cp = ( cp << 6 ) | ( b[pos + i] & 0x3F );
+        }
+
+        pos += need;
+        if ( ( need == 3 && ( cp < 0x800 || ( cp >= 0xD800 && cp <= 0xDFFF ) ) )
+            || ( need == 4 && ( cp < 0x10000 || cp > 0x10FFFF ) ) )
+        {
+            cbuf[n++] = REPLACEMENT;
+        }
+        else if ( cp >= 0x10000 )
+        {
+            cp -= 0x10000;
+            cbuf[n++] = (char) ( 0xD800 | ( cp >> 10 ) );
+            final char low = (char) ( 0xDC00 | ( cp & 0x3FF ) );
+            if ( n < end )
+            {
+                cbuf[n++] = low;
+            }
+            else
+            {
+                leftover = low;
+                haveLeftover = true;
+            }
+        }
+        else
+        {
+            cbuf[n++] = (char) cp;
+        }
+
+        return n;
+    }
+
+    /**
+     * Second-byte limits that rule out overlong (E0, F0) and out-of-range (F4) sequences, as the JDK decoder applies
+     * them: if the second byte is outside them, only the lead byte is replaced. Surrogates (ED A0..BF) are not
+     * excluded here, because the JDK decoder replaces the whole three-byte sequence with a single U+FFFD.
+     */
+    private static boolean isSecondByteAllowed( final int lead, final int second )
+    {
+        switch ( lead )
+        {
+            case 0xE0:
+                return second >= 0xA0;
+            case 0xF0:
+                return second >= 0x90;
+            case 0xF4:
+                return second <= 0x8F;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return total length of the sequence started by the given lead byte, or 0 if it can't start one
+     */
+    private static int sequenceLength( final int lead )
+    {
+        if ( lead >= 0xC2 && lead <= 0xDF )
+        {
+            return 2;
+        }
+        else if ( lead >= 0xE0 && lead <= 0xEF )
+        {
+            return 3;
+        }
+        else if ( lead >= 0xF0 && lead <= 0xF4 )
+        {
+            return 4;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Move any unread bytes to the front of the buffer and read more after them.
+     *
+     * @return false at end of input
+     */
+    private boolean fill()
+        throws IOException
+    {
+        final int remaining = limit - pos;
+        if ( remaining > 0 && pos > 0 )
+        {
+            System.arraycopy( buf, pos, buf, 0, remaining );
+        }
+        pos = 0;
+        limit = remaining;
+
+        final int read = in.read( buf, limit, buf.length - limit );
+        if ( read < 0 )
+        {
+            eof = true;
+            return false;
+        }
+
+        limit += read;
+        byteCount += read;
+        return true;
+    }
+
+    @Override
+    long getByteCount()
+    {
+        return byteCount;
+    }
+
+    private void ensureOpen()
+        throws IOException
+    {
+        if ( buf == null )
+        {
+            throw new IOException( "Reader already released." );
+        }
+    }
+
+}
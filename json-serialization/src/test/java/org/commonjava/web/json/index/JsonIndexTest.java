@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ * 
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.index;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.gson.JsonSyntaxException;
+
+public class JsonIndexTest
+{
+
+    private static final String LISTING =
+        "{\"total\": 3, \"items\": [ {\"email\":\"a@nowhere.com\",\"name\":\"A\"}, {\"email\":\"b\\u0040nowhere.com\"},"
+            + " {\"name\":null, \"tags\": [], \"email\": \"c@nowhere.com\"} ], \"empty\": {}, \"ok\": true }";
+
+    @Test
+    public void queryWildcardPathAcrossListingItems()
+    {
+        final JsonIndex index = JsonIndex.build( LISTING );
+
+        assertThat( index.getStrings( "items[*].email" ),
+                    equalTo( Arrays.asList( "a@nowhere.com", "b@nowhere.com", "c@nowhere.com" ) ) );
+        assertThat( index.getStrings( "$.items[*].name" ), equalTo( Arrays.asList( "A", null ) ) );
+        assertThat( index.getFirstString( "items[1].email" ), equalTo( "b@nowhere.com" ) );
+        assertThat( index.getFirstString( "total" ), equalTo( "3" ) );
+        assertThat( index.getFirstString( "['ok']" ), equalTo( "true" ) );
+        assertThat( index.getFirstString( "items[3].email" ), nullValue() );
+        assertThat( index.getStrings( "empty.*" ), equalTo( Collections.<String> emptyList() ) );
+    }
+
+    @Test
+    public void exposeNodeStructure()
+    {
+        final JsonIndex index = JsonIndex.build( LISTING );
+
+        final int items = index.getMember( JsonIndex.ROOT, "items" );
+        assertThat( index.getType( items ), equalTo( JsonType.ARRAY ) );
+        assertThat( index.getChildCount( items ), equalTo( 3 ) );
+        assertThat( index.getChildCount( JsonIndex.ROOT ), equalTo( 4 ) );
+
+        final int tags = index.findFirst( "items[2].tags" );
+        assertThat( index.getRaw( tags ), equalTo( "[]" ) );
+        assertThat( index.getChildCount( tags ), equalTo( 0 ) );
+        assertThat( index.getName( tags ), equalTo( "tags" ) );
+        assertThat( index.getType( index.findFirst( "items[2].name" ) ), equalTo( JsonType.NULL ) );
+    }
+
+    @Test( expected = JsonSyntaxException.class )
+    public void rejectMalformedDocument()
+    {
+        JsonIndex.build( "{\"items\": [1, 2,]}" );
+    }
+
+    @Test
+    public void rejectMalformedEscapes()
+    {
+        for ( final String json : Arrays.asList( "[\"\\u00zz\"]", "{\"a\\u00\": 1}", "[\"\\u12", "[\"\\q\"]" ) )
+        {
+            try
+            {
+                JsonIndex.build( json );
+                fail( "Should have rejected: " + json );
+            }
+            catch ( final JsonSyntaxException e )
+            {
+                // expected.
+            }
+        }
+    }
+
+}
@@ -13,15 +13,49 @@ package org.commonjava.web.json.ser;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.enterprise.inject.Instance;
+
+import org.commonjava.web.json.metrics.InMemorySerializerMetrics;
+import org.commonjava.web.json.metrics.LatencyHistogram;
+import org.commonjava.web.json.metrics.NoOpSerializerMetrics;
+import org.commonjava.web.json.metrics.SerializerMetrics;
+import org.commonjava.web.json.metrics.SerializerOperation;
+import org.commonjava.web.json.model.LazyListing;
 import org.commonjava.web.json.model.Listing;
 import org.commonjava.web.json.ser.fixture.AnnotatedTestData;
+import org.commonjava.web.json.ser.fixture.AnnotatedTestDataGroup;
+import org.commonjava.web.json.ser.fixture.OwnedTestDataListing;
+import org.commonjava.web.json.ser.fixture.PostProcessedTestData;
 import org.commonjava.web.json.ser.fixture.TestData;
 import org.junit.Test;
 
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 
 public class JsonSerializerTest
@@ -81,6 +115,29 @@ public class JsonSerializerTest
         assertThat( json.contains( "other name" ), equalTo( true ) );
     }
 
+    @Test
+    public void serializeListingSubclassKeepsItsFields()
+    {
+        final OwnedTestDataListing listing =
+            new OwnedTestDataListing( "me", Arrays.asList( new TestData( "email@nowhere.com", "my name" ) ) );
+
+        final JsonSerializer ser = new JsonSerializer();
+        final String json = ser.toString( listing );
+        assertThat( json.contains( "\"owner\":\"me\"" ), equalTo( true ) );
+        assertThat( json.contains( "email@nowhere.com" ), equalTo( true ) );
+
+        // also when the declared type is Listing.
+        assertThat( ser.toString( listing, new TypeToken<Listing<TestData>>()
+        {
+        }.getType() ), equalTo( json ) );
+
+        final OwnedTestDataListing result = ser.fromString( json, OwnedTestDataListing.class );
+        assertThat( result.getOwner(), equalTo( "me" ) );
+        assertThat( result.getItems()
+                          .get( 0 )
+                          .getName(), equalTo( "my name" ) );
+    }
+
     @Test
     public void roundTripWithJsonAdaptersAnnotation()
     {
@@ -100,4 +157,825 @@ public class JsonSerializerTest
 
     }
 
+    @Test
+    public void reuseCachedGsonUntilAdaptersChange()
+    {
+        final JsonSerializer ser = new JsonSerializer();
+        final String json = ser.toString( new TestData( "email@nowhere.com", "my name" ) );
+        ser.fromString( json, TestData.class );
+        ser.fromString( json, TestData.class );
+
+        assertThat( ser.getGsonCacheMisses(), equalTo( 1L ) );
+        assertThat( ser.getGsonCacheHits(), equalTo( 2L ) );
+
+        ser.registerSerializationAdapters( new AnnotatedTestData.Ser() );
+        assertThat( ser.getGsonCacheSize(), equalTo( 0 ) );
+
+        ser.fromString( json, TestData.class );
+        assertThat( ser.getGsonCacheMisses(), equalTo( 2L ) );
+    }
+
+    @Test
+    public void streamDeserializeWithTruncatedDebugCapture()
+        throws Exception
+    {
+        final JsonSerializer ser = new JsonSerializer();
+        ser.setDebugCaptureLimit( 10 );
+
+        final String json = ser.toString( new TestData( "email@nowhere.com", "my name" ) );
+        final TestData data = ser.fromStream( new ByteArrayInputStream( json.getBytes( "UTF-8" ) ), null, TestData.class );
+
+        assertThat( data.getEmail(), equalTo( "email@nowhere.com" ) );
+        assertThat( data.getName(), equalTo( "my name" ) );
+
+        // what gets logged: the first 10 chars, however the parser reads them.
+        final CapturingReader capture = new CapturingReader( new StringReader( json ), 10 );
+        assertThat( capture.read(), equalTo( (int) '{' ) );
+        final char[] buf = new char[4];
+        while ( capture.read( buf, 0, buf.length ) > -1 )
+        {
+        }
+        assertThat( capture.getCaptured(), equalTo( json.substring( 0, 10 ) + "...[truncated]" ) );
+
+        final CapturingReader whole = new CapturingReader( new StringReader( json ), json.length() );
+        assertThat( whole.skip( json.length() ), equalTo( (long) json.length() ) );
+        assertThat( whole.read(), equalTo( -1 ) );
+        assertThat( whole.getCaptured(), equalTo( json ) );
+    }
+
+    @Test
+    public void streamDeserializeEmptyBodyReturnsNull()
+        throws Exception
+    {
+        final TestData data =
+            new JsonSerializer().fromStream( new ByteArrayInputStream( new byte[0] ), "UTF-8", new TypeToken<TestData>()
+            {
+            } );
+
+        assertThat( data, nullValue() );
+    }
+
+    @Test
+    public void streamSerializeLargeListingMatchesToString()
+        throws Exception
+    {
+        final List<TestData> items = new ArrayList<TestData>();
+        for ( int i = 0; i < 2000; i++ )
+        {
+            items.add( new TestData( "user" + i + "@nowhere.com", "name " + i ) );
+        }
+
+        final Listing<TestData> listing = new Listing<TestData>( items );
+        final Type type = new TypeToken<Listing<TestData>>()
+        {
+        }.getType();
+
+        final JsonSerializer ser = new JsonSerializer();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ser.toStream( listing, type, baos, null );
+
+        assertThat( new String( baos.toByteArray(), "UTF-8" ), equalTo( ser.toString( listing, type ) ) );
+    }
+
+    @Test
+    public void iterateListingItemsFromStream()
+        throws Exception
+    {
+        final String json =
+            "{\"total\": 3, \"items\": [{\"email\":\"a@nowhere.com\"},{\"email\":\"b@nowhere.com\"},{\"email\":\"c@nowhere.com\"}]}";
+
+        final List<String> processed = new ArrayList<String>();
+        final ListingIterator<TestData> it =
+            new JsonSerializer().listingIterator( new ByteArrayInputStream( json.getBytes( "UTF-8" ) ), null,
+                                                  new TypeToken<Listing<TestData>>()
+                                                  {
+                                                  }, new DeserializerPostProcessor<TestData>()
+                                                  {
+                                                      @Override
+                                                      public void process( final TestData value )
+                                                      {
+                                                          processed.add( value.getEmail() );
+                                                      }
+                                                  } );
+
+        final List<String> emails = new ArrayList<String>();
+        while ( it.hasNext() )
+        {
+            emails.add( it.next()
+                          .getEmail() );
+            assertThat( processed.size(), equalTo( emails.size() ) );
+        }
+        it.close();
+
+        assertThat( emails, equalTo( Arrays.asList( "a@nowhere.com", "b@nowhere.com", "c@nowhere.com" ) ) );
+    }
+
+    @Test
+    public void iterateEmptyListing()
+        throws Exception
+    {
+        final ListingIterator<TestData> it =
+            new JsonSerializer().listingIterator( new StringReader( "{\"items\":null}" ), new TypeToken<Listing<TestData>>()
+            {
+            } );
+
+        assertThat( it.hasNext(), equalTo( false ) );
+    }
+
+    @Test
+    public void iterateListingRejectsLaterItemsMember()
+        throws Exception
+    {
+        final ListingIterator<TestData> it =
+            new JsonSerializer().listingIterator( new StringReader( "{\"items\":[{\"email\":\"a@nowhere.com\"}],"
+                + "\"total\":1,\"items\":null}" ), new TypeToken<Listing<TestData>>()
+            {
+            } );
+
+        assertThat( it.next()
+                      .getEmail(), equalTo( "a@nowhere.com" ) );
+        try
+        {
+            it.hasNext();
+            fail( "Second items member was ignored." );
+        }
+        catch ( final JsonSyntaxException e )
+        {
+        }
+        finally
+        {
+            it.close();
+        }
+    }
+
+    @Test
+    public void skipListingItemsWithoutDeserializing()
+        throws Exception
+    {
+        final String json =
+            "{\"items\": [{\"email\":\"a@nowhere.com\"},{\"email\":\"b@nowhere.com\"},{\"email\":\"c@nowhere.com\"}]}";
+
+        final List<String> processed = new ArrayList<String>();
+        final ListingIterator<TestData> it =
+            new JsonSerializer().listingIterator( new StringReader( json ), new TypeToken<Listing<TestData>>()
+            {
+            }, new DeserializerPostProcessor<TestData>()
+            {
+                @Override
+                public void process( final TestData value )
+                {
+                    processed.add( value.getEmail() );
+                }
+            } );
+
+        it.skip();
+        assertThat( it.next()
+                      .getEmail(), equalTo( "b@nowhere.com" ) );
+        it.skip();
+        assertThat( it.hasNext(), equalTo( false ) );
+        it.close();
+
+        assertThat( processed, equalTo( Arrays.asList( "b@nowhere.com" ) ) );
+    }
+
+    @Test
+    public void serializeLazyListingFromIterable()
+    {
+        final Iterable<TestData> source = new Iterable<TestData>()
+        {
+            @Override
+            public Iterator<TestData> iterator()
+            {
+                return Arrays.asList( new TestData( "email@nowhere.com", "my name" ), null,
+                                      new TestData( "root@nowhere.com", "other name" ) )
+                             .iterator();
+            }
+        };
+
+        final Type type = new TypeToken<Listing<TestData>>()
+        {
+        }.getType();
+
+        final JsonSerializer ser = new JsonSerializer();
+        final String json = ser.toString( new LazyListing<TestData>( source ), type );
+
+        assertThat( json,
+                    equalTo( "{\"items\":[{\"email\":\"email@nowhere.com\",\"name\":\"my name\"},null,"
+                        + "{\"email\":\"root@nowhere.com\",\"name\":\"other name\"}]}" ) );
+
+        final Listing<TestData> result = ser.fromString( json, type );
+        assertThat( result.getItems()
+                          .size(), equalTo( 3 ) );
+        assertThat( result.getItems()
+                          .get( 2 )
+                          .getName(), equalTo( "other name" ) );
+    }
+
+    @Test
+    public void roundTripWithJsonAdaptersOnSuperclassGenericField()
+    {
+        final AnnotatedTestDataGroup.Named group =
+            new AnnotatedTestDataGroup.Named( "group", Arrays.asList( new AnnotatedTestData( "first", "inner 1" ),
+                                                                      new AnnotatedTestData( "second", "inner 2" ) ) );
+
+        final JsonSerializer ser = new JsonSerializer();
+        final String json = ser.toString( group );
+
+        assertThat( json.indexOf( "foo" ) > -1, equalTo( true ) );
+        assertThat( json.indexOf( "baz" ) > -1, equalTo( true ) );
+
+        final AnnotatedTestDataGroup.Named result = ser.fromString( json, AnnotatedTestDataGroup.Named.class );
+        assertThat( result.getName(), equalTo( "group" ) );
+        assertThat( result.getMembers()
+                          .get( 1 )
+                          .getValue2()
+                          .getValue(), equalTo( "inner 2" ) );
+    }
+
+    @Test
+    public void streamEncoderWritesStringsWithoutPooledChars()
+        throws Exception
+    {
+        final JsonBufferPool pool = new JsonBufferPool( JsonBufferPool.MIN_BUFFER_SIZE, 16 );
+
+        // held, as the PooledBufferedWriter in front of the encoder would hold it.
+        final char[] held = pool.acquireChars();
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final PooledStreamEncoder encoder = new PooledStreamEncoder( baos, Charset.forName( "UTF-8" ), pool );
+        final long misses = pool.getMisses();
+
+        // surrogate pairs split across string and char[] writes, and strings longer than a pooled buffer.
+        encoder.write( "a\ud83d" );
+        encoder.write( "\ude00b" );
+        encoder.write( new char[] { '\ud83d' }, 0, 1 );
+        encoder.write( "\ude00 the quick brown fox jumps over the lazy dog" );
+        encoder.finish();
+
+        assertThat( new String( baos.toByteArray(), "UTF-8" ),
+                    equalTo( "a\ud83d\ude00b\ud83d\ude00 the quick brown fox jumps over the lazy dog" ) );
+        assertThat( pool.getMisses(), equalTo( misses ) );
+        pool.releaseChars( held );
+    }
+
+    @Test
+    public void roundTripMultibyteThroughSmallPooledBuffers()
+        throws Exception
+    {
+        final JsonSerializer ser = new JsonSerializer();
+        ser.setBufferPool( new JsonBufferPool( JsonBufferPool.MIN_BUFFER_SIZE, 16 ) );
+
+        final StringBuilder name = new StringBuilder();
+        for ( int i = 0; i < 50; i++ )
+        {
+            name.append( "n\u00e9e \u20ac \ud83d\ude00 " );
+        }
+
+        final TestData data = new TestData( "\u00fc@nowhere.com", name.toString() );
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ser.toStream( data, TestData.class, baos, null );
+        assertThat( new String( baos.toByteArray(), "UTF-8" ), equalTo( ser.toString( data ) ) );
+
+        final TestData result = ser.fromStream( new ByteArrayInputStream( baos.toByteArray() ), "UTF-8", TestData.class );
+        assertThat( result.getEmail(), equalTo( data.getEmail() ) );
+        assertThat( result.getName(), equalTo( data.getName() ) );
+
+        ser.fromStream( new ByteArrayInputStream( baos.toByteArray() ), "UTF-8", TestData.class );
+        assertThat( ser.getBufferPool()
+                       .getHits() > 0, equalTo( true ) );
+    }
+
+    @Test
+    public void utf8FastPathMatchesDecoderOnMalformedInput()
+        throws Exception
+    {
+        final byte[] json =
+            new byte[] { '{', '"', 'e', 'm', 'a', 'i', 'l', '"', ':', '"', 'a', (byte) 0xC3, '(', 'b', (byte) 0xE2,
+                (byte) 0x82, '"', ',', '"', 'n', 'a', 'm', 'e', '"', ':', '"', (byte) 0xF0, (byte) 0x9F, (byte) 0x98,
+                (byte) 0x80, ' ', (byte) 0xFF, (byte) 0xC3, (byte) 0xA9, '"', '}' };
+
+        final JsonSerializer fast = new JsonSerializer();
+        fast.setBufferPool( new JsonBufferPool( JsonBufferPool.MIN_BUFFER_SIZE, 16 ) );
+
+        final JsonSerializer decoder = new JsonSerializer();
+        decoder.setUtf8FastPath( false );
+
+        final TestData expected = decoder.fromStream( new ByteArrayInputStream( json ), "UTF-8", TestData.class );
+        final TestData result = fast.fromStream( new ByteArrayInputStream( json ), "UTF-8", TestData.class );
+
+        assertThat( result.getEmail(), equalTo( expected.getEmail() ) );
+        assertThat( result.getName(), equalTo( expected.getName() ) );
+        assertThat( result.getName(), equalTo( "\ud83d\ude00 \ufffd\u00e9" ) );
+
+        // overlong, surrogate and out-of-range sequences, next to their valid neighbours.
+        final int[][] sequences =
+            { { 0xE0, 0x80, 0x80 }, { 0xE0, 0x9F, 0xBF }, { 0xE0, 0xA0, 0x80 }, { 0xED, 0xA0, 0x80 },
+                { 0xED, 0x9F, 0xBF }, { 0xF0, 0x80, 0x80, 0x80 }, { 0xF0, 0x8F, 0xBF, 0xBF },
+                { 0xF0, 0x90, 0x80, 0x80 }, { 0xF4, 0x90, 0x80, 0x80 }, { 0xF4, 0x8F, 0xBF, 0xBF },
+                { 0xF5, 0x80, 0x80, 0x80 }, { 0xC0, 0x80 }, { 0xC1, 0xBF }, { 0xE1, 0x80, 0x41 }, { 0xF1, 0x80, 0x80, 0x41 } };
+
+        for ( final int[] sequence : sequences )
+        {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            baos.write( "{\"email\":\"".getBytes( "UTF-8" ) );
+            for ( final int b : sequence )
+            {
+                baos.write( b );
+            }
+            baos.write( "x\"}".getBytes( "UTF-8" ) );
+
+            final byte[] bytes = baos.toByteArray();
+            assertThat( Arrays.toString( sequence ),
+                        fast.fromStream( new ByteArrayInputStream( bytes ), "UTF-8", TestData.class )
+                            .getEmail(),
+                        equalTo( decoder.fromStream( new ByteArrayInputStream( bytes ), "UTF-8", TestData.class )
+                                        .getEmail() ) );
+        }
+    }
+
+    @Test
+    public void parallelListingMatchesSequential()
+        throws Exception
+    {
+        final List<TestData> items = new ArrayList<TestData>();
+        for ( int i = 0; i < 2000; i++ )
+        {
+            items.add( new TestData( i + "@nowhere.com", "name [" + i + "] {\"q\"}" ) );
+        }
+
+        final JsonSerializer ser = new JsonSerializer();
+        final TypeToken<Listing<TestData>> token = new TypeToken<Listing<TestData>>()
+        {
+        };
+        final String json = "{ \"total\": {\"n\": [2000]}, \"items\": " + ser.toString( items ) + " }";
+
+        final AtomicInteger processed = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool( 3 );
+        try
+        {
+            final Listing<TestData> result =
+                ser.parallelListingFromString( json, token, executor, 4, new DeserializerPostProcessor<TestData>()
+                {
+                    @Override
+                    public void process( final TestData value )
+                    {
+                        processed.incrementAndGet();
+                    }
+                } );
+
+            final List<TestData> expected = ser.listingFromString( json, token )
+                                               .getItems();
+
+            assertThat( processed.get(), equalTo( 2000 ) );
+            assertThat( result.getItems()
+                              .size(), equalTo( expected.size() ) );
+            for ( int i = 0; i < expected.size(); i++ )
+            {
+                assertThat( result.getItems()
+                                  .get( i )
+                                  .getName(), equalTo( expected.get( i )
+                                                               .getName() ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parallelListingMatchesSequentialOnAwkwardInput()
+        throws Exception
+    {
+        final StringBuilder first = new StringBuilder( "[" );
+        final StringBuilder second = new StringBuilder( "[" );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            final String sep = i > 0 ? "," : "";
+            // both the reflective ("value") and the @JsonAdapters ("foo") representation, to show which Gson was used.
+            first.append( sep )
+                 .append( "{\"value\":\"v" + i + "\",\"foo\":\"f" + i + "\",\"bar\":{\"baz\":\"b\"}}" );
+            second.append( sep )
+                  .append( "{\"value\":\"second" + i + "\",\"foo\":\"f" + i + "\",\"bar\":{\"baz\":\"b\"}}" );
+        }
+        first.append( "]" );
+        second.append( "]" );
+
+        final JsonSerializer ser = new JsonSerializer();
+        final TypeToken<Listing<AnnotatedTestData>> token = new TypeToken<Listing<AnnotatedTestData>>()
+        {
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 3 );
+        try
+        {
+            for ( final String json : Arrays.asList( "{\"items\":" + first + ",\"total\":1000}",
+                                                     "{\"items\":" + first + ",\"items\":" + second + "}" ) )
+            {
+                final List<AnnotatedTestData> expected = ser.listingFromString( json, token )
+                                                            .getItems();
+                final List<AnnotatedTestData> result = ser.parallelListingFromString( json, token, executor, 4 )
+                                                          .getItems();
+
+                assertThat( result.size(), equalTo( expected.size() ) );
+                for ( int i = 0; i < expected.size(); i++ )
+                {
+                    assertThat( result.get( i )
+                                      .getValue(), equalTo( expected.get( i )
+                                                                    .getValue() ) );
+                }
+            }
+
+            final String trailing = "{\"items\":" + first + "} {}";
+            for ( final int parallelism : new int[] { 1, 4 } )
+            {
+                try
+                {
+                    ser.parallelListingFromString( trailing, token, executor, parallelism );
+                    fail( "Trailing content should be rejected with parallelism " + parallelism );
+                }
+                catch ( final JsonSyntaxException e )
+                {
+                    // expected, the same way for both paths.
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void batchPostProcessorsReceiveChunks()
+        throws Exception
+    {
+        final String json =
+            "{\"items\": [{\"email\":\"a\"},{\"email\":\"b\"},{\"email\":\"c\"},{\"email\":\"d\"},{\"email\":\"e\"}]}";
+
+        final List<Integer> batches = new ArrayList<Integer>();
+        final BatchDeserializerPostProcessor<TestData> proc = new AbstractBatchDeserializerPostProcessor<TestData>( 2 )
+        {
+            @Override
+            public void processBatch( final List<TestData> values )
+            {
+                batches.add( values.size() );
+            }
+        };
+
+        final TypeToken<Listing<TestData>> token = new TypeToken<Listing<TestData>>()
+        {
+        };
+
+        final JsonSerializer ser = new JsonSerializer();
+        assertThat( ser.listingFromString( json, token, proc )
+                       .getItems()
+                       .size(), equalTo( 5 ) );
+        assertThat( batches, equalTo( Arrays.asList( 2, 2, 1 ) ) );
+
+        batches.clear();
+        final ListingIterator<TestData> it =
+            ser.listingIterator( new ByteArrayInputStream( json.getBytes( "UTF-8" ) ), null, token, proc );
+        final List<String> emails = new ArrayList<String>();
+        while ( it.hasNext() )
+        {
+            emails.add( it.next()
+                          .getEmail() );
+        }
+        it.close();
+
+        assertThat( emails, equalTo( Arrays.asList( "a", "b", "c", "d", "e" ) ) );
+        assertThat( batches, equalTo( Arrays.asList( 2, 2, 1 ) ) );
+    }
+
+    @Test
+    public void invokeAnnotatedPostProcessMethodsInOrder()
+        throws Exception
+    {
+        final String json = "{\"email\":\"ME@Nowhere.com\",\"name\":\"me\"}";
+        final JsonSerializer ser = new JsonSerializer();
+
+        PostProcessedTestData data = ser.fromString( json, PostProcessedTestData.class );
+        assertThat( data.getCalls(), equalTo( Arrays.asList( "init", "normalize" ) ) );
+        assertThat( data.getEmail(), equalTo( "me@nowhere.com" ) );
+
+        data = ser.fromStream( new ByteArrayInputStream( json.getBytes( "UTF-8" ) ), null,
+                               new TypeToken<PostProcessedTestData>()
+                               {
+                               } );
+        assertThat( data.getCalls(), equalTo( Arrays.asList( "init", "normalize" ) ) );
+        assertThat( data.getEmail(), equalTo( "me@nowhere.com" ) );
+    }
+
+    @Test
+    public void decodeLazyObjectMembersOnDemand()
+        throws Exception
+    {
+        final String json =
+            "{ \"id\": 42, \"st\\u0061tus\": \"ok\", \"owner\": {\"email\":\"me@nowhere.com\",\"name\":\"me } {\"},"
+                + " \"tags\": [\"a\", \"b\"], \"missing\": null }";
+
+        final LazyJsonObject lazy = new JsonSerializer().lazyFromString( json );
+
+        assertThat( new ArrayList<String>( lazy.getKeys() ),
+                    equalTo( Arrays.asList( "id", "status", "owner", "tags", "missing" ) ) );
+        assertThat( lazy.get( "id", Integer.class ), equalTo( 42 ) );
+        assertThat( lazy.getString( "status" ), equalTo( "ok" ) );
+        assertThat( lazy.get( "owner", TestData.class )
+                        .getName(), equalTo( "me } {" ) );
+        assertThat( lazy.getObject( "owner" )
+                        .getString( "email" ), equalTo( "me@nowhere.com" ) );
+        assertThat( lazy.get( "tags", new TypeToken<List<String>>()
+        {
+        } ), equalTo( Arrays.asList( "a", "b" ) ) );
+        assertThat( lazy.getRaw( "tags" ), equalTo( "[\"a\", \"b\"]" ) );
+        assertThat( lazy.isNull( "missing" ), equalTo( true ) );
+        assertThat( lazy.getObject( "missing" ), nullValue() );
+        assertThat( lazy.get( "nope", String.class ), nullValue() );
+    }
+
+    @Test
+    public void recordOperationMetrics()
+        throws Exception
+    {
+        final InMemorySerializerMetrics metrics = new InMemorySerializerMetrics();
+        final JsonSerializer ser = new JsonSerializer();
+        ser.setMetrics( metrics );
+
+        final String json = ser.toString( new TestData( "\u00e9@nowhere.com", "me" ) );
+        ser.fromStream( new ByteArrayInputStream( json.getBytes( "UTF-8" ) ), "UTF-8", TestData.class );
+        ser.fromStream( new ByteArrayInputStream( json.getBytes( "UTF-8" ) ), "UTF-8", TestData.class );
+
+        assertThat( metrics.getStats( SerializerOperation.TO_STRING, TestData.class )
+                           .getSize(), equalTo( (long) json.length() ) );
+
+        final InMemorySerializerMetrics.OperationStats reads =
+            metrics.getStats( SerializerOperation.FROM_STREAM, TestData.class );
+        assertThat( reads.getCount(), equalTo( 2L ) );
+        assertThat( reads.getSize(), equalTo( 2L * json.getBytes( "UTF-8" ).length ) );
+        assertThat( metrics.getStats( SerializerOperation.GSON_BUILD )
+                           .getCount(), equalTo( 1L ) );
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for ( int i = 1; i <= 1000; i++ )
+        {
+            histogram.record( i * 1000L );
+        }
+
+        assertThat( histogram.getMax(), equalTo( 1000000L ) );
+        assertThat( Math.abs( histogram.getPercentile( 50 ) - 500000L ) < 500000L / 8, equalTo( true ) );
+        assertThat( Math.abs( histogram.getPercentile( 99 ) - 990000L ) < 990000L / 8, equalTo( true ) );
+    }
+
+    @Test
+    public void useCdiMetricsOnlyWhenUnambiguous()
+    {
+        final InMemorySerializerMetrics one = new InMemorySerializerMetrics();
+
+        JsonSerializer ser = new JsonSerializer();
+        ser.metricsInstance = new StubMetricsInstance().proxy();
+        assertThat( ser.getMetrics() == NoOpSerializerMetrics.INSTANCE, equalTo( true ) );
+
+        ser = new JsonSerializer();
+        ser.metricsInstance = new StubMetricsInstance( one ).proxy();
+        assertThat( ser.getMetrics() == one, equalTo( true ) );
+
+        ser = new JsonSerializer();
+        ser.metricsInstance = new StubMetricsInstance( one, new InMemorySerializerMetrics() ).proxy();
+        assertThat( ser.getMetrics() == NoOpSerializerMetrics.INSTANCE, equalTo( true ) );
+    }
+
+    @Test
+    public void enforceParseLimits()
+        throws Exception
+    {
+        final JsonSerializer ser = new JsonSerializer();
+        ser.setLimits( new JsonLimits( 100, 2, 3, 10 ) );
+
+        final TestData data = ser.fromString( "{\"name\":\"me\",\"email\":\"me@x.com\"}", TestData.class );
+        assertThat( data.getName(), equalTo( "me" ) );
+
+        assertLimitExceeded( ser, "{\"name\":\"me\",\"email\":\"me@nowhere.com\"}", "string length" );
+        assertLimitExceeded( ser, "{\"name\":\"me\",\"extra\":{\"a\":[1]}}", "depth" );
+        assertLimitExceeded( ser, "{\"name\":\"me\",\"extra\":[1,2,3,4]}", "array length" );
+
+        final StringBuilder big = new StringBuilder( "{\"name\":\"me\"" );
+        while ( big.length() < 200 )
+        {
+            big.append( " " );
+        }
+        big.append( "}" );
+        assertLimitExceeded( ser, big.toString(), "bytes" );
+
+        try
+        {
+            ser.fromStream( new ByteArrayInputStream( big.toString()
+                                                         .getBytes( "UTF-8" ) ), "UTF-8", TestData.class );
+            fail( "Expected byte limit to be exceeded." );
+        }
+        catch ( final JsonLimitExceededException e )
+        {
+            assertThat( e.getLimit(), equalTo( "bytes" ) );
+        }
+    }
+
+    private void assertLimitExceeded( final JsonSerializer ser, final String json, final String limit )
+    {
+        try
+        {
+            ser.fromString( json, TestData.class );
+            fail( "Expected " + limit + " limit to be exceeded." );
+        }
+        catch ( final JsonLimitExceededException e )
+        {
+            assertThat( e.getLimit(), equalTo( limit ) );
+        }
+    }
+
+    @Test
+    public void binaryFormatRoundTrips()
+        throws Exception
+    {
+        final JsonSerializer ser = new JsonSerializer();
+
+        final List<TestData> items = new ArrayList<TestData>();
+        for ( int i = 0; i < 50; i++ )
+        {
+            items.add( new TestData( "user" + i + "@nowhere.com", i % 2 == 0 ? "\u00e9\ud83d\ude00 \"q\"\n" : null ) );
+        }
+
+        final TypeToken<Listing<TestData>> token = new TypeToken<Listing<TestData>>()
+        {
+        };
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ser.toBinaryStream( new Listing<TestData>( items ), token.getType(), baos );
+
+        final byte[] json = ser.toString( new Listing<TestData>( items ), token.getType() )
+                               .getBytes( "UTF-8" );
+        assertThat( baos.size() < json.length, equalTo( true ) );
+
+        final Listing<TestData> listing =
+            ser.listingFromBinaryStream( new ByteArrayInputStream( baos.toByteArray() ), token );
+        assertThat( listing.getItems()
+                           .size(), equalTo( 50 ) );
+        assertThat( ser.toString( listing, token.getType() ),
+                    equalTo( ser.toString( ser.listingFromString( new String( json, "UTF-8" ), token ), token.getType() ) ) );
+
+        final Map<Integer, List<Double>> map = new HashMap<Integer, List<Double>>();
+        map.put( -3, Arrays.asList( 1.5, -0.25, 1e300 ) );
+        map.put( Integer.MAX_VALUE, Collections.<Double> emptyList() );
+
+        final TypeToken<Map<Integer, List<Double>>> mapToken = new TypeToken<Map<Integer, List<Double>>>()
+        {
+        };
+
+        baos.reset();
+        ser.toBinaryStream( map, mapToken.getType(), baos );
+        assertThat( ser.fromBinaryStream( new ByteArrayInputStream( baos.toByteArray() ), mapToken ), equalTo( map ) );
+
+        assertThat( JsonWireFormat.negotiate( "application/json, application/x-commonjava-json-binary" ),
+                    equalTo( JsonWireFormat.JSON ) );
+        assertThat( JsonWireFormat.negotiate( "application/x-commonjava-json-binary, */*;q=0.5" ),
+                    equalTo( JsonWireFormat.BINARY ) );
+        assertThat( JsonWireFormat.negotiate( "text/html" ), equalTo( JsonWireFormat.JSON ) );
+    }
+
+    @Test
+    public void truncatedOrCorruptBinaryFails()
+        throws Exception
+    {
+        final JsonSerializer ser = new JsonSerializer();
+
+        final Map<String, String> map = new HashMap<String, String>();
+        map.put( "name", "value" );
+        map.put( "other", "\u00e9\ud83d\ude00" );
+
+        final TypeToken<Map<String, String>> token = new TypeToken<Map<String, String>>()
+        {
+        };
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ser.toBinaryStream( map, token.getType(), baos );
+        final byte[] doc = baos.toByteArray();
+
+        // an empty body is an empty document, like empty JSON text.
+        assertThat( ser.fromBinaryStream( new ByteArrayInputStream( new byte[0] ), token ), nullValue() );
+
+        for ( int len = 1; len < doc.length; len++ )
+        {
+            try
+            {
+                ser.fromBinaryStream( new ByteArrayInputStream( Arrays.copyOf( doc, len ) ), token );
+                fail( "Document cut to " + len + " of " + doc.length + " bytes was accepted." );
+            }
+            catch ( final JsonParseException e )
+            {
+            }
+        }
+
+        // a string claiming Integer.MAX_VALUE chars, with none to follow.
+        try
+        {
+            ser.fromBinaryStream( new ByteArrayInputStream( new byte[] { 'J', 'B', 1, 0x06, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, 0x07 } ), String.class );
+            fail( "String with a corrupt length was accepted." );
+        }
+        catch ( final JsonParseException e )
+        {
+        }
+
+        try
+        {
+            ser.fromBinaryStream( new ByteArrayInputStream( "{\"name\":\"value\"}".getBytes( "UTF-8" ) ), token );
+            fail( "JSON text was accepted as binary." );
+        }
+        catch ( final JsonParseException e )
+        {
+        }
+    }
+
+    @Test
+    public void compressedStreamsRoundTrip()
+        throws Exception
+    {
+        final JsonSerializer ser = new JsonSerializer();
+        final List<TestData> items = new ArrayList<TestData>();
+        for ( int i = 0; i < 200; i++ )
+        {
+            items.add( new TestData( "user" + i + "@nowhere.com", "me" ) );
+        }
+
+        final TypeToken<Listing<TestData>> token = new TypeToken<Listing<TestData>>()
+        {
+        };
+        final String json = ser.toString( new Listing<TestData>( items ), token.getType() );
+
+        for ( final ContentEncoding encoding : ContentEncoding.values() )
+        {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final OutputStream out = encoding.encode( baos );
+            ser.toStream( new Listing<TestData>( items ), token.getType(), out, null );
+            out.close();
+
+            // the target stays open after the coding stream is finished.
+            baos.write( ' ' );
+
+            final InputStream in = encoding.decode( new ByteArrayInputStream( baos.toByteArray() ) );
+            final Listing<TestData> listing = ser.listingFromStream( in, "UTF-8", token );
+            in.close();
+
+            assertThat( ser.toString( listing, token.getType() ),
+                        equalTo( ser.toString( ser.listingFromString( json, token ), token.getType() ) ) );
+            if ( encoding != ContentEncoding.IDENTITY )
+            {
+                assertThat( baos.size() < json.length() / 4, equalTo( true ) );
+            }
+        }
+
+        assertThat( ContentEncoding.negotiate( "deflate, gzip;q=0.8" ), equalTo( ContentEncoding.DEFLATE ) );
+        assertThat( ContentEncoding.negotiate( "*" ), equalTo( ContentEncoding.GZIP ) );
+        assertThat( ContentEncoding.negotiate( "gzip;q=0, br" ), equalTo( ContentEncoding.IDENTITY ) );
+        assertThat( ContentEncoding.forHeader( "br" ), nullValue() );
+    }
+
+    private static final class StubMetricsInstance
+        implements InvocationHandler
+    {
+        private final SerializerMetrics[] beans;
+
+        StubMetricsInstance( final SerializerMetrics... beans )
+        {
+            this.beans = beans;
+        }
+
+        @SuppressWarnings( "unchecked" )
+        Instance<SerializerMetrics> proxy()
+        {
+            return (Instance<SerializerMetrics>) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                                         new Class<?>[] { Instance.class }, this );
+        }
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args )
+        {
+            final String name = method.getName();
+            if ( "isUnsatisfied".equals( name ) )
+            {
+                return beans.length == 0;
+            }
+            else if ( "isAmbiguous".equals( name ) )
+            {
+                return beans.length > 1;
+            }
+            else if ( "get".equals( name ) )
+            {
+                return beans[0];
+            }
+
+            throw new UnsupportedOperationException( name );
+        }
+    }
+
 }
@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.commonjava.web.json.ser.fixture.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ServletSerializerUtilsTest
+{
+
+    private ExecutorService executor;
+
+    private StubAsyncContext async;
+
+    private RecordingHandler handler;
+
+    @Before
+    public void setup()
+    {
+        executor = Executors.newSingleThreadExecutor();
+        async = new StubAsyncContext();
+        handler = new RecordingHandler();
+    }
+
+    @After
+    public void teardown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void asyncReadDeliversValueThenCompletes()
+        throws Exception
+    {
+        final HttpServletRequest req = request( new ByteArrayInputStream( "{\"name\":\"me\"}".getBytes( "UTF-8" ) ) );
+
+        ServletSerializerUtils.fromRequestBodyAsync( req, new JsonSerializer(), TestData.class, executor, handler );
+
+        assertThat( async.completed.await( 5, TimeUnit.SECONDS ), equalTo( true ) );
+        assertThat( handler.value.get()
+                                 .getName(), equalTo( "me" ) );
+        assertThat( handler.calls.get(), equalTo( 1 ) );
+        assertThat( async.completions.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void asyncReadReportsParseFailureThenCompletes()
+        throws Exception
+    {
+        final HttpServletRequest req = request( new ByteArrayInputStream( "{\"name\":".getBytes( "UTF-8" ) ) );
+
+        ServletSerializerUtils.fromRequestBodyAsync( req, new JsonSerializer(), TestData.class, executor, handler );
+
+        assertThat( async.completed.await( 5, TimeUnit.SECONDS ), equalTo( true ) );
+        assertThat( handler.error.get(), notNullValue() );
+        assertThat( handler.calls.get(), equalTo( 1 ) );
+        assertThat( async.completions.get(), equalTo( 1 ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void timeoutDuringReadFailsWithoutWaitingForRead()
+        throws Exception
+    {
+        final BlockingInputStream in = new BlockingInputStream();
+        final HttpServletRequest req = request( in );
+
+        ServletSerializerUtils.fromRequestBodyAsync( req, new JsonSerializer(), TestData.class, executor, handler );
+        assertThat( in.reading.await( 5, TimeUnit.SECONDS ), equalTo( true ) );
+
+        // the read ignores the interrupt, so the listener must not wait for it.
+        async.timeout();
+
+        assertThat( handler.error.get(), instanceOf( CancellationException.class ) );
+        assertThat( handler.calls.get(), equalTo( 1 ) );
+        assertThat( async.completions.get(), equalTo( 1 ) );
+        assertThat( async.completingThread.get() == Thread.currentThread(), equalTo( true ) );
+
+        // when the read finally returns, its thread leaves the abandoned request alone.
+        in.release.countDown();
+        executor.shutdown();
+        assertThat( executor.awaitTermination( 5, TimeUnit.SECONDS ), equalTo( true ) );
+        assertThat( handler.calls.get(), equalTo( 1 ) );
+        assertThat( async.completions.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void handlerFailureIsNotReportedBackToHandler()
+        throws Exception
+    {
+        final HttpServletRequest req = request( new ByteArrayInputStream( "{\"name\":\"me\"}".getBytes( "UTF-8" ) ) );
+        handler.failHandle = true;
+
+        ServletSerializerUtils.fromRequestBodyAsync( req, new JsonSerializer(), TestData.class, executor, handler );
+
+        assertThat( async.completed.await( 5, TimeUnit.SECONDS ), equalTo( true ) );
+        assertThat( handler.value.get(), notNullValue() );
+        assertThat( handler.error.get(), nullValue() );
+        assertThat( handler.calls.get(), equalTo( 1 ) );
+        assertThat( async.completions.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void timeoutBeforeReadStartsFailsWithoutReading()
+        throws Exception
+    {
+        final List<Runnable> queued = new ArrayList<Runnable>();
+        final BlockingInputStream in = new BlockingInputStream();
+        final HttpServletRequest req = request( in );
+
+        ServletSerializerUtils.fromRequestBodyAsync( req, new JsonSerializer(), TestData.class, new Executor()
+        {
+            @Override
+            public void execute( final Runnable command )
+            {
+                queued.add( command );
+            }
+        }, handler );
+
+        async.timeout();
+        assertThat( handler.error.get(), instanceOf( CancellationException.class ) );
+        assertThat( async.completions.get(), equalTo( 1 ) );
+
+        // the read, if it runs after all, does nothing.
+        queued.get( 0 )
+              .run();
+        assertThat( in.reading.getCount(), equalTo( 1L ) );
+        assertThat( handler.calls.get(), equalTo( 1 ) );
+        assertThat( async.completions.get(), equalTo( 1 ) );
+    }
+
+    private HttpServletRequest request( final InputStream body )
+    {
+        final ServletInputStream in = new ServletInputStream()
+        {
+            @Override
+            public int read()
+                throws IOException
+            {
+                return body.read();
+            }
+
+            @Override
+            public int read( final byte[] b, final int off, final int len )
+                throws IOException
+            {
+                return body.read( b, off, len );
+            }
+        };
+
+        final InvocationHandler stub = new InvocationHandler()
+        {
+            @Override
+            public Object invoke( final Object proxy, final Method method, final Object[] args )
+            {
+                final String name = method.getName();
+                if ( "getInputStream".equals( name ) )
+                {
+                    return in;
+                }
+                else if ( "getContentLength".equals( name ) )
+                {
+                    return -1;
+                }
+                else if ( "getContentType".equals( name ) )
+                {
+                    return ServletSerializerUtils.JSON_CONTENT_TYPE;
+                }
+                else if ( "isAsyncStarted".equals( name ) )
+                {
+                    return false;
+                }
+                else if ( "startAsync".equals( name ) )
+                {
+                    return async.proxy;
+                }
+
+                return null;
+            }
+        };
+
+        return (HttpServletRequest) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                            new Class<?>[] { HttpServletRequest.class }, stub );
+    }
+
+    /**
+     * Blocks in read() until released, ignoring interrupts, as a stalled upload on a real servlet stream would.
+     */
+    private static final class BlockingInputStream
+        extends InputStream
+    {
+        private final CountDownLatch reading = new CountDownLatch( 1 );
+
+        private final CountDownLatch release = new CountDownLatch( 1 );
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            reading.countDown();
+
+            boolean interrupted = false;
+            while ( true )
+            {
+                try
+                {
+                    release.await();
+                    break;
+                }
+                catch ( final InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+
+            if ( interrupted )
+            {
+                Thread.currentThread()
+                      .interrupt();
+            }
+
+            return -1;
+        }
+    }
+
+    private static final class StubAsyncContext
+        implements InvocationHandler
+    {
+        private final List<AsyncListener> listeners = new ArrayList<AsyncListener>();
+
+        private final AtomicInteger completions = new AtomicInteger();
+
+        private final CountDownLatch completed = new CountDownLatch( 1 );
+
+        private final AtomicReference<Thread> completingThread = new AtomicReference<Thread>();
+
+        private final AsyncContext proxy =
+            (AsyncContext) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] { AsyncContext.class }, this );
+
+        @Override
+        public Object invoke( final Object p, final Method method, final Object[] args )
+        {
+            final String name = method.getName();
+            if ( "addListener".equals( name ) )
+            {
+                listeners.add( (AsyncListener) args[0] );
+            }
+            else if ( "complete".equals( name ) )
+            {
+                completingThread.set( Thread.currentThread() );
+                completions.incrementAndGet();
+                completed.countDown();
+            }
+            else if ( "start".equals( name ) )
+            {
+                new Thread( (Runnable) args[0] ).start();
+            }
+
+            return null;
+        }
+
+        void timeout()
+            throws IOException
+        {
+            for ( final AsyncListener listener : listeners )
+            {
+                listener.onTimeout( new AsyncEvent( proxy ) );
+            }
+        }
+    }
+
+    private static final class RecordingHandler
+        implements AsyncBodyHandler<TestData>
+    {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final AtomicReference<TestData> value = new AtomicReference<TestData>();
+
+        private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        private volatile boolean failHandle;
+
+        @Override
+        public void handle( final TestData value, final AsyncContext context )
+            throws Exception
+        {
+            calls.incrementAndGet();
+            this.value.set( value );
+            if ( failHandle )
+            {
+                throw new IllegalStateException( "handler failure" );
+            }
+        }
+
+        @Override
+        public void failed( final Throwable error, final AsyncContext context )
+        {
+            calls.incrementAndGet();
+            this.error.set( error );
+        }
+    }
+
+}
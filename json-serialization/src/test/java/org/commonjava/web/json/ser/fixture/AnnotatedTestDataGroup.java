@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser.fixture;
+
+import java.util.List;
+
+public class AnnotatedTestDataGroup
+{
+
+    private List<AnnotatedTestData> members;
+
+    public AnnotatedTestDataGroup()
+    {
+    }
+
+    public AnnotatedTestDataGroup( final List<AnnotatedTestData> members )
+    {
+        this.members = members;
+    }
+
+    public List<AnnotatedTestData> getMembers()
+    {
+        return members;
+    }
+
+    public static final class Named
+        extends AnnotatedTestDataGroup
+    {
+        private String name;
+
+        public Named()
+        {
+        }
+
+        public Named( final String name, final List<AnnotatedTestData> members )
+        {
+            super( members );
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+}
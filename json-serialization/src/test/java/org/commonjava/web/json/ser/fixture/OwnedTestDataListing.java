@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser.fixture;
+
+import java.util.Collection;
+
+import org.commonjava.web.json.model.Listing;
+
+public class OwnedTestDataListing
+    extends Listing<TestData>
+{
+    private String owner;
+
+    public OwnedTestDataListing()
+    {
+    }
+
+    public OwnedTestDataListing( final String owner, final Collection<TestData> items )
+    {
+        super( items );
+        this.owner = owner;
+    }
+
+    public String getOwner()
+    {
+        return owner;
+    }
+
+    public void setOwner( final String owner )
+    {
+        this.owner = owner;
+    }
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ * 
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.ser.fixture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.commonjava.web.json.ser.JsonPostProcess;
+
+public class PostProcessedTestData
+    extends TestData
+{
+    private transient List<String> calls;
+
+    public List<String> getCalls()
+    {
+        return calls;
+    }
+
+    @JsonPostProcess( order = 1 )
+    public void normalize()
+    {
+        calls.add( "normalize" );
+        setEmail( getEmail().toLowerCase() );
+    }
+
+    @JsonPostProcess
+    private void init()
+    {
+        calls = new ArrayList<String>();
+        calls.add( "init" );
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionManager;
+
+/**
+ * Daemon thread that periodically closes expired pooled connections, and those idle for longer than the timeout, so
+ * a connection the server has already dropped isn't handed out again.
+ */
+final class IdleConnectionEvictor
+    extends Thread
+{
+
+    private static final long MAX_INTERVAL_MILLIS = 5000;
+
+    private final ClientConnectionManager connectionManager;
+
+    private final long idleTimeoutMillis;
+
+    private volatile boolean shutdown;
+
+    IdleConnectionEvictor( final ClientConnectionManager connectionManager, final long idleTimeoutMillis )
+    {
+        super( "WebFixture-idle-connection-evictor" );
+        setDaemon( true );
+        this.connectionManager = connectionManager;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public void run()
+    {
+        final long interval = Math.min( idleTimeoutMillis, MAX_INTERVAL_MILLIS );
+        try
+        {
+            while ( !shutdown )
+            {
+                synchronized ( this )
+                {
+                    wait( interval );
+                }
+
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections( idleTimeoutMillis, TimeUnit.MILLISECONDS );
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            // shutting down.
+        }
+    }
+
+    void shutdown()
+    {
+        shutdown = true;
+        synchronized ( this )
+        {
+            notifyAll();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.commonjava.web.json.ser.ContentEncoding;
+import org.commonjava.web.json.ser.JsonSerializer;
+import org.commonjava.web.json.ser.JsonWireFormat;
+
+/**
+ * Request entity that serializes its value straight into the connection's output stream when the request is sent,
+ * instead of building the JSON body as a String up front. The body is sent chunked, since its length isn't known
+ * in advance. The body is JSON unless the entity is created for {@link JsonWireFormat#BINARY}, and can be compressed
+ * on the fly with a {@link ContentEncoding}.
+ */
+public class JsonEntity
+    extends AbstractHttpEntity
+{
+
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    private final JsonSerializer serializer;
+
+    private final Object value;
+
+    private final Type type;
+
+    private final JsonWireFormat format;
+
+    private final ContentEncoding contentEncoding;
+
+    public JsonEntity( final JsonSerializer serializer, final Object value )
+    {
+        this( serializer, value, value.getClass() );
+    }
+
+    public JsonEntity( final JsonSerializer serializer, final Object value, final Type type )
+    {
+        this( serializer, value, type, JsonWireFormat.JSON );
+    }
+
+    public JsonEntity( final JsonSerializer serializer, final Object value, final Type type, final JsonWireFormat format )
+    {
+        this( serializer, value, type, format, ContentEncoding.IDENTITY );
+    }
+
+    public JsonEntity( final JsonSerializer serializer, final Object value, final Type type, final JsonWireFormat format,
+                       final ContentEncoding contentEncoding )
+    {
+        this.serializer = serializer;
+        this.value = value;
+        this.type = type;
+        this.format = format;
+        this.contentEncoding = contentEncoding;
+        setContentType( format == JsonWireFormat.BINARY ? format.getContentType() : "application/json; charset=UTF-8" );
+        if ( contentEncoding != ContentEncoding.IDENTITY )
+        {
+            setContentEncoding( contentEncoding.getToken() );
+        }
+        setChunked( true );
+    }
+
+    @Override
+    public boolean isRepeatable()
+    {
+        return true;
+    }
+
+    @Override
+    public long getContentLength()
+    {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent()
+        throws IOException
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeTo( baos );
+
+        return new ByteArrayInputStream( baos.toByteArray() );
+    }
+
+    @Override
+    public void writeTo( final OutputStream outstream )
+        throws IOException
+    {
+        // closing the coding stream finishes the compressed body, but leaves the connection's stream open.
+        final OutputStream out = contentEncoding.encode( outstream );
+        try
+        {
+            if ( format == JsonWireFormat.BINARY )
+            {
+                serializer.toBinaryStream( value, type, out );
+            }
+            else
+            {
+                serializer.toStream( value, type, out, UTF_8 );
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    @Override
+    public boolean isStreaming()
+    {
+        return false;
+    }
+
+}
@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.commonjava.web.json.model.Listing;
+import org.commonjava.web.json.ser.ContentEncoding;
+import org.commonjava.web.json.ser.JsonSerializer;
+import org.junit.rules.ExternalResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process HTTP server answering with canned JSON, so {@link WebFixture} tests and benchmarks can exercise the full
+ * client/serializer/HTTP path without an external container. Use it as a JUnit rule (ordered before the fixture), or
+ * call {@link #start()} and {@link #stop()} directly, then point the fixture at it with {@link #configure(WebFixture)}.
+ * <p>
+ * Responses are registered per path, optionally per method; a path with no stub gets a 404. Request bodies are read
+ * and discarded.
+ */
+public class JsonStubServer
+    extends ExternalResource
+{
+
+    public static final String HOST = "127.0.0.1";
+
+    public static final String JSON_CONTENT_TYPE = "application/json";
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final JsonSerializer serializer;
+
+    private final Map<String, StubResponse> stubs = new ConcurrentHashMap<String, StubResponse>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private int port;
+
+    private volatile long latencyMillis;
+
+    private boolean noDelay;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public JsonStubServer()
+    {
+        this( new JsonSerializer() );
+    }
+
+    public JsonStubServer( final JsonSerializer serializer )
+    {
+        this.serializer = serializer;
+    }
+
+    @Override
+    protected void before()
+        throws IOException
+    {
+        if ( noDelay && System.getProperty( NODELAY_PROPERTY ) == null )
+        {
+            System.setProperty( NODELAY_PROPERTY, "true" );
+        }
+
+        executor = Executors.newCachedThreadPool( new StubThreadFactory() );
+
+        server = HttpServer.create( new InetSocketAddress( HOST, port ), 0 );
+        server.setExecutor( executor );
+        server.createContext( "/", new StubHandler() );
+        server.start();
+
+        port = server.getAddress()
+                     .getPort();
+        logger.info( "JSON stub server listening on: {}:{}", HOST, port );
+    }
+
+    @Override
+    protected void after()
+    {
+        if ( server != null )
+        {
+            server.stop( 0 );
+            server = null;
+        }
+
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Start outside of a JUnit rule, e.g. from a benchmark.
+     */
+    public void start()
+        throws IOException
+    {
+        before();
+    }
+
+    public void stop()
+    {
+        after();
+    }
+
+    /**
+     * Point the fixture's host and port at this server.
+     */
+    public void configure( final WebFixture fixture )
+    {
+        fixture.setHost( HOST );
+        fixture.setPort( port );
+    }
+
+    public String url( final String path )
+    {
+        return "http://" + HOST + ":" + port + ( path.startsWith( "/" ) ? path : "/" + path );
+    }
+
+    /**
+     * Answer any request for the path with the value as JSON (or no body if it's null), and a 200.
+     */
+    public StubResponse stub( final String path, final Object value )
+    {
+        return stub( null, path, 200, value, value == null ? Object.class : value.getClass() );
+    }
+
+    /**
+     * Answer requests for the path with the value as JSON (or no body if it's null).
+     *
+     * @param method HTTP method to answer, or null for any
+     */
+    public StubResponse stub( final String method, final String path, final int status, final Object value,
+                              final Type type )
+    {
+        byte[] body = null;
+        if ( value != null )
+        {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            serializer.toStream( value, type, out, null );
+            body = out.toByteArray();
+        }
+
+        return stubRaw( method, path, status, JSON_CONTENT_TYPE, body );
+    }
+
+    /**
+     * Answer any request for the path with a {@link Listing} of the items, and a 200.
+     */
+    public <T> StubResponse stubListing( final String path, final List<T> items, final TypeToken<Listing<T>> token )
+    {
+        return stub( null, path, 200, new Listing<T>( items ), token.getType() );
+    }
+
+    /**
+     * Answer requests for the path with the given bytes, as-is.
+     *
+     * @param method HTTP method to answer, or null for any
+     */
+    public StubResponse stubRaw( final String method, final String path, final int status, final String contentType,
+                                 final byte[] body )
+    {
+        final StubResponse response = new StubResponse( status, contentType, body );
+        stubs.put( key( method, path ), response );
+
+        return response;
+    }
+
+    public void clear()
+    {
+        stubs.clear();
+    }
+
+    /**
+     * @return requests received since the server was created, including those answered with a 404
+     */
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    public int getPort()
+    {
+        return port;
+    }
+
+    /**
+     * Port to listen on; 0 (the default) picks a free one when the server starts.
+     */
+    public void setPort( final int port )
+    {
+        this.port = port;
+    }
+
+    public long getLatencyMillis()
+    {
+        return latencyMillis;
+    }
+
+    /**
+     * Delay before every response, unless the stub sets its own.
+     */
+    public void setLatencyMillis( final long latencyMillis )
+    {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public boolean isNoDelay()
+    {
+        return noDelay;
+    }
+
+    /**
+     * Have the server set TCP_NODELAY, so small responses don't stall for the client's delayed ACK (the JDK server
+     * writes headers and body separately). Off by default, because this sets the <code>sun.net.httpserver.nodelay</code>
+     * system property: it is read once per JVM, when the first JDK HTTP server starts, so it affects every such server
+     * in the process and does nothing if one has already started. An existing value is left alone.
+     */
+    public void setNoDelay( final boolean noDelay )
+    {
+        this.noDelay = noDelay;
+    }
+
+    public JsonSerializer getSerializer()
+    {
+        return serializer;
+    }
+
+    private static String key( final String method, final String path )
+    {
+        final String p = path.startsWith( "/" ) ? path : "/" + path;
+        return method == null ? p : method.toUpperCase() + " " + p;
+    }
+
+    private void respond( final HttpExchange exchange, final StubResponse stub )
+        throws IOException
+    {
+        final ContentEncoding encoding =
+            stub.isCompressed() ? ContentEncoding.negotiate( exchange.getRequestHeaders()
+                                                                     .getFirst( "Accept-Encoding" ) )
+                            : ContentEncoding.IDENTITY;
+
+        final byte[] body = stub.getBody( encoding );
+
+        final Headers headers = exchange.getResponseHeaders();
+        if ( stub.getContentType() != null )
+        {
+            headers.set( "Content-Type", stub.getContentType() );
+        }
+
+        if ( stub.isCompressed() )
+        {
+            headers.set( "Vary", "Accept-Encoding" );
+        }
+
+        if ( encoding != ContentEncoding.IDENTITY )
+        {
+            headers.set( "Content-Encoding", encoding.getToken() );
+        }
+
+        if ( body.length == 0 || "HEAD".equals( exchange.getRequestMethod() ) )
+        {
+            exchange.sendResponseHeaders( stub.getStatus(), -1 );
+            return;
+        }
+
+        final OutputStream out = exchange.getResponseBody();
+        if ( stub.isChunked() )
+        {
+            exchange.sendResponseHeaders( stub.getStatus(), 0 );
+            for ( int off = 0; off < body.length; off += CHUNK_SIZE )
+            {
+                out.write( body, off, Math.min( CHUNK_SIZE, body.length - off ) );
+                out.flush();
+            }
+        }
+        else
+        {
+            exchange.sendResponseHeaders( stub.getStatus(), body.length );
+            out.write( body );
+        }
+    }
+
+    private final class StubHandler
+        implements HttpHandler
+    {
+        @Override
+        public void handle( final HttpExchange exchange )
+            throws IOException
+        {
+            requestCount.incrementAndGet();
+            try
+            {
+                drain( exchange.getRequestBody() );
+
+                final String path = exchange.getRequestURI()
+                                            .getPath();
+
+                StubResponse stub = stubs.get( key( exchange.getRequestMethod(), path ) );
+                if ( stub == null )
+                {
+                    stub = stubs.get( key( null, path ) );
+                }
+
+                if ( stub == null )
+                {
+                    logger.debug( "No stub for: {} {}", exchange.getRequestMethod(), path );
+                    exchange.sendResponseHeaders( 404, -1 );
+                    return;
+                }
+
+                final long latency = stub.getLatencyMillis() < 0 ? latencyMillis : stub.getLatencyMillis();
+                if ( latency > 0 )
+                {
+                    Thread.sleep( latency );
+                }
+
+                respond( exchange, stub );
+            }
+            catch ( final InterruptedException e )
+            {
+                // server stopping.
+                Thread.currentThread()
+                      .interrupt();
+            }
+            finally
+            {
+                exchange.close();
+            }
+        }
+
+        private void drain( final InputStream in )
+            throws IOException
+        {
+            final byte[] buf = new byte[1024];
+            while ( in.read( buf ) >= 0 )
+            {
+                // discard.
+            }
+        }
+    }
+
+    private static final class StubThreadFactory
+        implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread( final Runnable r )
+        {
+            final Thread t = new Thread( r, "JsonStubServer-" + count.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        }
+    }
+
+}
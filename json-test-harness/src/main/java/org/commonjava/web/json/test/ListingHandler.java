@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import org.commonjava.web.json.ser.ListingIterator;
+
+/**
+ * Consumes the items of a listing response as they are read, for
+ * {@link WebFixture#streamListing(String, com.google.gson.reflect.TypeToken, ListingHandler)}. It can stop as soon as
+ * it has what it needs; the rest of the response is not read.
+ */
+public interface ListingHandler<T, R>
+{
+
+    R handle( ListingIterator<T> items )
+        throws Exception;
+
+}
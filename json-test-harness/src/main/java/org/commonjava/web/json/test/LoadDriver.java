@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.commonjava.web.json.model.Listing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Runs {@link LoadOperation}s against a started {@link WebFixture} from several threads for a fixed time, and reports
+ * per-operation latency percentiles and throughput (see {@link LoadReport}). Operations are picked at random in
+ * proportion to their weights.
+ * <p>
+ * By default each thread issues its next request as soon as the previous one completes. With a target rate, requests
+ * are instead scheduled at fixed intervals shared by all threads, and latency is measured from the scheduled start,
+ * so time spent waiting behind a slow response still shows up in the percentiles.
+ */
+public class LoadDriver
+{
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    public static final long DEFAULT_DURATION_MILLIS = 10000;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final WebFixture fixture;
+
+    private final List<String> names = new ArrayList<String>();
+
+    private final List<LoadOperation> operations = new ArrayList<LoadOperation>();
+
+    private final List<Integer> weights = new ArrayList<Integer>();
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    private double targetRate;
+
+    private long durationMillis = DEFAULT_DURATION_MILLIS;
+
+    private long warmupMillis;
+
+    public LoadDriver( final WebFixture fixture )
+    {
+        this.fixture = fixture;
+    }
+
+    public void add( final String name, final LoadOperation operation )
+    {
+        add( name, 1, operation );
+    }
+
+    public void add( final String name, final int weight, final LoadOperation operation )
+    {
+        if ( weight < 1 )
+        {
+            throw new IllegalArgumentException( "Weight must be positive." );
+        }
+
+        if ( names.contains( name ) )
+        {
+            throw new IllegalArgumentException( "Duplicate operation: " + name );
+        }
+
+        names.add( name );
+        weights.add( weight );
+        operations.add( operation );
+    }
+
+    /**
+     * Run the operations for the warm-up time (not reported), then for the configured duration.
+     */
+    public LoadReport run()
+        throws InterruptedException
+    {
+        if ( operations.isEmpty() )
+        {
+            throw new IllegalStateException( "No operations to run." );
+        }
+
+        if ( concurrency > fixture.getMaxConnectionsPerRoute() )
+        {
+            logger.warn( "Load concurrency: {} exceeds the fixture's per-route connection limit: {}", concurrency,
+                         fixture.getMaxConnectionsPerRoute() );
+        }
+
+        final int[] cumulative = new int[weights.size()];
+        int sum = 0;
+        for ( int i = 0; i < cumulative.length; i++ )
+        {
+            sum += weights.get( i );
+            cumulative[i] = sum;
+        }
+
+        final LoadReport report = new LoadReport( names );
+        final long start = System.nanoTime();
+        final long measureFrom = start + TimeUnit.MILLISECONDS.toNanos( warmupMillis );
+        final long end = measureFrom + TimeUnit.MILLISECONDS.toNanos( durationMillis );
+        final long interval = targetRate > 0 ? (long) ( TimeUnit.SECONDS.toNanos( 1 ) / targetRate ) : 0;
+        final AtomicLong ticket = new AtomicLong();
+
+        final Thread[] threads = new Thread[concurrency];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            threads[i] =
+                new Thread( new Worker( report, cumulative, start, measureFrom, end, interval, ticket ), "LoadDriver-"
+                    + i );
+            threads[i].setDaemon( true );
+            threads[i].start();
+        }
+
+        try
+        {
+            for ( final Thread thread : threads )
+            {
+                thread.join();
+            }
+        }
+        finally
+        {
+            for ( final Thread thread : threads )
+            {
+                thread.interrupt();
+            }
+        }
+
+        // operations scheduled before the end may finish after it, so measure to when they actually finished.
+        report.setElapsedNanos( System.nanoTime() - measureFrom );
+        logger.info( "Load run finished:\n\n{}", report );
+
+        return report;
+    }
+
+    public static LoadOperation get( final String url, final int expectedStatus )
+    {
+        return new LoadOperation()
+        {
+            @Override
+            public void run( final WebFixture fixture )
+                throws Exception
+            {
+                fixture.get( url, expectedStatus );
+            }
+        };
+    }
+
+    public static LoadOperation get( final String url, final Class<?> type )
+    {
+        return new LoadOperation()
+        {
+            @Override
+            public void run( final WebFixture fixture )
+                throws Exception
+            {
+                fixture.get( url, type );
+            }
+        };
+    }
+
+    public static <T> LoadOperation getListing( final String url, final TypeToken<Listing<T>> token )
+    {
+        return new LoadOperation()
+        {
+            @Override
+            public void run( final WebFixture fixture )
+                throws Exception
+            {
+                fixture.getListing( url, token );
+            }
+        };
+    }
+
+    public static LoadOperation put( final String url, final Object value, final int expectedStatus )
+    {
+        return new LoadOperation()
+        {
+            @Override
+            public void run( final WebFixture fixture )
+                throws Exception
+            {
+                fixture.put( url, value, expectedStatus );
+            }
+        };
+    }
+
+    public static LoadOperation post( final String url, final Object value, final int expectedStatus )
+    {
+        return new LoadOperation()
+        {
+            @Override
+            public void run( final WebFixture fixture )
+                throws Exception
+            {
+                fixture.post( url, value, expectedStatus );
+            }
+        };
+    }
+
+    public static LoadOperation delete( final String url )
+    {
+        return new LoadOperation()
+        {
+            @Override
+            public void run( final WebFixture fixture )
+                throws Exception
+            {
+                fixture.delete( url );
+            }
+        };
+    }
+
+    public int getConcurrency()
+    {
+        return concurrency;
+    }
+
+    /**
+     * Number of threads issuing requests.
+     */
+    public void setConcurrency( final int concurrency )
+    {
+        this.concurrency = concurrency;
+    }
+
+    public double getTargetRate()
+    {
+        return targetRate;
+    }
+
+    /**
+     * Requests per second across all threads; 0 (the default) means as fast as the threads can go.
+     */
+    public void setTargetRate( final double targetRate )
+    {
+        this.targetRate = targetRate;
+    }
+
+    public long getDurationMillis()
+    {
+        return durationMillis;
+    }
+
+    public void setDurationMillis( final long durationMillis )
+    {
+        this.durationMillis = durationMillis;
+    }
+
+    public long getWarmupMillis()
+    {
+        return warmupMillis;
+    }
+
+    public void setWarmupMillis( final long warmupMillis )
+    {
+        this.warmupMillis = warmupMillis;
+    }
+
+    private final class Worker
+        implements Runnable
+    {
+        private final LoadReport report;
+
+        private final int[] cumulative;
+
+        private final long start;
+
+        private final long measureFrom;
+
+        private final long end;
+
+        private final long interval;
+
+        private final AtomicLong ticket;
+
+        private final Random random = new Random();
+
+        Worker( final LoadReport report, final int[] cumulative, final long start, final long measureFrom,
+                final long end, final long interval, final AtomicLong ticket )
+        {
+            this.report = report;
+            this.cumulative = cumulative;
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.interval = interval;
+            this.ticket = ticket;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while ( true )
+                {
+                    final long scheduled;
+                    if ( interval > 0 )
+                    {
+                        scheduled = start + ticket.getAndIncrement() * interval;
+                        if ( scheduled >= end )
+                        {
+                            return;
+                        }
+
+                        TimeUnit.NANOSECONDS.sleep( scheduled - System.nanoTime() );
+                    }
+                    else
+                    {
+                        scheduled = System.nanoTime();
+                        if ( scheduled >= end )
+                        {
+                            return;
+                        }
+                    }
+
+                    final int op = pick();
+                    boolean failed = false;
+                    try
+                    {
+                        operations.get( op )
+                                  .run( fixture );
+                    }
+                    catch ( final InterruptedException e )
+                    {
+                        throw e;
+                    }
+                    catch ( final Exception e )
+                    {
+                        failed = true;
+                        logger.debug( "Load operation: {} failed: {}", names.get( op ), e.getMessage() );
+                    }
+                    catch ( final AssertionError e )
+                    {
+                        failed = true;
+                        logger.debug( "Load operation: {} failed: {}", names.get( op ), e.getMessage() );
+                    }
+
+                    if ( scheduled >= measureFrom )
+                    {
+                        report.record( op, System.nanoTime() - scheduled, failed );
+                    }
+                }
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread()
+                      .interrupt();
+            }
+        }
+
+        private int pick()
+        {
+            if ( cumulative.length == 1 )
+            {
+                return 0;
+            }
+
+            final int n = random.nextInt( cumulative[cumulative.length - 1] );
+            int i = 0;
+            while ( n >= cumulative[i] )
+            {
+                i++;
+            }
+
+            return i;
+        }
+    }
+
+}
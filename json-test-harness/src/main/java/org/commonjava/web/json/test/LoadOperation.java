@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+/**
+ * One request issued by {@link LoadDriver}, written against the same {@link WebFixture} calls as functional tests.
+ */
+public interface LoadOperation
+{
+
+    /**
+     * Throwing anything, including a failed assertion, counts the operation as an error.
+     */
+    void run( WebFixture fixture )
+        throws Exception;
+
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.commonjava.web.json.metrics.LatencyHistogram;
+
+/**
+ * Latencies, error counts and throughput of one {@link LoadDriver} run, per operation and in total. Warm-up
+ * operations aren't included.
+ */
+public final class LoadReport
+{
+
+    private final List<String> names;
+
+    private final LatencyHistogram[] latencies;
+
+    private final AtomicLong[] errors;
+
+    private final LatencyHistogram totalLatencies = new LatencyHistogram();
+
+    private final AtomicLong totalErrors = new AtomicLong();
+
+    private long elapsedNanos;
+
+    LoadReport( final List<String> names )
+    {
+        this.names = Collections.unmodifiableList( new ArrayList<String>( names ) );
+        this.latencies = new LatencyHistogram[names.size()];
+        this.errors = new AtomicLong[names.size()];
+        for ( int i = 0; i < latencies.length; i++ )
+        {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new AtomicLong();
+        }
+    }
+
+    void record( final int operation, final long latencyNanos, final boolean failed )
+    {
+        latencies[operation].record( latencyNanos );
+        totalLatencies.record( latencyNanos );
+        if ( failed )
+        {
+            errors[operation].incrementAndGet();
+            totalErrors.incrementAndGet();
+        }
+    }
+
+    void setElapsedNanos( final long elapsedNanos )
+    {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<String> getOperationNames()
+    {
+        return names;
+    }
+
+    /**
+     * @return nanoseconds covered by the measurement, excluding warm-up
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    public LatencyHistogram getLatencies( final String name )
+    {
+        return latencies[index( name )];
+    }
+
+    public LatencyHistogram getTotalLatencies()
+    {
+        return totalLatencies;
+    }
+
+    public long getErrors( final String name )
+    {
+        return errors[index( name )].get();
+    }
+
+    public long getTotalErrors()
+    {
+        return totalErrors.get();
+    }
+
+    /**
+     * @return completed operations of the given name per second
+     */
+    public double getThroughput( final String name )
+    {
+        return throughput( getLatencies( name ).getCount() );
+    }
+
+    public double getThroughput()
+    {
+        return throughput( totalLatencies.getCount() );
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( String.format( "%-24s %10s %8s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "errors",
+                                  "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms" ) );
+        for ( int i = 0; i < latencies.length; i++ )
+        {
+            row( sb, names.get( i ), latencies[i], errors[i].get() );
+        }
+        row( sb, "TOTAL", totalLatencies, totalErrors.get() );
+
+        return sb.toString();
+    }
+
+    private void row( final StringBuilder sb, final String name, final LatencyHistogram histogram, final long errorCount )
+    {
+        final double ms = TimeUnit.MILLISECONDS.toNanos( 1 );
+        sb.append( String.format( "%-24s %10d %8d %10.1f %10.3f %10.3f %10.3f %10.3f %10.3f%n", name,
+                                  histogram.getCount(), errorCount, throughput( histogram.getCount() ),
+                                  histogram.getPercentile( 50 ) / ms, histogram.getPercentile( 90 ) / ms,
+                                  histogram.getPercentile( 99 ) / ms, histogram.getPercentile( 99.9 ) / ms,
+                                  histogram.getMax() / ms ) );
+    }
+
+    private double throughput( final long count )
+    {
+        return elapsedNanos > 0 ? count * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsedNanos : 0;
+    }
+
+    private int index( final String name )
+    {
+        final int idx = names.indexOf( name );
+        if ( idx < 0 )
+        {
+            throw new IllegalArgumentException( "No such operation: " + name );
+        }
+
+        return idx;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.commonjava.web.json.ser.ContentEncoding;
+
+/**
+ * Canned response served by {@link JsonStubServer}. The body is fixed when the stub is registered; how it is delivered
+ * (chunked, compressed, delayed) can be changed at any time.
+ */
+public final class StubResponse
+{
+
+    private final int status;
+
+    private final String contentType;
+
+    private final byte[] body;
+
+    private final Map<ContentEncoding, byte[]> encodedBodies = new EnumMap<ContentEncoding, byte[]>( ContentEncoding.class );
+
+    private volatile boolean chunked;
+
+    private volatile boolean compressed;
+
+    private volatile long latencyMillis = -1;
+
+    public StubResponse( final int status, final String contentType, final byte[] body )
+    {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body == null ? new byte[0] : body;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    public boolean isChunked()
+    {
+        return chunked;
+    }
+
+    /**
+     * Send the body with chunked transfer encoding instead of a Content-Length.
+     */
+    public void setChunked( final boolean chunked )
+    {
+        this.chunked = chunked;
+    }
+
+    public boolean isCompressed()
+    {
+        return compressed;
+    }
+
+    /**
+     * Compress the body with whichever coding the request's Accept-Encoding prefers, if any.
+     */
+    public void setCompressed( final boolean compressed )
+    {
+        this.compressed = compressed;
+    }
+
+    public long getLatencyMillis()
+    {
+        return latencyMillis;
+    }
+
+    /**
+     * Delay before the response is sent; negative (the default) uses the server's latency.
+     */
+    public void setLatencyMillis( final long latencyMillis )
+    {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @return the body in the given coding, compressed on first use and cached
+     */
+    synchronized byte[] getBody( final ContentEncoding encoding )
+        throws IOException
+    {
+        if ( encoding == ContentEncoding.IDENTITY )
+        {
+            return body;
+        }
+
+        byte[] encoded = encodedBodies.get( encoding );
+        if ( encoded == null )
+        {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream( body.length / 4 + 64 );
+            final OutputStream out = encoding.encode( baos );
+            out.write( body );
+            out.close();
+
+            encoded = baos.toByteArray();
+            encodedBodies.put( encoding, encoded );
+        }
+
+        return encoded;
+    }
+
+}
@@ -23,11 +23,25 @@ import java.io.StringWriter;
 import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -43,14 +57,25 @@ import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.client.protocol.ResponseContentEncoding;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.InputStreamEntity;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.commonjava.web.json.index.JsonIndex;
 import org.commonjava.web.json.model.Listing;
+import org.commonjava.web.json.ser.ContentEncoding;
 import org.commonjava.web.json.ser.JsonSerializer;
+import org.commonjava.web.json.ser.JsonWireFormat;
+import org.commonjava.web.json.ser.ListingIterator;
 import org.junit.rules.ExternalResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,6 +91,19 @@ public class WebFixture
 
     public static final String DEFAULT_PORT = "8080";
 
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 30000;
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30000;
+
+    private static final ConnectionKeepAliveStrategy SERVER_KEEP_ALIVE = new DefaultConnectionKeepAliveStrategy();
+
+    /**
+     * Largest remainder a streaming read can leave unread and still have its connection reused.
+     */
+    private static final int MAX_DRAIN_BYTES = 8192;
+
     private static final String QARQAS_PROPERTIES = "qarqas.properties";
 
     private static final String QARQAS_HTTP_PROP = "qarqas.export.http";
@@ -90,6 +128,26 @@ public class WebFixture
 
     private String basePath;
 
+    private JsonWireFormat wireFormat = JsonWireFormat.JSON;
+
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS;
+
+    private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+    private PoolingClientConnectionManager connectionManager;
+
+    private IdleConnectionEvictor evictor;
+
+    private ContentEncoding requestEncoding = ContentEncoding.IDENTITY;
+
+    private int asyncThreads = DEFAULT_MAX_CONNECTIONS;
+
+    private ExecutorService asyncExecutor;
+
     public WebFixture()
     {
         this.serializer = new JsonSerializer();
@@ -160,10 +218,33 @@ public class WebFixture
     protected void before()
         throws Exception
     {
-        final ThreadSafeClientConnManager ccm = new ThreadSafeClientConnManager();
-        ccm.setMaxTotal( 20 );
+        connectionManager = new PoolingClientConnectionManager();
+        connectionManager.setMaxTotal( maxConnections );
+        connectionManager.setDefaultMaxPerRoute( maxConnectionsPerRoute );
+
+        http = new DefaultHttpClient( connectionManager );
+        http.setKeepAliveStrategy( new ConnectionKeepAliveStrategy()
+        {
+            @Override
+            public long getKeepAliveDuration( final HttpResponse response, final HttpContext context )
+            {
+                // honor a shorter server Keep-Alive timeout, otherwise keep connections for the configured time.
+                final long server = SERVER_KEEP_ALIVE.getKeepAliveDuration( response, context );
+                return server > 0 && server < keepAliveMillis ? server : keepAliveMillis;
+            }
+        } );
+
+        if ( idleTimeoutMillis > 0 )
+        {
+            evictor = new IdleConnectionEvictor( connectionManager, idleTimeoutMillis );
+            evictor.start();
+        }
 
-        http = new DefaultHttpClient( ccm );
+        asyncExecutor = Executors.newFixedThreadPool( asyncThreads, new AsyncThreadFactory() );
+
+        // ask for compressed responses, and decompress them as the entity content is read.
+        http.addRequestInterceptor( new RequestAcceptEncoding() );
+        http.addResponseInterceptor( new ResponseContentEncoding() );
         http.setCredentialsProvider( new CredentialsProvider()
         {
 
@@ -190,6 +271,58 @@ public class WebFixture
         } );
     }
 
+    @Override
+    protected void after()
+    {
+        if ( asyncExecutor != null )
+        {
+            asyncExecutor.shutdownNow();
+            asyncExecutor = null;
+        }
+
+        if ( evictor != null )
+        {
+            evictor.shutdown();
+            evictor = null;
+        }
+
+        if ( http != null )
+        {
+            http.getConnectionManager()
+                .shutdown();
+        }
+    }
+
+    /**
+     * Start outside of a JUnit rule, e.g. from a benchmark.
+     */
+    public void start()
+        throws Exception
+    {
+        before();
+    }
+
+    public void stop()
+    {
+        after();
+    }
+
+    /**
+     * @return leased, available and pending connections across all routes
+     */
+    public PoolStats getPoolStats()
+    {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * @return connection statistics for the fixture's own host and port
+     */
+    public PoolStats getRoutePoolStats()
+    {
+        return connectionManager.getStats( new HttpRoute( new HttpHost( host, port ) ) );
+    }
+
     public void assertLocationHeader( final HttpResponse response, final String value )
     {
         final Header[] headers = response.getHeaders( HttpHeaders.LOCATION );
@@ -205,27 +338,27 @@ public class WebFixture
     {
         logger.info( "WebFixture: GET '{}', expecting: 200, return-type: {}", url, type.getName() );
         final HttpGet get = new HttpGet( url );
-        get.setHeader( HttpHeaders.ACCEPT, "application/json" );
-        try
+        get.setHeader( HttpHeaders.ACCEPT, getAccept() );
+
+        return execute( get, new ResponseHandler<T>()
         {
-            return http.execute( get, new ResponseHandler<T>()
+            @Override
+            public T handleResponse( final HttpResponse response )
+                throws ClientProtocolException, IOException
             {
-                @Override
-                public T handleResponse( final HttpResponse response )
-                    throws ClientProtocolException, IOException
-                {
-                    final StatusLine sl = response.getStatusLine();
-                    assertThat( sl.getStatusCode(), equalTo( HttpStatus.SC_OK ) );
+                final StatusLine sl = response.getStatusLine();
+                assertThat( sl.getStatusCode(), equalTo( HttpStatus.SC_OK ) );
 
-                    return serializer.fromStream( response.getEntity()
-                                                          .getContent(), "UTF-8", type );
+                if ( isBinary( response ) )
+                {
+                    return serializer.fromBinaryStream( response.getEntity()
+                                                                .getContent(), type );
                 }
-            } );
-        }
-        finally
-        {
-            get.abort();
-        }
+
+                return serializer.fromStream( response.getEntity()
+                                                      .getContent(), "UTF-8", type );
+            }
+        } );
     }
 
     public void get( final String url, final int expectedStatus )
@@ -233,235 +366,566 @@ public class WebFixture
     {
         logger.info( "WebFixture: GET '{}', expecting: {}", url, expectedStatus );
         final HttpGet get = new HttpGet( url );
-        try
+
+        execute( get, new ResponseHandler<Void>()
         {
-            http.execute( get, new ResponseHandler<Void>()
+            @Override
+            public Void handleResponse( final HttpResponse response )
+                throws ClientProtocolException, IOException
             {
-                @Override
-                public Void handleResponse( final HttpResponse response )
-                    throws ClientProtocolException, IOException
-                {
-                    final StatusLine sl = response.getStatusLine();
-                    assertThat( sl.getStatusCode(), equalTo( expectedStatus ) );
+                final StatusLine sl = response.getStatusLine();
+                assertThat( sl.getStatusCode(), equalTo( expectedStatus ) );
 
-                    return null;
-                }
-            } );
+                return null;
+            }
+        } );
+    }
+
+    public String getString( final String url, final int expectedStatus )
+        throws ClientProtocolException, IOException
+    {
+        final HttpGet get = new HttpGet( url );
+        final HttpResponse response = http.execute( get );
+        try
+        {
+            final StatusLine sl = response.getStatusLine();
+
+            assertThat( sl.getStatusCode(), equalTo( expectedStatus ) );
+            assertThat( response.getEntity(), notNullValue() );
+
+            final StringWriter sw = new StringWriter();
+            copy( response.getEntity()
+                          .getContent(), sw );
+
+            return sw.toString();
         }
         finally
         {
-            get.abort();
+            release( get, response );
         }
     }
 
-    public String getString( final String url, final int expectedStatus )
+    /**
+     * Fetch a JSON document and build a {@link JsonIndex} over it, for running several path queries against the same
+     * response.
+     */
+    public JsonIndex getIndex( final String url, final int expectedStatus )
         throws ClientProtocolException, IOException
     {
-        final HttpResponse response = http.execute( new HttpGet( url ) );
-        final StatusLine sl = response.getStatusLine();
+        return JsonIndex.build( getString( url, expectedStatus ) );
+    }
+
+    public HttpResponse getWithResponse( final String url, final int expectedStatus )
+        throws Exception
+    {
+        final HttpGet get = new HttpGet( url );
 
-        assertThat( sl.getStatusCode(), equalTo( expectedStatus ) );
-        assertThat( response.getEntity(), notNullValue() );
+        return execute( get, expectedStatus );
+    }
 
-        final StringWriter sw = new StringWriter();
-        copy( response.getEntity()
-                      .getContent(), sw );
+    public HttpResponse getWithResponse( final String url, final int expectedStatus, final String accept )
+        throws Exception
+    {
+        final HttpGet get = new HttpGet( url );
+        get.setHeader( "Accept", accept );
 
-        return sw.toString();
+        return execute( get, expectedStatus );
     }
 
-    public HttpResponse getWithResponse( final String url, final int expectedStatus )
+    public <T> Listing<T> getListing( final String url, final TypeToken<Listing<T>> token )
         throws Exception
     {
         final HttpGet get = new HttpGet( url );
+        get.setHeader( HttpHeaders.ACCEPT, getAccept() );
+
+        return execute( get, new ResponseHandler<Listing<T>>()
+        {
+            @SuppressWarnings( "unchecked" )
+            @Override
+            public Listing<T> handleResponse( final HttpResponse response )
+                throws ClientProtocolException, IOException
+            {
+                final StatusLine sl = response.getStatusLine();
+                assertThat( sl.getStatusCode(), equalTo( HttpStatus.SC_OK ) );
+
+                if ( isBinary( response ) )
+                {
+                    return serializer.listingFromBinaryStream( response.getEntity()
+                                                                       .getContent(), token );
+                }
+
+                return serializer.listingFromStream( response.getEntity()
+                                                             .getContent(), "UTF-8", token );
+            }
+        } );
+    }
+
+    /**
+     * GET and hand the response to the handler with the entity still unread, so it can be consumed incrementally. As
+     * soon as the handler returns or fails the connection is released: a short remainder is drained so the connection
+     * can be reused, anything longer is abandoned by aborting the request.
+     */
+    public <T> T stream( final String url, final int expectedStatus, final ResponseHandler<T> handler )
+        throws Exception
+    {
+        logger.info( "WebFixture: GET '{}' (streaming), expecting: {}", url, expectedStatus );
+        final HttpGet get = new HttpGet( url );
+
+        final HttpResponse response = http.execute( get );
         try
         {
-            final HttpResponse response = http.execute( get );
-            final StatusLine sl = response.getStatusLine();
-            assertThat( sl.getStatusCode(), equalTo( expectedStatus ) );
+            assertThat( response.getStatusLine()
+                                .getStatusCode(), equalTo( expectedStatus ) );
 
-            return response;
+            return handler.handleResponse( response );
         }
         finally
         {
-            get.abort();
+            releaseEarly( get, response );
         }
     }
 
-    public HttpResponse getWithResponse( final String url, final int expectedStatus, final String accept )
+    /**
+     * GET a listing and hand its items to the handler one at a time, as they are read off the connection. Items the
+     * handler doesn't ask for are never read, so checks on the first few items of a huge listing stay cheap.
+     */
+    public <T, R> R streamListing( final String url, final TypeToken<Listing<T>> token, final ListingHandler<T, R> handler )
         throws Exception
     {
+        logger.info( "WebFixture: GET '{}' (streaming listing), expecting: 200", url );
         final HttpGet get = new HttpGet( url );
-        get.setHeader( "Accept", accept );
+        get.setHeader( HttpHeaders.ACCEPT, getAccept() );
 
+        final HttpResponse response = http.execute( get );
+        ListingIterator<T> items = null;
         try
         {
-            final HttpResponse response = http.execute( get );
-            final StatusLine sl = response.getStatusLine();
-            assertThat( sl.getStatusCode(), equalTo( expectedStatus ) );
+            assertThat( response.getStatusLine()
+                                .getStatusCode(), equalTo( HttpStatus.SC_OK ) );
 
-            return response;
+            final InputStream in = response.getEntity()
+                                           .getContent();
+
+            items =
+                isBinary( response ) ? serializer.binaryListingIterator( in, token )
+                                : serializer.listingIterator( in, "UTF-8", token );
+
+            return handler.handle( items );
         }
         finally
         {
-            get.abort();
+            // release first: closing the iterator would otherwise read the rest of the response.
+            releaseEarly( get, response );
+            closeQuietly( items );
         }
     }
 
-    public <T> Listing<T> getListing( final String url, final TypeToken<Listing<T>> token )
+    /**
+     * Count the items of a listing without deserializing them.
+     */
+    public <T> int countListing( final String url, final TypeToken<Listing<T>> token )
         throws Exception
     {
-        final HttpGet get = new HttpGet( url );
-        try
+        return streamListing( url, token, new ListingHandler<T, Integer>()
         {
-            return http.execute( get, new ResponseHandler<Listing<T>>()
+            @Override
+            public Integer handle( final ListingIterator<T> items )
             {
-                @SuppressWarnings( "unchecked" )
-                @Override
-                public Listing<T> handleResponse( final HttpResponse response )
-                    throws ClientProtocolException, IOException
+                int count = 0;
+                while ( items.hasNext() )
                 {
-                    final StatusLine sl = response.getStatusLine();
-                    assertThat( sl.getStatusCode(), equalTo( HttpStatus.SC_OK ) );
-
-                    return serializer.listingFromStream( response.getEntity()
-                                                                 .getContent(), "UTF-8", token );
+                    items.skip();
+                    count++;
                 }
-            } );
-        }
-        finally
+
+                return count;
+            }
+        } );
+    }
+
+    /**
+     * @return the first <code>limit</code> items of a listing (fewer if it's shorter), without reading the rest
+     */
+    public <T> List<T> getListingHead( final String url, final TypeToken<Listing<T>> token, final int limit )
+        throws Exception
+    {
+        return streamListing( url, token, new ListingHandler<T, List<T>>()
         {
-            get.abort();
-        }
+            @Override
+            public List<T> handle( final ListingIterator<T> items )
+            {
+                final List<T> head = new ArrayList<T>( limit );
+                while ( head.size() < limit && items.hasNext() )
+                {
+                    head.add( items.next() );
+                }
+
+                return head;
+            }
+        } );
     }
 
     public HttpResponse delete( final String url )
         throws Exception
     {
         final HttpDelete request = new HttpDelete( url );
-        try
-        {
-            final HttpResponse response = http.execute( request );
 
-            assertThat( response.getStatusLine()
-                                .getStatusCode(), equalTo( HttpStatus.SC_OK ) );
+        return execute( request, HttpStatus.SC_OK );
+    }
 
-            return response;
-        }
-        finally
+    public HttpResponse put( final String url, final int status )
+        throws Exception
+    {
+        final HttpPut request = new HttpPut( url );
+
+        return execute( request, status );
+    }
+
+    public HttpResponse put( final String url, final Object value, final int status )
+        throws Exception
+    {
+        final HttpPut request = new HttpPut( url );
+        if ( value != null )
         {
-            request.abort();
+            request.setEntity( new JsonEntity( serializer, value, value.getClass(), wireFormat, requestEncoding ) );
         }
+
+        return execute( request, status );
     }
 
-    public HttpResponse put( final String url, final int status )
+    public HttpResponse put( final String url, final int status, final InputStream stream, final String contentType, final int contentLength )
         throws Exception
     {
         final HttpPut request = new HttpPut( url );
+        request.setHeader( HttpHeaders.CONTENT_TYPE, contentType );
+        request.setEntity( new InputStreamEntity( stream, contentLength ) );
 
-        try
+        return execute( request, status );
+    }
+
+    public HttpResponse post( final String url, final Object value, final int status )
+        throws Exception
+    {
+        final HttpPost request = new HttpPost( url );
+        request.setEntity( new JsonEntity( serializer, value, value.getClass(), wireFormat, requestEncoding ) );
+
+        return execute( request, status );
+    }
+
+    public HttpResponse post( final String url, final Object value, final Type type, final int status )
+        throws Exception
+    {
+        final HttpPost request = new HttpPost( url );
+        request.setEntity( new JsonEntity( serializer, value, type, wireFormat, requestEncoding ) );
+
+        return execute( request, status );
+    }
+
+    /**
+     * Asynchronous {@link #get(String, Class)}. Assertion failures and I/O errors surface from {@link Future#get()}
+     * as the cause of an {@link ExecutionException}.
+     */
+    public <T> Future<T> getAsync( final String url, final Class<T> type )
+    {
+        return submit( new Callable<T>()
         {
-            final HttpResponse response = http.execute( request );
+            @Override
+            public T call()
+                throws Exception
+            {
+                return get( url, type );
+            }
+        } );
+    }
 
-            assertThat( response.getStatusLine()
-                                .getStatusCode(), equalTo( status ) );
+    public <T> Future<Listing<T>> getListingAsync( final String url, final TypeToken<Listing<T>> token )
+    {
+        return submit( new Callable<Listing<T>>()
+        {
+            @Override
+            public Listing<T> call()
+                throws Exception
+            {
+                return getListing( url, token );
+            }
+        } );
+    }
 
-            return response;
+    public Future<HttpResponse> putAsync( final String url, final Object value, final int status )
+    {
+        return submit( new Callable<HttpResponse>()
+        {
+            @Override
+            public HttpResponse call()
+                throws Exception
+            {
+                return put( url, value, status );
+            }
+        } );
+    }
+
+    public Future<HttpResponse> postAsync( final String url, final Object value, final int status )
+    {
+        return submit( new Callable<HttpResponse>()
+        {
+            @Override
+            public HttpResponse call()
+                throws Exception
+            {
+                return post( url, value, status );
+            }
+        } );
+    }
+
+    public Future<HttpResponse> postAsync( final String url, final Object value, final Type type, final int status )
+    {
+        return submit( new Callable<HttpResponse>()
+        {
+            @Override
+            public HttpResponse call()
+                throws Exception
+            {
+                return post( url, value, type, status );
+            }
+        } );
+    }
+
+    /**
+     * Run any {@link Callable} (typically wrapping fixture calls) on the fixture's async threads.
+     */
+    public <T> Future<T> submit( final Callable<T> request )
+    {
+        if ( asyncExecutor == null )
+        {
+            throw new IllegalStateException( "WebFixture has not been started." );
         }
-        finally
+
+        return asyncExecutor.submit( request );
+    }
+
+    /**
+     * POST each value to the same URL, with at most <code>maxInFlight</code> requests outstanding at once.
+     *
+     * @return the responses, in the order of the values
+     */
+    public List<HttpResponse> postAll( final String url, final List<?> values, final int status,
+                                       final int maxInFlight )
+        throws Exception
+    {
+        final List<Callable<HttpResponse>> requests = new ArrayList<Callable<HttpResponse>>( values.size() );
+        for ( final Object value : values )
         {
-            request.abort();
+            requests.add( new Callable<HttpResponse>()
+            {
+                @Override
+                public HttpResponse call()
+                    throws Exception
+                {
+                    return post( url, value, status );
+                }
+            } );
         }
+
+        return executeAll( requests, maxInFlight );
     }
 
-    public HttpResponse put( final String url, final Object value, final int status )
+    /**
+     * Run a batch of requests concurrently, with at most <code>maxInFlight</code> outstanding at once (and never more
+     * than the async thread count), and wait for all of them. Requests are checked as they complete, so the first
+     * failure, whichever request it came from, stops further requests from being issued, cancels those still in
+     * flight, and is rethrown as-is.
+     *
+     * @return the results, in the order of the requests
+     */
+    public <T> List<T> executeAll( final List<? extends Callable<T>> requests, final int maxInFlight )
         throws Exception
     {
-        final HttpPut request = new HttpPut( url );
-        if ( value != null )
+        if ( maxInFlight < 1 )
         {
-            request.setEntity( new StringEntity( serializer.toString( value ), "application/json", "UTF-8" ) );
+            throw new IllegalArgumentException( "maxInFlight must be at least 1." );
         }
 
+        if ( asyncExecutor == null )
+        {
+            throw new IllegalStateException( "WebFixture has not been started." );
+        }
+
+        final int count = requests.size();
+        final List<T> results = new ArrayList<T>( Collections.<T> nCopies( count, null ) );
+        final CompletionService<T> completion = new ExecutorCompletionService<T>( asyncExecutor );
+        final List<Future<T>> futures = new ArrayList<Future<T>>( count );
+
+        boolean done = false;
         try
         {
-            final HttpResponse response = http.execute( request );
+            int completed = 0;
+            while ( completed < count )
+            {
+                while ( futures.size() < count && futures.size() - completed < maxInFlight )
+                {
+                    final int index = futures.size();
+                    final Callable<T> request = requests.get( index );
+                    futures.add( completion.submit( new Callable<T>()
+                    {
+                        @Override
+                        public T call()
+                            throws Exception
+                        {
+                            // published to the caller by the Future completing.
+                            final T result = request.call();
+                            results.set( index, result );
+                            return result;
+                        }
+                    } ) );
+                }
 
-            assertThat( response.getStatusLine()
-                                .getStatusCode(), equalTo( status ) );
+                completion.take()
+                          .get();
+                completed++;
+            }
 
-            return response;
+            done = true;
+            return results;
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof Exception )
+            {
+                throw (Exception) cause;
+            }
+            else if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+
+            throw e;
         }
         finally
         {
-            request.abort();
+            if ( !done )
+            {
+                for ( final Future<T> future : futures )
+                {
+                    future.cancel( true );
+                }
+            }
         }
     }
 
-    public HttpResponse put( final String url, final int status, final InputStream stream, final String contentType, final int contentLength )
-        throws Exception
+    /**
+     * The Accept header for typed reads: JSON only, or the binary format with JSON as a fallback for servers that
+     * don't support it.
+     */
+    private String getAccept()
     {
-        final HttpPut request = new HttpPut( url );
-        request.setHeader( HttpHeaders.CONTENT_TYPE, contentType );
-        request.setEntity( new InputStreamEntity( stream, contentLength ) );
+        return wireFormat == JsonWireFormat.BINARY ? wireFormat.getContentType() + ", application/json;q=0.5"
+                        : "application/json";
+    }
 
+    /**
+     * Execute the request and check the response status. The entity is consumed before returning, so the
+     * connection goes back to the pool for reuse; only the status line and headers remain readable.
+     */
+    private HttpResponse execute( final HttpUriRequest request, final int expectedStatus )
+        throws IOException
+    {
+        final HttpResponse response = http.execute( request );
         try
         {
-            final HttpResponse response = http.execute( request );
-
             assertThat( response.getStatusLine()
-                                .getStatusCode(), equalTo( status ) );
+                                .getStatusCode(), equalTo( expectedStatus ) );
 
             return response;
         }
         finally
         {
-            request.abort();
+            release( request, response );
         }
     }
 
-    public HttpResponse post( final String url, final Object value, final int status )
-        throws Exception
+    /**
+     * Like {@link org.apache.http.client.HttpClient#execute(HttpUriRequest, ResponseHandler)}, but the connection is
+     * also released when the handler fails with an assertion error.
+     */
+    private <T> T execute( final HttpUriRequest request, final ResponseHandler<T> handler )
+        throws IOException
     {
-        final HttpPost request = new HttpPost( url );
-        request.setEntity( new StringEntity( serializer.toString( value ), "application/json", "UTF-8" ) );
-
+        final HttpResponse response = http.execute( request );
         try
         {
-            final HttpResponse response = http.execute( request );
-
-            assertThat( response.getStatusLine()
-                                .getStatusCode(), equalTo( status ) );
-
-            return response;
+            return handler.handleResponse( response );
         }
         finally
+        {
+            release( request, response );
+        }
+    }
+
+    /**
+     * Consume the rest of the entity so the connection goes back to the pool, or abort the request (dropping the
+     * connection) if that fails.
+     */
+    private void release( final HttpUriRequest request, final HttpResponse response )
+    {
+        try
+        {
+            EntityUtils.consume( response.getEntity() );
+        }
+        catch ( final IOException e )
         {
             request.abort();
         }
     }
 
-    public HttpResponse post( final String url, final Object value, final Type type, final int status )
-        throws Exception
+    /**
+     * Release the connection after a streaming read: drain what's left if it's short, so the connection goes back to
+     * the pool, otherwise abort the request instead of downloading the rest.
+     */
+    private void releaseEarly( final HttpUriRequest request, final HttpResponse response )
     {
-        final HttpPost request = new HttpPost( url );
-        request.setEntity( new StringEntity( serializer.toString( value, type ), "application/json", "UTF-8" ) );
+        final HttpEntity entity = response.getEntity();
+        if ( entity == null )
+        {
+            return;
+        }
 
         try
         {
-            final HttpResponse response = http.execute( request );
-
-            assertThat( response.getStatusLine()
-                                .getStatusCode(), equalTo( status ) );
+            final InputStream in = entity.getContent();
+            final byte[] buf = new byte[1024];
+            int drained = 0;
+            int read;
+            while ( ( read = in.read( buf ) ) >= 0 )
+            {
+                drained += read;
+                if ( drained > MAX_DRAIN_BYTES )
+                {
+                    request.abort();
+                    return;
+                }
+            }
 
-            return response;
+            in.close();
         }
-        finally
+        catch ( final IOException e )
+        {
+            request.abort();
+        }
+        catch ( final IllegalStateException e )
         {
             request.abort();
         }
     }
 
+    private boolean isBinary( final HttpResponse response )
+    {
+        final Header contentType = response.getEntity()
+                                           .getContentType();
+
+        return contentType != null && JsonWireFormat.forContentType( contentType.getValue() ) == JsonWireFormat.BINARY;
+    }
+
     public String resourceUrl( final String... path )
         throws MalformedURLException
     {
@@ -579,6 +1043,95 @@ public class WebFixture
         this.pass = pass;
     }
 
+    public JsonWireFormat getWireFormat()
+    {
+        return wireFormat;
+    }
+
+    /**
+     * Choose the format of request bodies and the preferred format of responses; JSON by default.
+     */
+    public void setWireFormat( final JsonWireFormat wireFormat )
+    {
+        this.wireFormat = wireFormat;
+    }
+
+    public ContentEncoding getRequestEncoding()
+    {
+        return requestEncoding;
+    }
+
+    /**
+     * Compress request bodies sent by <code>put(..)</code> and <code>post(..)</code>; uncompressed by default.
+     */
+    public void setRequestEncoding( final ContentEncoding requestEncoding )
+    {
+        this.requestEncoding = requestEncoding;
+    }
+
+    public int getMaxConnections()
+    {
+        return maxConnections;
+    }
+
+    /**
+     * Pool settings take effect when the fixture starts.
+     */
+    public void setMaxConnections( final int maxConnections )
+    {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute()
+    {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute( final int maxConnectionsPerRoute )
+    {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public long getKeepAliveMillis()
+    {
+        return keepAliveMillis;
+    }
+
+    /**
+     * Longest time a connection is kept for reuse; a shorter Keep-Alive timeout sent by the server wins.
+     */
+    public void setKeepAliveMillis( final long keepAliveMillis )
+    {
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public long getIdleTimeoutMillis()
+    {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * Close pooled connections idle for longer than this, from a background thread; 0 turns eviction off.
+     */
+    public void setIdleTimeoutMillis( final long idleTimeoutMillis )
+    {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public int getAsyncThreads()
+    {
+        return asyncThreads;
+    }
+
+    /**
+     * Threads running the <code>*Async(..)</code> and bulk requests; takes effect when the fixture starts. Keep it at
+     * or below the per-route connection limit, or the extra threads just wait for a pooled connection.
+     */
+    public void setAsyncThreads( final int asyncThreads )
+    {
+        this.asyncThreads = asyncThreads;
+    }
+
     public String getResourceBase()
     {
         return basePath == null ? DEFAULT_BASE + "/" + getApiVersion() : basePath;
@@ -593,4 +1146,18 @@ public class WebFixture
     {
         this.basePath = basePath;
     }
+
+    private static final class AsyncThreadFactory
+        implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread( final Runnable r )
+        {
+            final Thread t = new Thread( r, "WebFixture-async-" + count.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        }
+    }
 }
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class JsonStubServerTest
+{
+
+    @Rule
+    public JsonStubServer server = new JsonStubServer();
+
+    @Test
+    public void deliverPlainChunkedAndGzip()
+        throws Exception
+    {
+        final List<String> value = new ArrayList<String>();
+        for ( int i = 0; i < 3000; i++ )
+        {
+            value.add( "item-" + i );
+        }
+
+        final String json = server.getSerializer()
+                                  .toString( value );
+
+        server.stub( "/plain", value );
+        server.stub( "/chunked", value )
+              .setChunked( true );
+        server.stub( "/gzip", value )
+              .setCompressed( true );
+
+        HttpURLConnection conn = open( "GET", "/plain", null );
+        assertThat( conn.getResponseCode(), equalTo( 200 ) );
+        assertThat( conn.getContentType(), equalTo( JsonStubServer.JSON_CONTENT_TYPE ) );
+        assertThat( conn.getHeaderField( "Content-Length" ),
+                    equalTo( Integer.toString( json.getBytes( "UTF-8" ).length ) ) );
+        assertThat( read( conn.getInputStream() ), equalTo( json ) );
+
+        conn = open( "GET", "/chunked", null );
+        assertThat( conn.getHeaderField( "Transfer-Encoding" ), equalTo( "chunked" ) );
+        assertThat( read( conn.getInputStream() ), equalTo( json ) );
+
+        conn = open( "GET", "/gzip", "gzip" );
+        assertThat( conn.getHeaderField( "Content-Encoding" ), equalTo( "gzip" ) );
+        assertThat( conn.getHeaderField( "Vary" ), equalTo( "Accept-Encoding" ) );
+        assertThat( read( new GZIPInputStream( conn.getInputStream() ) ), equalTo( json ) );
+
+        // compression is only used if the client asks for it.
+        conn = open( "GET", "/gzip", null );
+        assertThat( conn.getHeaderField( "Content-Encoding" ), nullValue() );
+        assertThat( read( conn.getInputStream() ), equalTo( json ) );
+    }
+
+    @Test
+    public void answerUnstubbedPathsWith404()
+        throws Exception
+    {
+        server.stub( "/known", "value" );
+
+        assertThat( open( "GET", "/unknown", null ).getResponseCode(), equalTo( 404 ) );
+        assertThat( open( "GET", "/known/child", null ).getResponseCode(), equalTo( 404 ) );
+        assertThat( server.getRequestCount(), equalTo( 2L ) );
+
+        server.clear();
+        assertThat( open( "GET", "/known", null ).getResponseCode(), equalTo( 404 ) );
+    }
+
+    @Test
+    public void preferMethodStubsOverAnyMethodStubs()
+        throws Exception
+    {
+        server.stub( "/thing", "any" );
+        server.stub( "POST", "/thing", 201, "created", String.class );
+        server.stub( "delete", "/gone", 204, null, null );
+
+        HttpURLConnection conn = open( "GET", "/thing", null );
+        assertThat( conn.getResponseCode(), equalTo( 200 ) );
+        assertThat( read( conn.getInputStream() ), equalTo( "\"any\"" ) );
+
+        conn = open( "POST", "/thing", null );
+        assertThat( conn.getResponseCode(), equalTo( 201 ) );
+        assertThat( read( conn.getInputStream() ), equalTo( "\"created\"" ) );
+
+        assertThat( open( "DELETE", "/gone", null ).getResponseCode(), equalTo( 204 ) );
+        assertThat( open( "GET", "/gone", null ).getResponseCode(), equalTo( 404 ) );
+    }
+
+    @Test
+    public void stubNullValueWithEmptyBody()
+        throws Exception
+    {
+        server.stub( "/nothing", null );
+
+        final HttpURLConnection conn = open( "GET", "/nothing", null );
+        assertThat( conn.getResponseCode(), equalTo( 200 ) );
+        assertThat( read( conn.getInputStream() ), equalTo( "" ) );
+    }
+
+    @Test
+    public void delayResponses()
+        throws Exception
+    {
+        server.setLatencyMillis( 100 );
+        server.stub( "/slow", "value" );
+        server.stub( "/fast", "value" )
+              .setLatencyMillis( 0 );
+
+        long start = System.currentTimeMillis();
+        assertThat( open( "GET", "/slow", null ).getResponseCode(), equalTo( 200 ) );
+        assertThat( System.currentTimeMillis() - start >= 100, equalTo( true ) );
+
+        start = System.currentTimeMillis();
+        assertThat( open( "GET", "/fast", null ).getResponseCode(), equalTo( 200 ) );
+        assertThat( System.currentTimeMillis() - start < 100, equalTo( true ) );
+    }
+
+    private HttpURLConnection open( final String method, final String path, final String acceptEncoding )
+        throws IOException
+    {
+        final HttpURLConnection conn = (HttpURLConnection) new URL( server.url( path ) ).openConnection();
+        conn.setRequestMethod( method );
+        if ( acceptEncoding != null )
+        {
+            conn.setRequestProperty( "Accept-Encoding", acceptEncoding );
+        }
+
+        if ( "POST".equals( method ) )
+        {
+            conn.setDoOutput( true );
+            conn.getOutputStream()
+                .write( "{}".getBytes( "UTF-8" ) );
+        }
+
+        return conn;
+    }
+
+    private static String read( final InputStream in )
+        throws IOException
+    {
+        try
+        {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtils.copy( in, out );
+            return new String( out.toByteArray(), "UTF-8" );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+}
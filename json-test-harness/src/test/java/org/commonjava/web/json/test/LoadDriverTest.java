@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.commonjava.web.json.metrics.LatencyHistogram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoadDriverTest
+{
+
+    private JsonStubServer server;
+
+    private WebFixture fixture;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        server = new JsonStubServer();
+        server.start();
+
+        fixture = new WebFixture();
+        server.configure( fixture );
+        fixture.start();
+    }
+
+    @After
+    public void teardown()
+    {
+        fixture.stop();
+        server.stop();
+    }
+
+    @Test
+    public void countOperationsAndErrorsAfterWarmup()
+        throws Exception
+    {
+        server.setLatencyMillis( 20 );
+        server.stub( "/item", "value" );
+
+        final LoadDriver driver = new LoadDriver( fixture );
+        driver.add( "item", 3, LoadDriver.get( server.url( "/item" ), 200 ) );
+        driver.add( "missing", 1, LoadDriver.get( server.url( "/missing" ), 200 ) );
+        driver.setConcurrency( 2 );
+        driver.setWarmupMillis( 100 );
+        driver.setDurationMillis( 500 );
+
+        final LoadReport report = driver.run();
+
+        final LatencyHistogram items = report.getLatencies( "item" );
+        final LatencyHistogram missing = report.getLatencies( "missing" );
+        final long total = report.getTotalLatencies()
+                                 .getCount();
+
+        assertThat( items.getCount() + missing.getCount(), equalTo( total ) );
+        assertThat( missing.getCount() > 0, equalTo( true ) );
+        assertThat( report.getErrors( "item" ), equalTo( 0L ) );
+        assertThat( report.getErrors( "missing" ), equalTo( missing.getCount() ) );
+        assertThat( report.getTotalErrors(), equalTo( missing.getCount() ) );
+
+        // two closed-loop threads, 20ms per request: at most 25 each in 500ms, plus one straddling the end.
+        assertThat( total > 10 && total <= 52, equalTo( true ) );
+        assertThat( items.getMin() >= TimeUnit.MILLISECONDS.toNanos( 20 ), equalTo( true ) );
+
+        // warm-up requests reach the server but not the report.
+        assertThat( server.getRequestCount() > total, equalTo( true ) );
+    }
+
+    @Test
+    public void scheduleRequestsAtTargetRate()
+        throws Exception
+    {
+        server.setLatencyMillis( 10 );
+        server.stub( "/item", "value" );
+
+        final LoadDriver driver = new LoadDriver( fixture );
+        driver.add( "item", LoadDriver.get( server.url( "/item" ), 200 ) );
+        driver.setConcurrency( 4 );
+        driver.setTargetRate( 50 );
+        driver.setWarmupMillis( 200 );
+        driver.setDurationMillis( 1000 );
+
+        final LoadReport report = driver.run();
+
+        // one request every 20ms, whatever the thread count; the 200ms of warm-up requests aren't counted.
+        assertThat( report.getLatencies( "item" )
+                          .getCount(), equalTo( 50L ) );
+        assertThat( server.getRequestCount(), equalTo( 60L ) );
+        assertThat( report.getTotalErrors(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void measureLatencyFromScheduledStartWhenFallingBehind()
+        throws Exception
+    {
+        server.setLatencyMillis( 100 );
+        server.stub( "/item", "value" );
+
+        final LoadDriver driver = new LoadDriver( fixture );
+        driver.add( "item", LoadDriver.get( server.url( "/item" ), 200 ) );
+        driver.setConcurrency( 1 );
+        driver.setTargetRate( 40 );
+        driver.setDurationMillis( 250 );
+
+        final LoadReport report = driver.run();
+
+        // ten requests due in the first 250ms, but one thread needs ~1s to get through them; the wait behind earlier
+        // responses counts towards the later requests' latency, and the run is measured to the last completion.
+        final LatencyHistogram latencies = report.getLatencies( "item" );
+        assertThat( latencies.getCount(), equalTo( 10L ) );
+        assertThat( latencies.getMax() > TimeUnit.MILLISECONDS.toNanos( 500 ), equalTo( true ) );
+        assertThat( report.getElapsedNanos() > TimeUnit.MILLISECONDS.toNanos( 900 ), equalTo( true ) );
+    }
+
+}
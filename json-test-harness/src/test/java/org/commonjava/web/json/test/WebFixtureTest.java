@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Red Hat, Inc..
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.commonjava.web.json.test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.pool.PoolStats;
+import org.commonjava.web.json.model.Listing;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.reflect.TypeToken;
+
+public class WebFixtureTest
+{
+
+    private static final TypeToken<Listing<String>> LISTING = new TypeToken<Listing<String>>()
+    {
+    };
+
+    private JsonStubServer server;
+
+    private WebFixture fixture;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        server = new JsonStubServer();
+        server.start();
+
+        fixture = new WebFixture();
+        server.configure( fixture );
+        fixture.start();
+    }
+
+    @After
+    public void teardown()
+    {
+        fixture.stop();
+        server.stop();
+    }
+
+    @Test
+    public void executeAllCapsRequestsInFlight()
+        throws Exception
+    {
+        server.stub( "/item", "value" )
+              .setLatencyMillis( 50 );
+
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final List<Callable<String>> requests = new ArrayList<Callable<String>>();
+        for ( int i = 0; i < 12; i++ )
+        {
+            requests.add( new Callable<String>()
+            {
+                @Override
+                public String call()
+                    throws Exception
+                {
+                    final int current = inFlight.incrementAndGet();
+                    int max;
+                    while ( current > ( max = maxInFlight.get() ) && !maxInFlight.compareAndSet( max, current ) )
+                    {
+                        // retry.
+                    }
+
+                    try
+                    {
+                        return fixture.get( server.url( "/item" ), String.class );
+                    }
+                    finally
+                    {
+                        inFlight.decrementAndGet();
+                    }
+                }
+            } );
+        }
+
+        final List<String> results = fixture.executeAll( requests, 3 );
+
+        assertThat( results.size(), equalTo( 12 ) );
+        assertThat( maxInFlight.get(), equalTo( 3 ) );
+        assertThat( server.getRequestCount(), equalTo( 12L ) );
+    }
+
+    @Test
+    public void executeAllReturnsResultsInRequestOrder()
+        throws Exception
+    {
+        final List<Callable<String>> requests = new ArrayList<Callable<String>>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            // later requests answer sooner, so they complete out of order.
+            final String path = "/item/" + i;
+            server.stub( path, "value-" + i )
+                  .setLatencyMillis( ( 5 - i ) * 30 );
+
+            requests.add( new Callable<String>()
+            {
+                @Override
+                public String call()
+                    throws Exception
+                {
+                    return fixture.get( server.url( path ), String.class );
+                }
+            } );
+        }
+
+        final List<String> results = fixture.executeAll( requests, 5 );
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            assertThat( results.get( i ), equalTo( "value-" + i ) );
+        }
+    }
+
+    @Test
+    public void executeAllStopsAtFirstCompletedFailure()
+        throws Exception
+    {
+        server.stub( "/slow", "slow" )
+              .setLatencyMillis( 2000 );
+
+        final AtomicInteger started = new AtomicInteger();
+        final List<Callable<String>> requests = new ArrayList<Callable<String>>();
+        for ( int i = 0; i < 20; i++ )
+        {
+            final int index = i;
+            requests.add( new Callable<String>()
+            {
+                @Override
+                public String call()
+                    throws Exception
+                {
+                    started.incrementAndGet();
+                    if ( index == 3 )
+                    {
+                        throw new IOException( "request 3 failed" );
+                    }
+
+                    return fixture.get( server.url( "/slow" ), String.class );
+                }
+            } );
+        }
+
+        final long start = System.currentTimeMillis();
+        try
+        {
+            fixture.executeAll( requests, 4 );
+            fail( "Request 3 should have failed the batch." );
+        }
+        catch ( final IOException e )
+        {
+            assertThat( e.getMessage(), equalTo( "request 3 failed" ) );
+        }
+
+        // reported without waiting for the slow requests issued before it, and nothing issued after it (those before
+        // it may have been cancelled before they started).
+        assertThat( System.currentTimeMillis() - start < 1000, equalTo( true ) );
+        assertThat( started.get() <= 4, equalTo( true ) );
+    }
+
+    @Test
+    public void streamPlainListing()
+        throws Exception
+    {
+        assertStreamingReleasesConnections( false, false );
+    }
+
+    @Test
+    public void streamChunkedListing()
+        throws Exception
+    {
+        assertStreamingReleasesConnections( true, false );
+    }
+
+    @Test
+    public void streamGzipListing()
+        throws Exception
+    {
+        assertStreamingReleasesConnections( true, true );
+    }
+
+    /**
+     * A short unread remainder is drained and the connection reused; a long one is aborted and the connection
+     * dropped. Either way nothing stays leased.
+     */
+    private void assertStreamingReleasesConnections( final boolean chunked, final boolean compressed )
+        throws Exception
+    {
+        final List<String> small = items( 20 );
+        final List<String> big = items( 5000 );
+
+        for ( final StubResponse response : new StubResponse[] { server.stubListing( "/small", small, LISTING ),
+            server.stubListing( "/big", big, LISTING ) } )
+        {
+            response.setChunked( chunked );
+            response.setCompressed( compressed );
+        }
+
+        assertThat( fixture.countListing( server.url( "/big" ), LISTING ), equalTo( 5000 ) );
+        assertPool( 1 );
+
+        assertThat( fixture.getListingHead( server.url( "/small" ), LISTING, 3 ), equalTo( small.subList( 0, 3 ) ) );
+        assertPool( 1 );
+
+        assertThat( fixture.getListingHead( server.url( "/big" ), LISTING, 3 ), equalTo( big.subList( 0, 3 ) ) );
+        assertPool( 0 );
+
+        assertThat( fixture.getListingHead( server.url( "/small" ), LISTING, 50 ), equalTo( small ) );
+        assertPool( 1 );
+
+        assertThat( server.getRequestCount(), equalTo( 4L ) );
+    }
+
+    private void assertPool( final int available )
+    {
+        final PoolStats stats = fixture.getPoolStats();
+        assertThat( "leased", stats.getLeased(), equalTo( 0 ) );
+        assertThat( "available", stats.getAvailable(), equalTo( available ) );
+    }
+
+    private static List<String> items( final int count )
+    {
+        final List<String> items = new ArrayList<String>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            items.add( "item-" + i );
+        }
+
+        return items;
+    }
+
+}